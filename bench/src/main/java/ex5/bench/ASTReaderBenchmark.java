@@ -0,0 +1,78 @@
+package ex5.bench;
+
+import ex5.ast.ASTArena;
+import ex5.ast.ASTReader;
+import ex5.ast.ASTWriter;
+import ex5.ast.statements.Statement;
+import ex5.lexer.Lexer;
+import ex5.parser.Parser;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares rebuilding the AST of a generated program from its binary encoding, as node objects
+ * or as an arena, with lexing and parsing its source.
+ *
+ * @author galart27
+ * @author noam_wein
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ASTReaderBenchmark {
+
+	@Param({"100", "1000", "10000"})
+	public int methods;
+
+	private char[] source;
+	private ByteBuffer encoded;
+
+	/**
+	 * Generates, parses and encodes the program once per trial.
+	 */
+	@Setup
+	public void setup() {
+		source = ProgramGenerator.generate(methods).toCharArray();
+		var parser = new Parser(new Lexer().tokenize(CharBuffer.wrap(source)));
+		var statements = parser.parseProgram();
+		var bytes = ASTWriter.encode(statements, parser.getNames());
+		encoded = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+	}
+
+	/**
+	 * Rebuilds the statements from the encoding, held off-heap like a mapped file.
+	 *
+	 * @return the top-level statements
+	 */
+	@Benchmark
+	public List<Statement> readProgram() {
+		return new ASTReader(encoded).readProgram();
+	}
+
+	/**
+	 * Rebuilds the program from the encoding as an arena, without node objects.
+	 *
+	 * @return the arena
+	 */
+	@Benchmark
+	public ASTArena readArena() {
+		return new ASTReader(encoded).readArena();
+	}
+
+	/**
+	 * Lexes and parses the source, for comparison.
+	 *
+	 * @return the top-level statements
+	 */
+	@Benchmark
+	public List<Statement> lexAndParse() {
+		return new Parser(new Lexer().tokenize(CharBuffer.wrap(source))).parseProgram();
+	}
+}
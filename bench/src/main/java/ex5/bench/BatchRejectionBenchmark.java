@@ -0,0 +1,79 @@
+package ex5.bench;
+
+import ex5.main.Validator;
+import ex5.main.Verdict;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures validating a batch of small generated files of which a given share is invalid, to
+ * compare the cost of rejecting a file with the cost of accepting one.
+ * Every invalid file has a single error, in the first method body, that fails the lexer, the
+ * parser or the semantic analyzer in turn.
+ *
+ * @author galart27
+ * @author noam_wein
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BatchRejectionBenchmark {
+
+	private static final int FILES = 1000;
+
+	/*
+	 * The statements that make a file invalid: an unknown token, a syntax error and an
+	 * undefined variable.
+	 */
+	private static final String[] ERRORS = {"int bad = 5 # 3;", "int = 5;", "undefinedName = 5;"};
+
+	@Param({"0", "50", "100"})
+	public int invalidPercent;
+
+	private String[] sources;
+
+	/**
+	 * Generates the batch once per trial, checking that exactly the intended files are invalid.
+	 */
+	@Setup
+	public void setup() {
+		sources = new String[FILES];
+		int invalid = FILES * invalidPercent / 100;
+		for (int i = 0; i < FILES; i++) {
+			var program = ProgramGenerator.generate(1, 1, 5, 2, i);
+			sources[i] = i < invalid ? withError(program, ERRORS[i % ERRORS.length]) : program;
+			int expected = i < invalid ? Verdict.ILLEGAL : Verdict.LEGAL;
+			if (Validator.validateSource(sources[i]).getCode() != expected) {
+				throw new IllegalStateException("Unexpected verdict for file " + i);
+			}
+		}
+	}
+
+	/**
+	 * Validates every file of the batch in order.
+	 *
+	 * @return the number of illegal files
+	 */
+	@Benchmark
+	public int validate() {
+		int illegal = 0;
+		for (var source : sources) {
+			if (Validator.validateSource(source).getCode() != Verdict.LEGAL) {
+				illegal++;
+			}
+		}
+		return illegal;
+	}
+
+	/*
+	 * Inserts a statement as the first one of the program's first method body.
+	 */
+	private static String withError(String program, String statement) {
+		int body = program.indexOf('\n', program.indexOf("\nvoid ") + 1) + 1;
+		return program.substring(0, body) + statement + "\n" + program.substring(body);
+	}
+}
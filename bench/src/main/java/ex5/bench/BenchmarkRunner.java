@@ -0,0 +1,39 @@
+package ex5.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmarks jar.
+ * Runs the selected benchmarks with the gc profiler always on, so every result reports the
+ * allocation rate next to the throughput. Takes the usual JMH command line options.
+ *
+ * @author galart27
+ * @author noam_wein
+ */
+public final class BenchmarkRunner {
+
+	/*
+	 * Utility class, not meant to be instantiated.
+	 */
+	private BenchmarkRunner() {}
+
+	/**
+	 * Runs the benchmarks.
+	 *
+	 * @param args JMH command line options, e.g. a benchmark name pattern
+	 * @throws CommandLineOptionException if the options are invalid
+	 * @throws RunnerException            if a benchmark fails
+	 */
+	public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+		var options = new OptionsBuilder()
+				.parent(new CommandLineOptions(args))
+				.addProfiler(GCProfiler.class)
+				.build();
+		new Runner(options).run();
+	}
+}
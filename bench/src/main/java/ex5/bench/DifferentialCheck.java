@@ -0,0 +1,209 @@
+package ex5.bench;
+
+import ex5.main.IncrementalValidator;
+import ex5.main.Validator;
+import ex5.main.Verdict;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Checks the incremental and parallel validation paths against plain validation, on random
+ * edits of generated programs.
+ * <ul>
+ *     <li>Every program gets a series of random edits, of whole lines or of a few characters
+ *     anywhere, some of which make it illegal and are then often undone. After each edit,
+ *     IncrementalValidator.edit must give the same verdict as Validator.validateSource of the
+ *     whole edited source.</li>
+ *     <li>A program large enough for parallel lexing gets a few random line edits per run.
+ *     Validator.validate on a pool must give the same verdict as Validator.validateSource.</li>
+ * </ul>
+ * Run it from the benchmarks jar:
+ * {@code java -cp target/benchmarks.jar ex5.bench.DifferentialCheck [programs] [runs] [seed]}.
+ * It prints the mismatches it finds and exits with 1 if there are any.
+ *
+ * @author galart27
+ * @author noam_wein
+ */
+public final class DifferentialCheck {
+
+	/*
+	 * Lines inserted or swapped in by the edits. Some are legal in a method body, some only at
+	 * the top level, and some nowhere, and several refer to the generated globals and methods.
+	 */
+	private static final String[] LINES = {
+			"    int q = 5;\n", "    a = 3;\n", "    g1 = 2.5;\n", "    g2 = 'c';\n",
+			"    m0(1, 2.0, true);\n", "    m1(1, 2.0, true);\n", "    m2(1);\n", "    return;\n",
+			"int g1 = 3;\n", "final double g1 = 3;\n", "double g1;\n", "String g3 = \"s\";\n",
+			"void m2(int z) {\n    return;\n}\n",
+			"void m0(int a, double b, boolean c) {\n    return;\n}\n",
+			"    if (c) {\n    b = g1;\n    }\n", "    q = g1;\n", "\n", "// hi\n", "}\n", "{\n",
+			"void f() {\n", "int ;\n", "x = #;\n", "if (true) {\n", "@\n"
+	};
+
+	/*
+	 * Fragments typed in the middle of a line by the edits.
+	 */
+	private static final String[] FRAGMENTS = {
+			"", "", " ", ";", "\n", "{", "}", "(", ")", ",", "x", "1", ".5", "'", "\"", "=", "&&",
+			"//", "int ", "return"
+	};
+
+	/*
+	 * The edits made to every program of the incremental check.
+	 */
+	private static final int EDITS = 40;
+
+	/*
+	 * The number of methods of the program of the parallel check, which makes it over the 4 MB
+	 * from which Validator lexes in parallel.
+	 */
+	private static final int PARALLEL_METHODS = 2500;
+
+	/*
+	 * Utility class, not meant to be instantiated.
+	 */
+	private DifferentialCheck() {}
+
+	/**
+	 * Runs both checks.
+	 *
+	 * @param args the number of programs of the incremental check, the number of runs of the
+	 *             parallel check and the seed, 300, 40 and 1 by default
+	 */
+	public static void main(String[] args) {
+		int programs = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+		int runs = args.length > 1 ? Integer.parseInt(args[1]) : 40;
+		long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+
+		int mismatches = checkIncremental(programs, new Random(seed)) +
+		                 checkParallel(runs, new Random(seed));
+		if (mismatches > 0) {
+			System.exit(1);
+		}
+	}
+
+	/*
+	 * Edits generated programs through an IncrementalValidator, and returns the number of
+	 * verdicts that differ from validating the whole source.
+	 */
+	private static int checkIncremental(int programs, Random random) {
+		int edits = 0, legal = 0, mismatches = 0;
+		for (int p = 0; p < programs; p++) {
+			var source = ProgramGenerator.generate(3, 2 + random.nextInt(6), 6, 2,
+			                                       random.nextLong());
+			var validator = new IncrementalValidator(source);
+			var current = new StringBuilder(source);
+			for (int e = 0; e < EDITS; e++) {
+				var starts = lineStarts(current);
+				int line = random.nextInt(starts.size());
+				int offset = starts.get(line);
+				boolean lastLine = line + 1 == starts.size();
+				int length = 0;
+				var replacement = "";
+				switch (random.nextInt(4)) {
+					case 0 -> length = lastLine ? 0 : starts.get(line + 1) - offset;
+					case 1 -> {
+						length = lastLine ? 0 : starts.get(line + 1) - offset;
+						replacement = LINES[random.nextInt(LINES.length)];
+					}
+					case 2 -> replacement = LINES[random.nextInt(LINES.length)];
+					default -> {
+						offset = random.nextInt(current.length() + 1);
+						length = Math.min(random.nextInt(4), current.length() - offset);
+						replacement = FRAGMENTS[random.nextInt(FRAGMENTS.length)];
+					}
+				}
+
+				var removed = current.substring(offset, offset + length);
+				current.replace(offset, offset + length, replacement);
+				var expected = Validator.validateSource(current.toString());
+				mismatches += compare("edit", validator.edit(offset, length, replacement),
+				                      expected);
+				edits++;
+				if (expected.getCode() == Verdict.LEGAL) {
+					legal++;
+				}
+				else if (random.nextInt(10) < 8) {
+					current.replace(offset, offset + replacement.length(), removed);
+					mismatches += compare("undo",
+					                      validator.edit(offset, replacement.length(), removed),
+					                      Validator.validateSource(current.toString()));
+					edits++;
+				}
+			}
+		}
+		System.out.println("incremental: edits=" + edits + " legal=" + legal + " mismatches=" +
+		                   mismatches);
+		return mismatches;
+	}
+
+	/*
+	 * Validates edited copies of a large program on a pool, and returns the number of verdicts
+	 * that differ from validating them in order.
+	 */
+	private static int checkParallel(int runs, Random random) {
+		var lines = ProgramGenerator.generate(PARALLEL_METHODS).split("\n", -1);
+		var pool = new ForkJoinPool(4);
+		int legal = 0, mismatches = 0;
+		try {
+			for (int run = 0; run < runs; run++) {
+				var edited = new ArrayList<>(Arrays.asList(lines));
+				for (int e = random.nextInt(4); e > 0; e--) {
+					int line = random.nextInt(edited.size());
+					var replacement = LINES[random.nextInt(LINES.length)].stripTrailing();
+					if (random.nextBoolean()) {
+						edited.add(line, replacement);
+					}
+					else {
+						edited.set(line, replacement);
+					}
+				}
+
+				var source = String.join("\n", edited);
+				var bytes = ByteBuffer.wrap(source.getBytes(StandardCharsets.UTF_8));
+				var expected = Validator.validateSource(source);
+				mismatches += compare("parallel", Validator.validate(bytes, pool), expected);
+				if (expected.getCode() == Verdict.LEGAL) {
+					legal++;
+				}
+			}
+		} finally {
+			pool.shutdown();
+		}
+		System.out.println("parallel: runs=" + runs + " legal=" + legal + " mismatches=" +
+		                   mismatches);
+		return mismatches;
+	}
+
+	/*
+	 * Returns the offsets at which the lines of a source start.
+	 */
+	private static ArrayList<Integer> lineStarts(CharSequence source) {
+		var starts = new ArrayList<Integer>();
+		starts.add(0);
+		for (int i = 0; i < source.length(); i++) {
+			if (source.charAt(i) == '\n') {
+				starts.add(i + 1);
+			}
+		}
+		return starts;
+	}
+
+	/*
+	 * Prints a mismatch between two verdicts, and returns 1 if there is one.
+	 */
+	private static int compare(String check, Verdict actual, Verdict expected) {
+		if (actual.getCode() == expected.getCode() &&
+		    String.valueOf(actual.getMessage()).equals(String.valueOf(expected.getMessage()))) {
+			return 0;
+		}
+		System.out.println(check + " mismatch: " + actual.getCode() + " " + actual.getMessage() +
+		                   " instead of " + expected.getCode() + " " + expected.getMessage());
+		return 1;
+	}
+}
@@ -0,0 +1,64 @@
+package ex5.bench;
+
+import ex5.main.Validator;
+import ex5.main.Verdict;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a full Sjavac run on a generated file: mapping, lexing, parsing and analysis.
+ *
+ * @author galart27
+ * @author noam_wein
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EndToEndBenchmark {
+
+	@Param({"100", "1000", "10000"})
+	public int methods;
+
+	private Path file;
+
+	/**
+	 * Writes the generated program to a temporary .sjava file.
+	 *
+	 * @throws IOException if the file cannot be written
+	 */
+	@Setup
+	public void setup() throws IOException {
+		file = Files.createTempFile("bench", ".sjava");
+		Files.writeString(file, ProgramGenerator.generate(methods));
+		if (Validator.validate(file).getCode() != Verdict.LEGAL) {
+			throw new IllegalStateException("Generated program is not legal");
+		}
+	}
+
+	/**
+	 * Deletes the temporary file.
+	 *
+	 * @throws IOException if the file cannot be deleted
+	 */
+	@TearDown
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(file);
+	}
+
+	/**
+	 * Validates the file the way Sjavac does.
+	 *
+	 * @return the verdict
+	 */
+	@Benchmark
+	public Verdict validate() {
+		return Validator.validate(file);
+	}
+}
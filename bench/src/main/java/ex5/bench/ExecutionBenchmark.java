@@ -0,0 +1,144 @@
+package ex5.bench;
+
+import ex5.ast.statements.Statement;
+import ex5.interpreter.CompiledProgram;
+import ex5.interpreter.Interpreter;
+import ex5.lexer.Lexer;
+import ex5.parser.Parser;
+import ex5.semantic.SemanticAnalyzer;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.CharBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures running a program with the Interpreter and compiled to bytecode.
+ * Sjavac has no arithmetic, so the hot path is a tree of calls: the method at each level calls
+ * the one below it twice, and the leaf method runs a loop once and branches on conditions of
+ * && and || over values it converts, making 2 to the power of the depth leaf calls in all.
+ *
+ * @author galart27
+ * @author noam_wein
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExecutionBenchmark {
+
+	/*
+	 * A program whose second block reuses the slot of the first block's variable for one
+	 * declared without an initializer, which must still start at zero, not 7.
+	 */
+	private static final String SLOT_REUSE = String.join("\n",
+			"int r;",
+			"void foo() {",
+			"    if (true) {",
+			"        int a = 7;",
+			"    }",
+			"    if (true) {",
+			"        int b;",
+			"        if (false) {",
+			"            b = 1;",
+			"        }",
+			"        r = b;",
+			"    }",
+			"    return;",
+			"}");
+
+	@Param({"10", "16"})
+	public int depth;
+
+	private List<Statement> statements;
+	private Interpreter interpreter;
+	private CompiledProgram compiled;
+
+	/**
+	 * Generates, parses, analyzes and compiles the program once per trial, after checking that
+	 * a reused slot does not leak into a variable declared without an initializer.
+	 */
+	@Setup
+	public void setup() {
+		var reuse = analyze(SLOT_REUSE);
+		var reuseInterpreter = new Interpreter(reuse, Long.MAX_VALUE, 1);
+		reuseInterpreter.call("foo");
+		if (!Integer.valueOf(0).equals(reuseInterpreter.getGlobal("r"))) {
+			throw new IllegalStateException("Interpreter read a stale value from a reused slot");
+		}
+		var reuseCompiled = new CompiledProgram(reuse);
+		reuseCompiled.call("foo");
+		if (!Integer.valueOf(0).equals(reuseCompiled.getGlobal("r"))) {
+			throw new IllegalStateException("Compiled code read a stale value from a reused slot");
+		}
+
+		statements = analyze(generate(depth));
+		interpreter = new Interpreter(statements, Long.MAX_VALUE, depth + 1);
+		compiled = new CompiledProgram(statements);
+	}
+
+	/**
+	 * Calls the root of the tree with the Interpreter.
+	 *
+	 * @return the value the calls leave in a global
+	 */
+	@Benchmark
+	public Object interpret() {
+		interpreter.call("level" + depth, 3, 0.5, true);
+		return interpreter.getGlobal("total");
+	}
+
+	/**
+	 * Calls the root of the tree compiled to bytecode.
+	 *
+	 * @return the value the calls leave in a global
+	 */
+	@Benchmark
+	public Object compiled() {
+		compiled.call("level" + depth, 3, 0.5, true);
+		return compiled.getGlobal("total");
+	}
+
+	/*
+	 * Parses and analyzes a program.
+	 */
+	private static List<Statement> analyze(String program) {
+		var tokens = new Lexer().tokenize(CharBuffer.wrap(program.toCharArray()));
+		var statements = new Parser(tokens).parseProgram();
+		new SemanticAnalyzer(tokens.getNames()).analyze(statements);
+		return statements;
+	}
+
+	/*
+	 * Generates the tree of methods of the given depth.
+	 */
+	private static String generate(int depth) {
+		var sb = new StringBuilder();
+		sb.append("int count = 0;\ndouble total = 0;\nboolean flag = false;\n\n");
+		sb.append("void level0(int n, double d, boolean b) {\n");
+		sb.append("    boolean once = true;\n");
+		sb.append("    while (once) {\n");
+		sb.append("        once = false;\n");
+		sb.append("        if (b && n || d) {\n");
+		sb.append("            total = n;\n");
+		sb.append("        }\n");
+		sb.append("        if (flag || b && d) {\n");
+		sb.append("            flag = d;\n");
+		sb.append("        }\n");
+		sb.append("    }\n");
+		sb.append("    count = n;\n");
+		sb.append("    return;\n");
+		sb.append("}\n");
+		for (int level = 1; level <= depth; level++) {
+			sb.append("\nvoid level").append(level).append("(int n, double d, boolean b) {\n");
+			for (int call = 0; call < 2; call++) {
+				sb.append("    level").append(level - 1).append("(n, d, b);\n");
+			}
+			sb.append("    return;\n");
+			sb.append("}\n");
+		}
+		return sb.toString();
+	}
+}
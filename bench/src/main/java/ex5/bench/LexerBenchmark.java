@@ -0,0 +1,66 @@
+package ex5.bench;
+
+import ex5.lexer.Lexer;
+import ex5.lexer.LexerTokenSource;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures tokenization of a generated program, both into a TokenBuffer and as a lazy stream.
+ *
+ * @author galart27
+ * @author noam_wein
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LexerBenchmark {
+
+	@Param({"100", "1000", "10000"})
+	public int methods;
+
+	private char[] source;
+	private byte[] bytes;
+
+	/**
+	 * Generates the program once per trial.
+	 */
+	@Setup
+	public void setup() {
+		var program = ProgramGenerator.generate(methods);
+		source = program.toCharArray();
+		bytes = program.getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Tokenizes the whole program into a TokenBuffer.
+	 *
+	 * @return the number of tokens
+	 */
+	@Benchmark
+	public int tokenize() {
+		return new Lexer().tokenize(CharBuffer.wrap(source)).size();
+	}
+
+	/**
+	 * Drains a lazy token stream over the encoded program.
+	 *
+	 * @return the number of tokens
+	 */
+	@Benchmark
+	public int stream() {
+		var tokens = new LexerTokenSource(ByteBuffer.wrap(bytes), StandardCharsets.UTF_8);
+		int count = 0;
+		while (tokens.next() != null) {
+			count++;
+		}
+		return count;
+	}
+}
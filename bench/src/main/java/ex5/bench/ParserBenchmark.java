@@ -0,0 +1,50 @@
+package ex5.bench;
+
+import ex5.ast.statements.Statement;
+import ex5.lexer.Lexer;
+import ex5.lexer.TokenBuffer;
+import ex5.parser.Parser;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.CharBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures Parser.parseProgram on the pre-lexed tokens of a generated program.
+ *
+ * @author galart27
+ * @author noam_wein
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParserBenchmark {
+
+	@Param({"100", "1000", "10000"})
+	public int methods;
+
+	private TokenBuffer tokens;
+
+	/**
+	 * Generates and tokenizes the program once per trial.
+	 */
+	@Setup
+	public void setup() {
+		var program = ProgramGenerator.generate(methods);
+		tokens = new Lexer().tokenize(CharBuffer.wrap(program.toCharArray()));
+	}
+
+	/**
+	 * Parses the whole program.
+	 *
+	 * @return the top-level statements
+	 */
+	@Benchmark
+	public List<Statement> parseProgram() {
+		return new Parser(tokens).parseProgram();
+	}
+}
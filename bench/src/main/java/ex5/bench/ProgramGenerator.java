@@ -0,0 +1,116 @@
+package ex5.bench;
+
+import java.util.Random;
+
+/**
+ * Generates synthetic, legal .sjava programs of a tunable size for the benchmarks.
+ * The same arguments always produce the same program.
+ *
+ * @author galart27
+ * @author noam_wein
+ */
+public final class ProgramGenerator {
+
+	private static final String[] TYPES = {"int", "double", "boolean", "char", "String"};
+	private static final String[] VALUES = {"42", "-3.5", "true", "'c'", "\"text\""};
+
+	private final Random random;
+	private final StringBuilder sb = new StringBuilder();
+	private int counter;
+
+	/*
+	 * Constructs a ProgramGenerator with the given seed.
+	 */
+	private ProgramGenerator(long seed) {
+		random = new Random(seed);
+	}
+
+	/**
+	 * Generates a program.
+	 *
+	 * @param globals    the number of global variable declarations
+	 * @param methods    the number of method declarations
+	 * @param statements the number of statements in every method body
+	 * @param depth      the maximal nesting depth of if and while blocks
+	 * @param seed       the seed of the random choices
+	 * @return the program's source code
+	 */
+	public static String generate(int globals, int methods, int statements, int depth, long seed) {
+		return new ProgramGenerator(seed).program(globals, methods, statements, depth);
+	}
+
+	/**
+	 * Generates a program whose size is driven by its number of methods.
+	 *
+	 * @param methods the number of method declarations
+	 * @return the program's source code
+	 */
+	public static String generate(int methods) {
+		return generate(Math.max(1, methods / 4), methods, 20, 3, 42);
+	}
+
+	/*
+	 * Generates the globals, then every method body.
+	 */
+	private String program(int globals, int methods, int statements, int depth) {
+		sb.append("// generated with ").append(methods).append(" methods\n");
+		for (int i = 0; i < globals; i++) {
+			int t = i % TYPES.length;
+			sb.append(i % 7 == 0 ? "final " : "")
+			  .append(TYPES[t]).append(" g").append(i).append(" = ").append(VALUES[t]).append(";\n");
+		}
+		sb.append('\n');
+
+		for (int m = 0; m < methods; m++) {
+			sb.append("void m").append(m).append("(int a, double b, boolean c) {\n");
+			body(statements, depth, 1, m, globals);
+			sb.append("    return;\n}\n\n");
+		}
+		return sb.toString();
+	}
+
+	/*
+	 * Appends count statements at the given indentation level.
+	 */
+	private void body(int count, int depth, int level, int method, int globals) {
+		var indent = "    ".repeat(level);
+		for (int i = 0; i < count; i++) {
+			int kind = random.nextInt(depth > 0 ? 6 : 4);
+			switch (kind) {
+				case 0 -> {
+					int t = random.nextInt(TYPES.length);
+					sb.append(indent).append(TYPES[t]).append(" v").append(counter++)
+					  .append(" = ").append(VALUES[t]).append(", w").append(counter++).append(";\n");
+				}
+				case 1 -> sb.append(indent).append("b = a;\n");
+				case 2 -> {
+					if (method > 0) {
+						sb.append(indent).append('m').append(random.nextInt(method))
+						  .append("(a, 1.5, c);\n");
+					}
+					else {
+						sb.append(indent).append("c = b;\n");
+					}
+				}
+				case 3 -> {
+					if (globals > 1) {
+						// Globals with an index divisible by 7 are final, so skip them
+						int g = 1 + random.nextInt(globals - 1);
+						g -= g % 7 == 0 ? 1 : 0;
+						sb.append(indent).append('g').append(g).append(" = ")
+						  .append(VALUES[g % TYPES.length]).append(";\n");
+					}
+					else {
+						sb.append(indent).append("a = 7;\n");
+					}
+				}
+				default -> {
+					sb.append(indent).append(kind == 4 ? "if" : "while")
+					  .append(" (c && a || true) {\n");
+					body(Math.max(1, count / 4), depth - 1, level + 1, method, globals);
+					sb.append(indent).append("}\n");
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,72 @@
+package ex5.bench;
+
+import ex5.ast.ASTArena;
+import ex5.ast.statements.Statement;
+import ex5.lexer.Lexer;
+import ex5.lexer.NameTable;
+import ex5.parser.Parser;
+import ex5.semantic.SemanticAnalyzer;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.CharBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures SemanticAnalyzer.analyze on the pre-parsed AST of a generated program, held either as
+ * node objects or flat in an ASTArena.
+ *
+ * @author galart27
+ * @author noam_wein
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SemanticAnalyzerBenchmark {
+
+	@Param({"100", "1000", "10000"})
+	public int methods;
+
+	private List<Statement> statements;
+	private NameTable names;
+	private ASTArena arena;
+
+	/**
+	 * Generates and parses the program once per trial.
+	 */
+	@Setup
+	public void setup() {
+		var program = ProgramGenerator.generate(methods);
+		var tokens = new Lexer().tokenize(CharBuffer.wrap(program.toCharArray()));
+		statements = new Parser(tokens).parseProgram();
+		names = tokens.getNames();
+		arena = ASTArena.of(statements, names);
+	}
+
+	/**
+	 * Analyzes the whole program with a fresh analyzer.
+	 *
+	 * @return the analyzer, so its work cannot be eliminated
+	 */
+	@Benchmark
+	public SemanticAnalyzer analyze() {
+		var analyzer = new SemanticAnalyzer(names);
+		analyzer.analyze(statements);
+		return analyzer;
+	}
+
+	/**
+	 * Analyzes the whole program, flattened into an arena, with a fresh analyzer.
+	 *
+	 * @return the analyzer, so its work cannot be eliminated
+	 */
+	@Benchmark
+	public SemanticAnalyzer analyzeArena() {
+		var analyzer = new SemanticAnalyzer(names);
+		analyzer.analyze(arena);
+		return analyzer;
+	}
+}
@@ -0,0 +1,564 @@
+package ex5.ast;
+
+import ex5.ast.expressions.Expression;
+import ex5.ast.expressions.LiteralExpression;
+import ex5.ast.expressions.LogicalExpression;
+import ex5.ast.expressions.VariableExpression;
+import ex5.ast.statements.*;
+import ex5.lexer.NameTable;
+import ex5.lexer.TokenType;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A whole program's AST stored flat in a few primitive arrays instead of one object per node.
+ * <p>
+ * A node is an index into the arrays, which hold the nodes in pre-order: the children of a node
+ * directly follow it, one subtree after the other, and every node records the index just past
+ * its subtree, which is where its next sibling starts. The top-level statements are the
+ * siblings starting at node 0 and ending at size(). Children are in the same order as the
+ * fields of the object nodes: the condition then the body of an if or while statement, the
+ * arguments then the body of a method declaration, the arguments of a method call, the
+ * expression of an assignment, the initializer of a declaration if it has one, and the left
+ * then the right operand of a logical expression.
+ * <p>
+ * Walking the nodes touches consecutive memory and allocates nothing; ArenaVisitor is the
+ * visitor interface, and accept and acceptExpression dispatch to it. Identifier ids refer to
+ * the name table given to the arena, and literal values are kept as UTF-8 bytes in a single
+ * array, in source order.
+ *
+ * @author galart27
+ * @author noam_wein
+ */
+public final class ASTArena {
+
+	/**
+	 * The kinds of nodes, one per class of the object AST.
+	 */
+	public enum Kind {
+		BLOCK,
+		IF_STATEMENT,
+		METHOD_ARGUMENT,
+		METHOD_CALL,
+		METHOD_DECLARATION,
+		RETURN_STATEMENT,
+		VARIABLE_ASSIGNMENT,
+		VARIABLE_DECLARATION,
+		WHILE_STATEMENT,
+		LITERAL_EXPRESSION,
+		VARIABLE_EXPRESSION,
+		LOGICAL_EXPRESSION
+	}
+
+	private static final Kind[] KINDS = Kind.values();
+	private static final TokenType[] TYPES = TokenType.values();
+
+	private final NameTable names;
+
+	/*
+	 * Per node: its kind, its token type (the declared type, the literal type or the operator),
+	 * its ASTFormat flags, its value (a name id or a literal index) and the end of its subtree.
+	 */
+	private byte[] kinds;
+	private byte[] types;
+	private byte[] flags;
+	private int[] values;
+	private int[] ends;
+	private int size = 0;
+
+	/*
+	 * The UTF-8 bytes of every literal value, one after the other, and where each value ends.
+	 * Values are only turned into Strings when asked for, which analysis never does.
+	 */
+	private byte[] literalBytes = new byte[1024];
+	private int literalSize = 0;
+	private int[] literalEnds = new int[64];
+	private int literalCount = 0;
+
+	/**
+	 * Constructs an empty ASTArena, to be filled in by add and close.
+	 *
+	 * @param names    the name table the identifier ids of the nodes refer to
+	 * @param capacity the number of nodes to make room for
+	 */
+	ASTArena(NameTable names, int capacity) {
+		this.names = names;
+		capacity = Math.max(capacity, 16);
+		kinds = new byte[capacity];
+		types = new byte[capacity];
+		flags = new byte[capacity];
+		values = new int[capacity];
+		ends = new int[capacity];
+	}
+
+	/**
+	 * Flattens a program's object AST into a new arena, without recursion, so the nesting depth
+	 * is only limited by the heap.
+	 *
+	 * @param statements the program's top-level statements
+	 * @param names      the name table the identifier ids of the statements refer to
+	 * @return the arena holding the program
+	 */
+	public static ASTArena of(List<? extends Statement> statements, NameTable names) {
+		var arena = new ASTArena(names, statements.size() * 8);
+		new Flattener(arena).flatten(statements);
+		return arena;
+	}
+
+	/**
+	 * Returns the number of nodes in the arena, which is also the end of the top-level
+	 * statements.
+	 *
+	 * @return the number of nodes
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the table the identifier ids of the nodes refer to.
+	 *
+	 * @return the name table
+	 */
+	public NameTable getNames() {
+		return names;
+	}
+
+	/**
+	 * Returns the kind of a node.
+	 *
+	 * @param node the node
+	 * @return the node's kind
+	 */
+	public Kind getKind(int node) {
+		return KINDS[kinds[node]];
+	}
+
+	/**
+	 * Returns the index just past a node's subtree, which is its next sibling if it has one.
+	 *
+	 * @param node the node
+	 * @return the end of the node's subtree
+	 */
+	public int getEnd(int node) {
+		return ends[node];
+	}
+
+	/**
+	 * Returns the number of children of a node.
+	 *
+	 * @param node the node
+	 * @return the number of children
+	 */
+	public int getChildCount(int node) {
+		int count = 0;
+		for (int child = node + 1; child < ends[node]; child = ends[child]) {
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the last child of a node, such as the last statement of a block.
+	 *
+	 * @param node the node
+	 * @return the last child, or -1 if the node has no children
+	 */
+	public int getLastChild(int node) {
+		int last = -1;
+		for (int child = node + 1; child < ends[node]; child = ends[child]) {
+			last = child;
+		}
+		return last;
+	}
+
+	/**
+	 * Returns the name id of a declaration, assignment, argument, call or variable expression.
+	 *
+	 * @param node the node
+	 * @return the id of the node's name
+	 */
+	public int getId(int node) {
+		return values[node];
+	}
+
+	/**
+	 * Returns the name of a declaration, assignment, argument, call or variable expression.
+	 *
+	 * @param node the node
+	 * @return the node's name
+	 */
+	public String getIdentifier(int node) {
+		return names.nameOf(values[node]);
+	}
+
+	/**
+	 * Returns the declared type of a variable declaration or method argument, the token type of
+	 * a literal, or the operator of a logical expression.
+	 *
+	 * @param node the node
+	 * @return the node's token type
+	 */
+	public TokenType getType(int node) {
+		return TYPES[types[node]];
+	}
+
+	/**
+	 * Returns the value of a literal expression, as written in the source.
+	 *
+	 * @param node the literal expression
+	 * @return the literal's value
+	 */
+	public String getLiteralValue(int node) {
+		int literal = values[node];
+		int start = literal == 0 ? 0 : literalEnds[literal - 1];
+		return new String(literalBytes, start, literalEnds[literal] - start, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Checks if a variable declaration is final.
+	 *
+	 * @param node the variable declaration
+	 * @return true if the variable is final
+	 */
+	public boolean isFinal(int node) {
+		return (flags[node] & ASTFormat.FINAL) != 0;
+	}
+
+	/**
+	 * Returns the initializer of a variable declaration.
+	 *
+	 * @param node the variable declaration
+	 * @return the initializer, or -1 if the variable is not initialized
+	 */
+	public int getInitializer(int node) {
+		return (flags[node] & ASTFormat.INITIALIZED) != 0 ? node + 1 : -1;
+	}
+
+	/**
+	 * Returns the body of an if statement, while statement or method declaration.
+	 *
+	 * @param node the statement
+	 * @return the body block
+	 */
+	public int getBody(int node) {
+		return getLastChild(node);
+	}
+
+	/**
+	 * Calls the visit method of a statement node.
+	 *
+	 * @param node    the statement
+	 * @param visitor the visitor
+	 */
+	public void accept(int node, ArenaVisitor<?> visitor) {
+		switch (getKind(node)) {
+			case BLOCK -> visitor.visitBlock(this, node);
+			case IF_STATEMENT -> visitor.visitIfStatement(this, node);
+			case METHOD_ARGUMENT -> visitor.visitMethodArgument(this, node);
+			case METHOD_CALL -> visitor.visitMethodCall(this, node);
+			case METHOD_DECLARATION -> visitor.visitMethodDeclaration(this, node);
+			case RETURN_STATEMENT -> visitor.visitReturnStatement(this, node);
+			case VARIABLE_ASSIGNMENT -> visitor.visitVariableAssignment(this, node);
+			case VARIABLE_DECLARATION -> visitor.visitVariableDeclaration(this, node);
+			case WHILE_STATEMENT -> visitor.visitWhileStatement(this, node);
+			default -> throw new IllegalArgumentException("Not a statement: " + node);
+		}
+	}
+
+	/**
+	 * Calls the visit method of an expression node.
+	 *
+	 * @param node    the expression
+	 * @param visitor the visitor
+	 * @param <R>     the return type of the visitor
+	 * @return the result of the visit
+	 */
+	public <R> R acceptExpression(int node, ArenaVisitor<R> visitor) {
+		return switch (getKind(node)) {
+			case LITERAL_EXPRESSION -> visitor.visitLiteralExpression(this, node);
+			case VARIABLE_EXPRESSION -> visitor.visitVariableExpression(this, node);
+			case LOGICAL_EXPRESSION -> visitor.visitLogicalExpression(this, node);
+			default -> throw new IllegalArgumentException("Not an expression: " + node);
+		};
+	}
+
+	/**
+	 * Appends a node, as a leaf until it is closed.
+	 *
+	 * @param kind  the node's kind
+	 * @param type  the node's token type, or null
+	 * @param flags the node's ASTFormat flags
+	 * @param value the node's name id, or 0
+	 * @return the new node
+	 */
+	int add(Kind kind, TokenType type, int flags, int value) {
+		if (size == kinds.length) {
+			int capacity = size * 2;
+			kinds = Arrays.copyOf(kinds, capacity);
+			types = Arrays.copyOf(types, capacity);
+			this.flags = Arrays.copyOf(this.flags, capacity);
+			values = Arrays.copyOf(values, capacity);
+			ends = Arrays.copyOf(ends, capacity);
+		}
+		int node = size++;
+		kinds[node] = (byte) kind.ordinal();
+		types[node] = type == null ? 0 : (byte) type.ordinal();
+		this.flags[node] = (byte) flags;
+		values[node] = value;
+		ends[node] = size;
+		return node;
+	}
+
+	/**
+	 * Appends a literal expression.
+	 *
+	 * @param type  the literal's token type
+	 * @param value the literal's value
+	 * @return the new node
+	 */
+	int addLiteral(TokenType type, String value) {
+		return addLiteral(type, ByteBuffer.wrap(value.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	/**
+	 * Appends a literal expression whose value is UTF-8 encoded, copying the bytes from the
+	 * buffer's position to its limit and consuming them.
+	 *
+	 * @param type  the literal's token type
+	 * @param value the bytes of the literal's value
+	 * @return the new node
+	 */
+	int addLiteral(TokenType type, ByteBuffer value) {
+		int length = value.remaining();
+		if (literalSize + length > literalBytes.length) {
+			literalBytes = Arrays.copyOf(literalBytes,
+			                             Math.max(literalSize + length, literalBytes.length * 2));
+		}
+		value.get(literalBytes, literalSize, length);
+		literalSize += length;
+
+		if (literalCount == literalEnds.length) {
+			literalEnds = Arrays.copyOf(literalEnds, literalCount * 2);
+		}
+		literalEnds[literalCount] = literalSize;
+		return add(Kind.LITERAL_EXPRESSION, type, 0, literalCount++);
+	}
+
+	/**
+	 * Ends a node's subtree after the nodes appended so far.
+	 *
+	 * @param node the node whose children were all appended
+	 */
+	void close(int node) {
+		ends[node] = size;
+	}
+
+	/*
+	 * Marks where the subtree of a node ends in the flattener's pending items.
+	 */
+	private record Close(int node) {}
+
+	/*
+	 * Appends object nodes to an arena in pre-order, with an explicit stack of the pending
+	 * nodes instead of recursion.
+	 */
+	private static final class Flattener implements ASTVisitor<Void> {
+
+		private final ASTArena arena;
+
+		/*
+		 * The statements, expressions and Close markers left to append, next first.
+		 */
+		private final ArrayDeque<Object> pending = new ArrayDeque<>();
+
+		/*
+		 * Constructs a Flattener appending to the given arena.
+		 */
+		private Flattener(ASTArena arena) {
+			this.arena = arena;
+		}
+
+		/*
+		 * Appends the given statements and everything under them.
+		 */
+		private void flatten(List<? extends Statement> statements) {
+			pushAll(statements);
+			while (!pending.isEmpty()) {
+				var item = pending.pop();
+				if (item instanceof Close close) {
+					arena.close(close.node);
+				}
+				else if (item instanceof Statement statement) {
+					statement.accept(this);
+				}
+				else {
+					((Expression) item).accept(this);
+				}
+			}
+		}
+
+		/**
+		 * Appends a block, its statements pending.
+		 *
+		 * @param bl the block
+		 */
+		@Override
+		public void visitBlock(Block bl) {
+			open(arena.add(Kind.BLOCK, null, 0, 0));
+			pushAll(bl.getStatements());
+		}
+
+		/**
+		 * Appends an if statement, its condition and body pending.
+		 *
+		 * @param is the if statement
+		 */
+		@Override
+		public void visitIfStatement(IfStatement is) {
+			open(arena.add(Kind.IF_STATEMENT, null, 0, 0));
+			pending.push(is.getBody());
+			pending.push(is.getCondition());
+		}
+
+		/**
+		 * Appends a method argument.
+		 *
+		 * @param ma the method argument
+		 */
+		@Override
+		public void visitMethodArgument(MethodArgument ma) {
+			arena.add(Kind.METHOD_ARGUMENT, ma.getType(), 0, ma.getId());
+		}
+
+		/**
+		 * Appends a method call, its arguments pending.
+		 *
+		 * @param mc the method call
+		 */
+		@Override
+		public void visitMethodCall(MethodCall mc) {
+			open(arena.add(Kind.METHOD_CALL, null, 0, mc.getId()));
+			pushAll(mc.getArguments());
+		}
+
+		/**
+		 * Appends a method declaration, its arguments and body pending.
+		 *
+		 * @param md the method declaration
+		 */
+		@Override
+		public void visitMethodDeclaration(MethodDeclaration md) {
+			open(arena.add(Kind.METHOD_DECLARATION, null, 0, md.getId()));
+			pending.push(md.getBody());
+			pushAll(md.getArguments());
+		}
+
+		/**
+		 * Appends a return statement.
+		 *
+		 * @param rs the return statement
+		 */
+		@Override
+		public void visitReturnStatement(ReturnStatement rs) {
+			arena.add(Kind.RETURN_STATEMENT, null, 0, 0);
+		}
+
+		/**
+		 * Appends a variable assignment, its expression pending.
+		 *
+		 * @param va the variable assignment
+		 */
+		@Override
+		public void visitVariableAssignment(VariableAssignment va) {
+			open(arena.add(Kind.VARIABLE_ASSIGNMENT, null, 0, va.getId()));
+			pending.push(va.getExpression());
+		}
+
+		/**
+		 * Appends a variable declaration, its initializer pending if it has one.
+		 *
+		 * @param vd the variable declaration
+		 */
+		@Override
+		public void visitVariableDeclaration(VariableDeclaration vd) {
+			int flags = (vd.isFinal() ? ASTFormat.FINAL : 0) |
+			            (vd.getInitializer() != null ? ASTFormat.INITIALIZED : 0);
+			int node = arena.add(Kind.VARIABLE_DECLARATION, vd.getType(), flags, vd.getId());
+			if (vd.getInitializer() != null) {
+				open(node);
+				pending.push(vd.getInitializer());
+			}
+		}
+
+		/**
+		 * Appends a while statement, its condition and body pending.
+		 *
+		 * @param ws the while statement
+		 */
+		@Override
+		public void visitWhileStatement(WhileStatement ws) {
+			open(arena.add(Kind.WHILE_STATEMENT, null, 0, 0));
+			pending.push(ws.getBody());
+			pending.push(ws.getCondition());
+		}
+
+		/**
+		 * Appends a literal expression.
+		 *
+		 * @param le the literal expression
+		 * @return null
+		 */
+		@Override
+		public Void visitLiteralExpression(LiteralExpression le) {
+			arena.addLiteral(le.getLiteral().getType(), le.getLiteral().getValue());
+			return null;
+		}
+
+		/**
+		 * Appends a variable expression.
+		 *
+		 * @param ve the variable expression
+		 * @return null
+		 */
+		@Override
+		public Void visitVariableExpression(VariableExpression ve) {
+			arena.add(Kind.VARIABLE_EXPRESSION, null, 0, ve.getId());
+			return null;
+		}
+
+		/**
+		 * Appends a logical expression, its operands pending.
+		 *
+		 * @param le the logical expression
+		 * @return null
+		 */
+		@Override
+		public Void visitLogicalExpression(LogicalExpression le) {
+			open(arena.add(Kind.LOGICAL_EXPRESSION, le.getOp(), 0, 0));
+			pending.push(le.getRight());
+			pending.push(le.getLeft());
+			return null;
+		}
+
+		/*
+		 * Pushes the marker that closes a node once its pending children are appended.
+		 */
+		private void open(int node) {
+			pending.push(new Close(node));
+		}
+
+		/*
+		 * Pushes nodes so that they are appended in list order.
+		 */
+		private void pushAll(List<?> nodes) {
+			for (int i = nodes.size() - 1; i >= 0; i--) {
+				pending.push(nodes.get(i));
+			}
+		}
+	}
+}
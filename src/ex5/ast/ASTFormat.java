@@ -0,0 +1,57 @@
+package ex5.ast;
+
+/**
+ * The constants of the binary AST format shared by ASTWriter and ASTReader.
+ * <p>
+ * An encoded program is the magic number and the format version, the names of the token types
+ * in the writer's order, the names of the writer's name table in id order, and then the number
+ * of top-level statements followed by each statement. Every node is a tag byte followed by its
+ * fields, children included, in pre-order. Counts, name ids and token types are unsigned
+ * LEB128 varints; strings are a varint byte length followed by their UTF-8 bytes.
+ *
+ * @author galart27
+ * @author noam_wein
+ */
+final class ASTFormat {
+
+	/**
+	 * The first four bytes of every encoded program, "SJAS".
+	 */
+	static final int MAGIC = 0x534A4153;
+
+	/**
+	 * The current version of the format, bumped on every incompatible change.
+	 */
+	static final int VERSION = 1;
+
+	// Statements
+	static final int BLOCK = 1;
+	static final int IF_STATEMENT = 2;
+	static final int METHOD_ARGUMENT = 3;
+	static final int METHOD_CALL = 4;
+	static final int METHOD_DECLARATION = 5;
+	static final int RETURN_STATEMENT = 6;
+	static final int VARIABLE_ASSIGNMENT = 7;
+	static final int VARIABLE_DECLARATION = 8;
+	static final int WHILE_STATEMENT = 9;
+
+	// Expressions
+	static final int LITERAL_EXPRESSION = 16;
+	static final int VARIABLE_EXPRESSION = 17;
+	static final int LOGICAL_EXPRESSION = 18;
+
+	/**
+	 * The flag of a final variable declaration.
+	 */
+	static final int FINAL = 1;
+
+	/**
+	 * The flag of a variable declaration with an initializer.
+	 */
+	static final int INITIALIZED = 2;
+
+	/*
+	 * Constants class, not meant to be instantiated.
+	 */
+	private ASTFormat() {}
+}
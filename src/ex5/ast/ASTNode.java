@@ -8,6 +8,28 @@ package ex5.ast;
  */
 public abstract class ASTNode {
 
+	private int slot = -1;
+
+	/**
+	 * Returns what the interpreter's resolution pass bound the node to: for a variable, a
+	 * literal or a declaration, the frame slot its value is kept in, and for a method call or
+	 * declaration, the index of the method.
+	 *
+	 * @return the slot, or -1 if the node was not resolved
+	 */
+	public int getSlot() {
+		return slot;
+	}
+
+	/**
+	 * Binds the node to a slot, for the interpreter.
+	 *
+	 * @param slot the slot, in the interpreter's encoding
+	 */
+	public void setSlot(int slot) {
+		this.slot = slot;
+	}
+
 	/**
 	 * Returns a string representation of the AST node.
 	 *
@@ -0,0 +1,537 @@
+package ex5.ast;
+
+import ex5.ast.expressions.Expression;
+import ex5.ast.expressions.LiteralExpression;
+import ex5.ast.expressions.LogicalExpression;
+import ex5.ast.expressions.VariableExpression;
+import ex5.ast.statements.*;
+import ex5.lexer.NameTable;
+import ex5.lexer.SourceReader;
+import ex5.lexer.Token;
+import ex5.lexer.TokenType;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Rebuilds the statements encoded by ASTWriter.
+ * The reader decodes straight from the given buffer, typically a memory-mapped file, without
+ * copying it first; only names and literal values are turned into Strings, each name once.
+ * The identifier ids of the rebuilt statements refer to a new name table holding the encoded
+ * names in the same order, so they equal the ids the writer was given. The program can be
+ * rebuilt either as node objects or as an ASTArena, in both cases with an explicit stack of the
+ * open nodes instead of recursion, so that deeply nested programs cannot overflow the stack.
+ *
+ * @author galart27
+ * @author noam_wein
+ */
+public final class ASTReader {
+
+	/*
+	 * Stand-ins for a tag in readArena, when any statement or any expression may come next.
+	 */
+	private static final int ANY_STATEMENT = -1;
+	private static final int ANY_EXPRESSION = -2;
+
+	/*
+	 * A node of readProgram whose children are still being read: its fields, how many children
+	 * it has, and where the first of them is in the list of finished nodes. Entries are reused
+	 * for every node opened at the same depth, so that reading allocates only the nodes.
+	 */
+	private static final class Open {
+
+		private ASTArena.Kind kind;
+		private TokenType type;
+		private int flags;
+		private int id;
+		private int children;
+		private int start;
+
+		/*
+		 * Reuses the entry for a newly opened node.
+		 */
+		private void set(ASTArena.Kind kind, TokenType type, int flags, int id, int children) {
+			this.kind = kind;
+			this.type = type;
+			this.flags = flags;
+			this.id = id;
+			this.children = children;
+		}
+	}
+
+	private final ByteBuffer in;
+	private final TokenType[] types;
+	private final NameTable names = new NameTable();
+	private final String[] identifiers;
+	private byte[] scratch = new byte[64];
+
+	/**
+	 * Constructs an ASTReader over an encoded program, reading its header.
+	 *
+	 * @param bytes the encoded program, from its position to its limit
+	 * @throws MalformedASTException if the header is malformed or of another format version
+	 */
+	public ASTReader(ByteBuffer bytes) {
+		in = bytes.duplicate();
+		try {
+			if (in.remaining() < 5 || in.getInt() != ASTFormat.MAGIC) {
+				throw new MalformedASTException("Not an encoded AST");
+			}
+			int version = in.get() & 0xFF;
+			if (version != ASTFormat.VERSION) {
+				throw new MalformedASTException("Unsupported AST format version: " + version);
+			}
+
+			types = new TokenType[readCount()];
+			for (int i = 0; i < types.length; i++) {
+				var name = readString();
+				try {
+					types[i] = TokenType.valueOf(name);
+				} catch (IllegalArgumentException e) {
+					throw new MalformedASTException("Unknown token type: " + name);
+				}
+			}
+
+			identifiers = new String[readCount()];
+			for (int id = 0; id < identifiers.length; id++) {
+				identifiers[id] = readString();
+				if (names.intern(identifiers[id]) != id) {
+					throw new MalformedASTException("Duplicate name: " + identifiers[id]);
+				}
+			}
+		} catch (BufferUnderflowException e) {
+			throw new MalformedASTException("Truncated AST");
+		}
+	}
+
+	/**
+	 * Memory-maps an encoded program and constructs an ASTReader over it.
+	 *
+	 * @param file the file written by ASTWriter.write
+	 * @return a new ASTReader
+	 * @throws IOException           if the file cannot be read
+	 * @throws MalformedASTException if the header is malformed or of another format version
+	 */
+	public static ASTReader open(Path file) throws IOException {
+		return new ASTReader(SourceReader.mapBytes(file));
+	}
+
+	/**
+	 * Returns the table the identifier ids of the rebuilt statements refer to.
+	 *
+	 * @return the name table
+	 */
+	public NameTable getNames() {
+		return names;
+	}
+
+	/**
+	 * Rebuilds the encoded top-level statements.
+	 *
+	 * @return the statements, equal to the ones given to the writer
+	 * @throws MalformedASTException if the encoding is truncated or corrupt
+	 */
+	public List<Statement> readProgram() {
+		try {
+			int roots = readCount();
+			var statements = new ArrayList<Statement>(roots);
+
+			// The finished nodes whose parent is still open, in order, and the open nodes,
+			// innermost last
+			var done = new ArrayList<ASTNode>();
+			var open = new Open[16];
+			int depth = 0;
+			while (roots > 0 || depth > 0) {
+				var parent = depth > 0 ? open[depth - 1] : null;
+				int expected;
+				if (parent == null) {
+					expected = ANY_STATEMENT;
+					roots--;
+				}
+				else {
+					int left = parent.children - (done.size() - parent.start);
+					if (left == 0) {
+						var node = build(parent, done);
+						finish(node, --depth, done, statements);
+						continue;
+					}
+					expected = childTag(parent.kind, left);
+				}
+
+				if (depth == open.length) {
+					open = Arrays.copyOf(open, depth * 2);
+				}
+				if (open[depth] == null) {
+					open[depth] = new Open();
+				}
+				var node = readNode(expected, open[depth]);
+				if (node == null) {
+					open[depth++].start = done.size();
+				}
+				else {
+					finish(node, depth, done, statements);
+				}
+			}
+			if (in.hasRemaining()) {
+				throw new MalformedASTException("Trailing bytes after the AST");
+			}
+			return statements;
+		} catch (BufferUnderflowException e) {
+			throw new MalformedASTException("Truncated AST");
+		}
+	}
+
+	/**
+	 * Rebuilds the encoded program as an arena, straight from the encoding: no node objects are
+	 * created, and nesting is read with an explicit stack instead of recursion.
+	 *
+	 * @return the arena holding the program, equal to ASTArena.of the statements given to the
+	 * writer
+	 * @throws MalformedASTException if the encoding is truncated or corrupt
+	 */
+	public ASTArena readArena() {
+		try {
+			int roots = readCount();
+			// A node takes three to four bytes of the encoding
+			var arena = new ASTArena(names, in.remaining() / 3);
+
+			// The open nodes, innermost last, and the number of children each has left to read
+			var open = new int[16];
+			var left = new int[16];
+			int depth = 0;
+			while (roots > 0 || depth > 0) {
+				if (depth > 0 && left[depth - 1] == 0) {
+					arena.close(open[--depth]);
+					continue;
+				}
+
+				int expected;
+				if (depth == 0) {
+					expected = ANY_STATEMENT;
+					roots--;
+				}
+				else {
+					expected = childTag(arena.getKind(open[depth - 1]), left[depth - 1]--);
+				}
+
+				int children = readArenaNode(arena, expected);
+				if (children > 0) {
+					if (depth == open.length) {
+						open = Arrays.copyOf(open, depth * 2);
+						left = Arrays.copyOf(left, depth * 2);
+					}
+					open[depth] = arena.size() - 1;
+					left[depth++] = children;
+				}
+			}
+			if (in.hasRemaining()) {
+				throw new MalformedASTException("Trailing bytes after the AST");
+			}
+			return arena;
+		} catch (BufferUnderflowException e) {
+			throw new MalformedASTException("Truncated AST");
+		}
+	}
+
+	/*
+	 * Reads a node's tag and fields, but not its children, and appends it to the arena.
+	 * Returns the number of children that follow it.
+	 */
+	private int readArenaNode(ASTArena arena, int expected) {
+		int tag = readTag(expected);
+		return switch (tag) {
+			case ASTFormat.BLOCK -> {
+				arena.add(ASTArena.Kind.BLOCK, null, 0, 0);
+				yield readCount();
+			}
+			case ASTFormat.IF_STATEMENT -> {
+				arena.add(ASTArena.Kind.IF_STATEMENT, null, 0, 0);
+				yield 2;
+			}
+			case ASTFormat.METHOD_ARGUMENT -> {
+				var type = readType();
+				arena.add(ASTArena.Kind.METHOD_ARGUMENT, type, 0, readId());
+				yield 0;
+			}
+			case ASTFormat.METHOD_CALL -> {
+				arena.add(ASTArena.Kind.METHOD_CALL, null, 0, readId());
+				yield readCount();
+			}
+			case ASTFormat.METHOD_DECLARATION -> {
+				arena.add(ASTArena.Kind.METHOD_DECLARATION, null, 0, readId());
+				yield readCount() + 1;
+			}
+			case ASTFormat.RETURN_STATEMENT -> {
+				arena.add(ASTArena.Kind.RETURN_STATEMENT, null, 0, 0);
+				yield 0;
+			}
+			case ASTFormat.VARIABLE_ASSIGNMENT -> {
+				arena.add(ASTArena.Kind.VARIABLE_ASSIGNMENT, null, 0, readId());
+				yield 1;
+			}
+			case ASTFormat.VARIABLE_DECLARATION -> {
+				int flags = (in.get() & 0xFF) & (ASTFormat.FINAL | ASTFormat.INITIALIZED);
+				var type = readType();
+				arena.add(ASTArena.Kind.VARIABLE_DECLARATION, type, flags, readId());
+				yield (flags & ASTFormat.INITIALIZED) != 0 ? 1 : 0;
+			}
+			case ASTFormat.WHILE_STATEMENT -> {
+				arena.add(ASTArena.Kind.WHILE_STATEMENT, null, 0, 0);
+				yield 2;
+			}
+			case ASTFormat.LITERAL_EXPRESSION -> {
+				var type = readType();
+				int length = readVarint();
+				if (length > in.remaining()) {
+					throw new BufferUnderflowException();
+				}
+				int limit = in.limit();
+				arena.addLiteral(type, in.limit(in.position() + length));
+				in.limit(limit);
+				yield 0;
+			}
+			case ASTFormat.VARIABLE_EXPRESSION -> {
+				arena.add(ASTArena.Kind.VARIABLE_EXPRESSION, null, 0, readId());
+				yield 0;
+			}
+			case ASTFormat.LOGICAL_EXPRESSION -> {
+				arena.add(ASTArena.Kind.LOGICAL_EXPRESSION, readType(), 0, 0);
+				yield 2;
+			}
+			default -> throw invalidTag(expected, tag);
+		};
+	}
+
+	/*
+	 * Returns the tag expected of the next child of a node, given how many children it has left,
+	 * or ANY_STATEMENT or ANY_EXPRESSION.
+	 */
+	private static int childTag(ASTArena.Kind parent, int left) {
+		return switch (parent) {
+			case BLOCK -> ANY_STATEMENT;
+			case IF_STATEMENT, WHILE_STATEMENT -> left == 1 ? ASTFormat.BLOCK : ANY_EXPRESSION;
+			case METHOD_DECLARATION -> left == 1 ? ASTFormat.BLOCK : ASTFormat.METHOD_ARGUMENT;
+			default -> ANY_EXPRESSION;
+		};
+	}
+
+	/*
+	 * Reads a node's tag and fields. Returns the node if it has no children, or else sets next to
+	 * it and returns null, for readProgram to build it once its children are read.
+	 */
+	private ASTNode readNode(int expected, Open next) {
+		int tag = readTag(expected);
+		switch (tag) {
+			case ASTFormat.BLOCK -> next.set(ASTArena.Kind.BLOCK, null, 0, 0, readCount());
+			case ASTFormat.IF_STATEMENT -> next.set(ASTArena.Kind.IF_STATEMENT, null, 0, 0, 2);
+			case ASTFormat.METHOD_ARGUMENT -> {
+				var type = readType();
+				int id = readId();
+				return new MethodArgument(type, identifiers[id], id);
+			}
+			case ASTFormat.METHOD_CALL -> {
+				int id = readId();
+				next.set(ASTArena.Kind.METHOD_CALL, null, 0, id, readCount());
+			}
+			case ASTFormat.METHOD_DECLARATION -> {
+				int id = readId();
+				next.set(ASTArena.Kind.METHOD_DECLARATION, null, 0, id, readCount() + 1);
+			}
+			case ASTFormat.RETURN_STATEMENT -> {
+				return new ReturnStatement();
+			}
+			case ASTFormat.VARIABLE_ASSIGNMENT -> {
+				int id = readId();
+				next.set(ASTArena.Kind.VARIABLE_ASSIGNMENT, null, 0, id, 1);
+			}
+			case ASTFormat.VARIABLE_DECLARATION -> {
+				int flags = in.get() & 0xFF;
+				var type = readType();
+				int id = readId();
+				if ((flags & ASTFormat.INITIALIZED) == 0) {
+					return new VariableDeclaration(type, identifiers[id], id, null,
+					                               (flags & ASTFormat.FINAL) != 0);
+				}
+				next.set(ASTArena.Kind.VARIABLE_DECLARATION, type, flags, id, 1);
+			}
+			case ASTFormat.WHILE_STATEMENT -> next.set(ASTArena.Kind.WHILE_STATEMENT, null, 0, 0,
+			                                           2);
+			case ASTFormat.LITERAL_EXPRESSION -> {
+				var type = readType();
+				return new LiteralExpression(new Token(type, readString()));
+			}
+			case ASTFormat.VARIABLE_EXPRESSION -> {
+				int id = readId();
+				return new VariableExpression(identifiers[id], id);
+			}
+			case ASTFormat.LOGICAL_EXPRESSION -> next.set(ASTArena.Kind.LOGICAL_EXPRESSION,
+			                                              readType(), 0, 0, 2);
+			default -> throw invalidTag(expected, tag);
+		}
+		return null;
+	}
+
+	/*
+	 * Builds an opened node from its children, all of which were read, and removes them from the
+	 * finished nodes.
+	 */
+	private ASTNode build(Open node, ArrayList<ASTNode> done) {
+		int first = node.start;
+		var built = switch (node.kind) {
+			case BLOCK -> {
+				var statements = new ArrayList<Statement>(node.children);
+				for (int i = first; i < done.size(); i++) {
+					statements.add((Statement) done.get(i));
+				}
+				yield new Block(statements);
+			}
+			case IF_STATEMENT -> new IfStatement((Expression) done.get(first),
+			                                     (Block) done.get(first + 1));
+			case METHOD_CALL -> {
+				var arguments = new ArrayList<Expression>(node.children);
+				for (int i = first; i < done.size(); i++) {
+					arguments.add((Expression) done.get(i));
+				}
+				yield new MethodCall(identifiers[node.id], node.id, arguments);
+			}
+			case METHOD_DECLARATION -> {
+				int body = done.size() - 1;
+				var arguments = new ArrayList<MethodArgument>(node.children - 1);
+				for (int i = first; i < body; i++) {
+					arguments.add((MethodArgument) done.get(i));
+				}
+				yield new MethodDeclaration(identifiers[node.id], node.id, arguments,
+				                            (Block) done.get(body));
+			}
+			case VARIABLE_ASSIGNMENT -> new VariableAssignment(identifiers[node.id], node.id,
+			                                                   (Expression) done.get(first));
+			case VARIABLE_DECLARATION -> new VariableDeclaration(
+					node.type, identifiers[node.id], node.id, (Expression) done.get(first),
+					(node.flags & ASTFormat.FINAL) != 0);
+			case WHILE_STATEMENT -> new WhileStatement((Expression) done.get(first),
+			                                           (Block) done.get(first + 1));
+			case LOGICAL_EXPRESSION -> new LogicalExpression((Expression) done.get(first),
+			                                                 node.type,
+			                                                 (Expression) done.get(first + 1));
+			default -> throw new IllegalStateException("Opened a leaf: " + node.kind);
+		};
+		for (int i = done.size() - 1; i >= first; i--) {
+			done.remove(i);
+		}
+		return built;
+	}
+
+	/*
+	 * Hands a finished node to its parent, or to the program if it is a top-level statement.
+	 */
+	private static void finish(ASTNode node, int depth, List<ASTNode> done,
+	                           List<Statement> statements) {
+		if (depth == 0) {
+			statements.add((Statement) node);
+		}
+		else {
+			done.add(node);
+		}
+	}
+
+	/*
+	 * Reads a tag byte, which must be the expected one, or any statement or expression tag.
+	 */
+	private int readTag(int expected) {
+		int tag = in.get() & 0xFF;
+		if (expected >= 0 && tag != expected) {
+			throw new MalformedASTException("Expected tag " + expected + " but got " + tag);
+		}
+		if ((tag >= ASTFormat.LITERAL_EXPRESSION) != (expected == ANY_EXPRESSION)) {
+			throw invalidTag(expected, tag);
+		}
+		return tag;
+	}
+
+	/*
+	 * Returns the exception for a tag that is not a node of the expected kind.
+	 */
+	private static MalformedASTException invalidTag(int expected, int tag) {
+		return new MalformedASTException((expected == ANY_EXPRESSION ?
+		                                  "Invalid expression tag: " : "Invalid statement tag: ") +
+		                                 tag);
+	}
+
+	/*
+	 * Reads a token type by its index in the writer's token types.
+	 */
+	private TokenType readType() {
+		int index = readVarint();
+		if (index >= types.length) {
+			throw new MalformedASTException("Invalid token type index: " + index);
+		}
+		return types[index];
+	}
+
+	/*
+	 * Reads a name id.
+	 */
+	private int readId() {
+		int id = readVarint();
+		if (id >= identifiers.length) {
+			throw new MalformedASTException("Invalid name id: " + id);
+		}
+		return id;
+	}
+
+	/*
+	 * Reads a count of nodes or strings, which cannot exceed the bytes left since every one of
+	 * them takes at least one byte.
+	 */
+	private int readCount() {
+		int count = readVarint();
+		if (count > in.remaining()) {
+			throw new MalformedASTException("Invalid count: " + count);
+		}
+		return count;
+	}
+
+	/*
+	 * Reads a string as its UTF-8 byte length and bytes.
+	 */
+	private String readString() {
+		int length = readVarint();
+		if (length > in.remaining()) {
+			throw new BufferUnderflowException();
+		}
+		if (in.hasArray()) {
+			int offset = in.arrayOffset() + in.position();
+			in.position(in.position() + length);
+			return new String(in.array(), offset, length, StandardCharsets.UTF_8);
+		}
+		if (length > scratch.length) {
+			scratch = new byte[Math.max(length, scratch.length * 2)];
+		}
+		in.get(scratch, 0, length);
+		return new String(scratch, 0, length, StandardCharsets.UTF_8);
+	}
+
+	/*
+	 * Reads an unsigned LEB128 varint of at most 31 bits.
+	 */
+	private int readVarint() {
+		int value = 0;
+		for (int shift = 0; shift < 35; shift += 7) {
+			int b = in.get();
+			value |= (b & 0x7F) << shift;
+			if (b >= 0) {
+				if (value < 0) {
+					break;
+				}
+				return value;
+			}
+		}
+		throw new MalformedASTException("Invalid varint");
+	}
+}
@@ -0,0 +1,316 @@
+package ex5.ast;
+
+import ex5.ast.expressions.Expression;
+import ex5.ast.expressions.LiteralExpression;
+import ex5.ast.expressions.LogicalExpression;
+import ex5.ast.expressions.VariableExpression;
+import ex5.ast.statements.*;
+import ex5.lexer.NameTable;
+import ex5.lexer.TokenType;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Encodes the statements returned by Parser.parseProgram in the binary AST format, so that
+ * they can be read back by ASTReader without lexing and parsing the source again.
+ * See ASTFormat for the layout. Nodes are encoded in pre-order with an explicit stack of the
+ * pending nodes instead of recursion, so that deeply nested programs cannot overflow the stack.
+ *
+ * @author galart27
+ * @author noam_wein
+ */
+public final class ASTWriter implements ASTVisitor<Void> {
+
+	private byte[] bytes = new byte[4096];
+	private int size = 0;
+
+	/*
+	 * The statements and expressions left to encode, next first.
+	 */
+	private final ArrayDeque<ASTNode> pending = new ArrayDeque<>();
+
+	/*
+	 * Constructs an ASTWriter with an empty output.
+	 */
+	private ASTWriter() {}
+
+	/**
+	 * Encodes a program.
+	 *
+	 * @param statements the program's top-level statements
+	 * @param names      the name table the identifier ids of the statements refer to
+	 * @return the encoded program
+	 */
+	public static byte[] encode(List<? extends Statement> statements, NameTable names) {
+		var writer = new ASTWriter();
+		writer.writeHeader(names);
+		writer.writeVarint(statements.size());
+		writer.pushAll(statements);
+		while (!writer.pending.isEmpty()) {
+			var node = writer.pending.pop();
+			if (node instanceof Statement statement) {
+				statement.accept(writer);
+			}
+			else {
+				((Expression) node).accept(writer);
+			}
+		}
+		return Arrays.copyOf(writer.bytes, writer.size);
+	}
+
+	/**
+	 * Encodes a program into a file, replacing it atomically.
+	 *
+	 * @param statements the program's top-level statements
+	 * @param names      the name table the identifier ids of the statements refer to
+	 * @param file       the file to write
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void write(List<? extends Statement> statements, NameTable names, Path file)
+			throws IOException {
+		var parent = file.toAbsolutePath().getParent();
+		var temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+		try {
+			Files.write(temp, encode(statements, names));
+			Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE,
+			           StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	/**
+	 * Encodes a block, its statements pending.
+	 *
+	 * @param bl the block
+	 */
+	@Override
+	public void visitBlock(Block bl) {
+		writeByte(ASTFormat.BLOCK);
+		writeVarint(bl.getStatements().size());
+		pushAll(bl.getStatements());
+	}
+
+	/**
+	 * Encodes an if statement, its condition and body pending.
+	 *
+	 * @param is the if statement
+	 */
+	@Override
+	public void visitIfStatement(IfStatement is) {
+		writeByte(ASTFormat.IF_STATEMENT);
+		pending.push(is.getBody());
+		pending.push(is.getCondition());
+	}
+
+	/**
+	 * Encodes a method argument.
+	 *
+	 * @param ma the method argument
+	 */
+	@Override
+	public void visitMethodArgument(MethodArgument ma) {
+		writeByte(ASTFormat.METHOD_ARGUMENT);
+		writeVarint(ma.getType().ordinal());
+		writeVarint(ma.getId());
+	}
+
+	/**
+	 * Encodes a method call, its arguments pending.
+	 *
+	 * @param mc the method call
+	 */
+	@Override
+	public void visitMethodCall(MethodCall mc) {
+		writeByte(ASTFormat.METHOD_CALL);
+		writeVarint(mc.getId());
+		writeVarint(mc.getArguments().size());
+		pushAll(mc.getArguments());
+	}
+
+	/**
+	 * Encodes a method declaration, its arguments and body pending.
+	 *
+	 * @param md the method declaration
+	 */
+	@Override
+	public void visitMethodDeclaration(MethodDeclaration md) {
+		writeByte(ASTFormat.METHOD_DECLARATION);
+		writeVarint(md.getId());
+		writeVarint(md.getArguments().size());
+		pending.push(md.getBody());
+		pushAll(md.getArguments());
+	}
+
+	/**
+	 * Encodes a return statement.
+	 *
+	 * @param rs the return statement
+	 */
+	@Override
+	public void visitReturnStatement(ReturnStatement rs) {
+		writeByte(ASTFormat.RETURN_STATEMENT);
+	}
+
+	/**
+	 * Encodes a variable assignment, its expression pending.
+	 *
+	 * @param va the variable assignment
+	 */
+	@Override
+	public void visitVariableAssignment(VariableAssignment va) {
+		writeByte(ASTFormat.VARIABLE_ASSIGNMENT);
+		writeVarint(va.getId());
+		pending.push(va.getExpression());
+	}
+
+	/**
+	 * Encodes a variable declaration, its initializer pending if it has one.
+	 *
+	 * @param vd the variable declaration
+	 */
+	@Override
+	public void visitVariableDeclaration(VariableDeclaration vd) {
+		writeByte(ASTFormat.VARIABLE_DECLARATION);
+		int flags = (vd.isFinal() ? ASTFormat.FINAL : 0) |
+		            (vd.getInitializer() != null ? ASTFormat.INITIALIZED : 0);
+		writeByte(flags);
+		writeVarint(vd.getType().ordinal());
+		writeVarint(vd.getId());
+		if (vd.getInitializer() != null) {
+			pending.push(vd.getInitializer());
+		}
+	}
+
+	/**
+	 * Encodes a while statement, its condition and body pending.
+	 *
+	 * @param ws the while statement
+	 */
+	@Override
+	public void visitWhileStatement(WhileStatement ws) {
+		writeByte(ASTFormat.WHILE_STATEMENT);
+		pending.push(ws.getBody());
+		pending.push(ws.getCondition());
+	}
+
+	/**
+	 * Encodes a literal expression, with its token type and value.
+	 *
+	 * @param le the literal expression
+	 * @return null
+	 */
+	@Override
+	public Void visitLiteralExpression(LiteralExpression le) {
+		writeByte(ASTFormat.LITERAL_EXPRESSION);
+		writeVarint(le.getLiteral().getType().ordinal());
+		writeString(le.getLiteral().getValue());
+		return null;
+	}
+
+	/**
+	 * Encodes a variable expression.
+	 *
+	 * @param ve the variable expression
+	 * @return null
+	 */
+	@Override
+	public Void visitVariableExpression(VariableExpression ve) {
+		writeByte(ASTFormat.VARIABLE_EXPRESSION);
+		writeVarint(ve.getId());
+		return null;
+	}
+
+	/**
+	 * Encodes a logical expression and its operator, its operands pending.
+	 *
+	 * @param le the logical expression
+	 * @return null
+	 */
+	@Override
+	public Void visitLogicalExpression(LogicalExpression le) {
+		writeByte(ASTFormat.LOGICAL_EXPRESSION);
+		writeVarint(le.getOp().ordinal());
+		pending.push(le.getRight());
+		pending.push(le.getLeft());
+		return null;
+	}
+
+	/*
+	 * Pushes nodes so that they are encoded in list order.
+	 */
+	private void pushAll(List<? extends ASTNode> nodes) {
+		for (int i = nodes.size() - 1; i >= 0; i--) {
+			pending.push(nodes.get(i));
+		}
+	}
+
+	/*
+	 * Writes the magic number, the version, the token types and the names.
+	 */
+	private void writeHeader(NameTable names) {
+		int magic = ASTFormat.MAGIC;
+		for (int shift = 24; shift >= 0; shift -= 8) {
+			writeByte(magic >>> shift);
+		}
+		writeByte(ASTFormat.VERSION);
+
+		var types = TokenType.values();
+		writeVarint(types.length);
+		for (var type : types) {
+			writeString(type.name());
+		}
+
+		writeVarint(names.size());
+		for (int id = 0; id < names.size(); id++) {
+			writeString(names.nameOf(id));
+		}
+	}
+
+	/*
+	 * Writes a string as its UTF-8 byte length and bytes.
+	 */
+	private void writeString(String value) {
+		var utf8 = value.getBytes(StandardCharsets.UTF_8);
+		writeVarint(utf8.length);
+		ensureCapacity(utf8.length);
+		System.arraycopy(utf8, 0, bytes, size, utf8.length);
+		size += utf8.length;
+	}
+
+	/*
+	 * Writes a non-negative int as an unsigned LEB128 varint.
+	 */
+	private void writeVarint(int value) {
+		ensureCapacity(5);
+		while ((value & ~0x7F) != 0) {
+			bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		bytes[size++] = (byte) value;
+	}
+
+	/*
+	 * Writes the low 8 bits of value.
+	 */
+	private void writeByte(int value) {
+		ensureCapacity(1);
+		bytes[size++] = (byte) value;
+	}
+
+	/*
+	 * Grows the output so that it fits count more bytes.
+	 */
+	private void ensureCapacity(int count) {
+		if (size + count > bytes.length) {
+			bytes = Arrays.copyOf(bytes, Math.max(size + count, bytes.length * 2));
+		}
+	}
+}
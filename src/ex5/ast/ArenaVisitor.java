@@ -0,0 +1,39 @@
+package ex5.ast;
+
+/**
+ * An interface for visiting the nodes of an ASTArena, the counterpart of ASTVisitor for the flat
+ * representation: every method is given the arena and the index of the node instead of a node
+ * object, and reads the node's fields and children through the arena.
+ *
+ * @param <R> the return type of the expression visit methods
+ * @author galart27
+ * @author noam_wein
+ */
+public interface ArenaVisitor<R> {
+
+	// Statements
+	void visitBlock(ASTArena arena, int node);
+
+	void visitIfStatement(ASTArena arena, int node);
+
+	void visitMethodArgument(ASTArena arena, int node);
+
+	void visitMethodCall(ASTArena arena, int node);
+
+	void visitMethodDeclaration(ASTArena arena, int node);
+
+	void visitReturnStatement(ASTArena arena, int node);
+
+	void visitVariableAssignment(ASTArena arena, int node);
+
+	void visitVariableDeclaration(ASTArena arena, int node);
+
+	void visitWhileStatement(ASTArena arena, int node);
+
+	// Expressions
+	R visitLiteralExpression(ASTArena arena, int node);
+
+	R visitVariableExpression(ASTArena arena, int node);
+
+	R visitLogicalExpression(ASTArena arena, int node);
+}
@@ -0,0 +1,20 @@
+package ex5.ast;
+
+/**
+ * An exception thrown when reading an encoded AST that is truncated, corrupt or written by an
+ * incompatible version of the format.
+ *
+ * @author galart27
+ * @author noam_wein
+ */
+public class MalformedASTException extends RuntimeException {
+
+	/**
+	 * Constructs a MalformedASTException with the given message.
+	 *
+	 * @param message the exception message
+	 */
+	public MalformedASTException(String message) {
+		super(message);
+	}
+}
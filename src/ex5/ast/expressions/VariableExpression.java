@@ -11,14 +11,17 @@ import ex5.ast.ASTVisitor;
 public class VariableExpression extends Expression {
 
 	private final String identifier;
+	private final int id;
 
 	/**
 	 * Constructs a VariableExpression with the given identifier.
 	 *
 	 * @param identifier the name of the variable
+	 * @param id         the id of the name in the lexer's name table
 	 */
-	public VariableExpression(String identifier) {
+	public VariableExpression(String identifier, int id) {
 		this.identifier = identifier;
+		this.id = id;
 	}
 
 	/**
@@ -30,6 +33,15 @@ public class VariableExpression extends Expression {
 		return identifier;
 	}
 
+	/**
+	 * Returns the id of the variable name in the lexer's name table.
+	 *
+	 * @return the name id
+	 */
+	public int getId() {
+		return id;
+	}
+
 	/**
 	 * Accepts a visitor that implements the ASTVisitor interface.
 	 *
@@ -13,16 +13,19 @@ public class MethodArgument extends Statement {
 
 	private final TokenType type;
 	private final String identifier;
+	private final int id;
 
 	/**
 	 * Constructs a MethodArgument with the specified type and identifier.
 	 *
 	 * @param type       the type of the argument
 	 * @param identifier the name of the argument
+	 * @param id         the id of the name in the lexer's name table
 	 */
-	public MethodArgument(TokenType type, String identifier) {
+	public MethodArgument(TokenType type, String identifier, int id) {
 		this.type = type;
 		this.identifier = identifier;
+		this.id = id;
 	}
 
 	/**
@@ -43,6 +46,15 @@ public class MethodArgument extends Statement {
 		return identifier;
 	}
 
+	/**
+	 * Returns the id of the argument name in the lexer's name table.
+	 *
+	 * @return the name id
+	 */
+	public int getId() {
+		return id;
+	}
+
 	/**
 	 * Accepts a visitor to process this method argument.
 	 *
@@ -14,16 +14,19 @@ import java.util.List;
 public class MethodCall extends Statement {
 
 	private final String identifier;
+	private final int id;
 	private final List<Expression> arguments;
 
 	/**
 	 * Constructs a MethodCall with the given method name and arguments.
 	 *
 	 * @param methodName the name of the method being called
+	 * @param id         the id of the name in the lexer's name table
 	 * @param arguments  the list of argument expressions
 	 */
-	public MethodCall(String methodName, List<Expression> arguments) {
+	public MethodCall(String methodName, int id, List<Expression> arguments) {
 		this.identifier = methodName;
+		this.id = id;
 		this.arguments = arguments;
 	}
 
@@ -36,6 +39,15 @@ public class MethodCall extends Statement {
 		return identifier;
 	}
 
+	/**
+	 * Returns the id of the method name in the lexer's name table.
+	 *
+	 * @return the name id
+	 */
+	public int getId() {
+		return id;
+	}
+
 	/**
 	 * Returns the list of argument expressions.
 	 *
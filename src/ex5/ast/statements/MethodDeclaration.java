@@ -13,6 +13,7 @@ import java.util.List;
 public class MethodDeclaration extends Statement {
 
 	private final String identifier;
+	private final int id;
 	private final List<MethodArgument> arguments;
 	private final Block body;
 
@@ -20,11 +21,14 @@ public class MethodDeclaration extends Statement {
 	 * Constructs a MethodDeclaration with the given identifier, arguments, and body.
 	 *
 	 * @param identifier The name of the method.
+	 * @param id         The id of the name in the lexer's name table.
 	 * @param arguments  The list of method arguments.
 	 * @param body       The body of the method as a Block.
 	 */
-	public MethodDeclaration(String identifier, List<MethodArgument> arguments, Block body) {
+	public MethodDeclaration(String identifier, int id, List<MethodArgument> arguments,
+	                         Block body) {
 		this.identifier = identifier;
+		this.id = id;
 		this.arguments = arguments;
 		this.body = body;
 	}
@@ -38,6 +42,15 @@ public class MethodDeclaration extends Statement {
 		return identifier;
 	}
 
+	/**
+	 * Returns the id of the method name in the lexer's name table.
+	 *
+	 * @return The name id.
+	 */
+	public int getId() {
+		return id;
+	}
+
 	/**
 	 * Returns the list of method arguments.
 	 *
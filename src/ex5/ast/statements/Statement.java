@@ -11,6 +11,27 @@ import ex5.ast.ASTVisitor;
  */
 public abstract class Statement extends ASTNode {
 
+	private int position = -1;
+
+	/**
+	 * Returns where the statement starts in the source text. The position is set by the parser;
+	 * statements read back from a binary AST do not have one.
+	 *
+	 * @return the offset of the statement's first token, or -1 if it is not known
+	 */
+	public int getPosition() {
+		return position;
+	}
+
+	/**
+	 * Sets where the statement starts in the source text.
+	 *
+	 * @param position the offset of the statement's first token, or -1 if it is not known
+	 */
+	public void setPosition(int position) {
+		this.position = position;
+	}
+
 	/**
 	 * Accepts a visitor that implements the ASTVisitor interface.
 	 *
@@ -13,16 +13,19 @@ import ex5.ast.expressions.Expression;
 public class VariableAssignment extends Statement {
 
 	private final String identifier;
+	private final int id;
 	private final Expression expression;
 
 	/**
 	 * Constructs a VariableAssignment with the given identifier and expression.
 	 *
 	 * @param identifier the name of the variable being assigned
+	 * @param id         the id of the name in the lexer's name table
 	 * @param expression the expression whose value is assigned to the variable
 	 */
-	public VariableAssignment(String identifier, Expression expression) {
+	public VariableAssignment(String identifier, int id, Expression expression) {
 		this.identifier = identifier;
+		this.id = id;
 		this.expression = expression;
 	}
 
@@ -35,6 +38,15 @@ public class VariableAssignment extends Statement {
 		return identifier;
 	}
 
+	/**
+	 * Returns the id of the variable name in the lexer's name table.
+	 *
+	 * @return the name id
+	 */
+	public int getId() {
+		return id;
+	}
+
 	/**
 	 * Returns the expression whose value is assigned to the variable.
 	 *
@@ -14,6 +14,7 @@ public class VariableDeclaration extends Statement {
 
 	private final TokenType type;
 	private final String identifier;
+	private final int id;
 	private final Expression initializer; // may be null
 	private final boolean isFinal;
 
@@ -22,17 +23,20 @@ public class VariableDeclaration extends Statement {
 	 *
 	 * @param type        The data type of the variable.
 	 * @param identifier  The name of the variable.
+	 * @param id          The id of the name in the lexer's name table.
 	 * @param initializer The expression assigned to the variable (may be null).
 	 * @param isFinal     Indicates if the variable is declared as final.
 	 */
 	public VariableDeclaration(
 			TokenType type,
 			String identifier,
+			int id,
 			Expression initializer,
 			boolean isFinal
 	) {
 		this.type = type;
 		this.identifier = identifier;
+		this.id = id;
 		this.initializer = initializer;
 		this.isFinal = isFinal;
 	}
@@ -55,6 +59,15 @@ public class VariableDeclaration extends Statement {
 		return identifier;
 	}
 
+	/**
+	 * Gets the id of the variable name in the lexer's name table.
+	 *
+	 * @return The name id.
+	 */
+	public int getId() {
+		return id;
+	}
+
 	/**
 	 * Gets the initializer expression of the variable.
 	 *
@@ -0,0 +1,502 @@
+package ex5.interpreter;
+
+import ex5.ast.ASTVisitor;
+import ex5.ast.expressions.Expression;
+import ex5.ast.expressions.LiteralExpression;
+import ex5.ast.expressions.LogicalExpression;
+import ex5.ast.expressions.VariableExpression;
+import ex5.ast.statements.*;
+import ex5.interpreter.CodeWriter.Label;
+import ex5.lexer.TokenType;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+import static ex5.interpreter.CodeWriter.*;
+
+/**
+ * Compiles a resolved program to a class of JVM bytecode, for CompiledProgram to load.
+ * Every global becomes a static field and every method a static method with the same name,
+ * whose locals are JVM locals at the slots the Resolver gave them. The globals are initialized
+ * by a static method of their own, which gives every field its default value first.
+ * Values are converted like the Interpreter converts them, without branching, so that the code
+ * only branches for if and while statements, and conditions jump straight to where the
+ * operands of && and || lead instead of computing their value.
+ * Like the other passes, nested blocks and logical expressions are compiled with explicit
+ * stacks instead of recursion.
+ *
+ * @author galart27
+ * @author noam_wein
+ */
+final class BytecodeCompiler implements ASTVisitor<Integer> {
+
+	/**
+	 * The name of the method initializing the globals, which no Sjavac method can have.
+	 */
+	static final String INITIALIZER = "$initialize";
+
+	/*
+	 * The field descriptors of the types, indexed by type code.
+	 */
+	private static final String[] DESCRIPTORS = {"I", "D", "Z", "C", "Ljava/lang/String;"};
+
+	/*
+	 * A branch back to the condition of a while statement, compiled after its body.
+	 */
+	private record Loop(Label condition) {}
+
+	/*
+	 * A branch taken when an operand of a condition has the given value.
+	 */
+	private record Branch(Expression operand, boolean when, Label target) {}
+
+	private final Resolver resolver;
+	private final Frame constants;
+	private final ClassWriter cw;
+	private final String[][] globalNames = new String[Frame.TYPES][];
+	private final String[] methodDescriptors;
+
+	/*
+	 * While a method is compiled: its code, and the first JVM local of each type.
+	 */
+	private CodeWriter code;
+	private final int[] localBases = new int[Frame.TYPES];
+
+	/*
+	 * The statements, labels and loop branches left to compile in the method, next first.
+	 */
+	private final ArrayDeque<Object> pending = new ArrayDeque<>();
+
+	/*
+	 * The branches to compile after the innermost operand of a condition, innermost first.
+	 */
+	private final List<Object> after = new ArrayList<>();
+
+	/**
+	 * Constructs a BytecodeCompiler for a resolved program.
+	 *
+	 * @param resolver the resolution of the program
+	 * @param name     the internal name of the class to compile it to
+	 */
+	BytecodeCompiler(Resolver resolver, String name) {
+		this.resolver = resolver;
+		constants = resolver.createConstants();
+		cw = new ClassWriter(name);
+		for (int type = 0; type < Frame.TYPES; type++) {
+			globalNames[type] = new String[resolver.getGlobalSizes()[type]];
+		}
+		resolver.getGlobalSlots().forEach(
+				(global, slot) -> globalNames[Frame.type(slot)][Frame.index(slot)] = global);
+		var methods = resolver.getMethods();
+		methodDescriptors = new String[methods.size()];
+		for (int i = 0; i < methods.size(); i++) {
+			var descriptor = new StringBuilder("(");
+			for (var argument : methods.get(i).getArguments()) {
+				descriptor.append(DESCRIPTORS[Frame.typeCode(argument.getType())]);
+			}
+			methodDescriptors[i] = descriptor.append(")V").toString();
+		}
+	}
+
+	/**
+	 * Compiles the program.
+	 *
+	 * @return the bytes of the class file
+	 * @throws ExecutionException if a method or the program is too large for a class file
+	 */
+	byte[] compile() {
+		for (int type = 0; type < Frame.TYPES; type++) {
+			for (var global : globalNames[type]) {
+				cw.addField(global, DESCRIPTORS[type]);
+			}
+		}
+		compileInitializer();
+		var methods = resolver.getMethods();
+		for (int i = 0; i < methods.size(); i++) {
+			compileMethod(i, methods.get(i));
+		}
+		return cw.toByteArray();
+	}
+
+	/**
+	 * Compiles the statements of a block in place. The bodies of methods, if and while
+	 * statements are compiled by the visit methods of their owners instead.
+	 *
+	 * @param bl The block to compile.
+	 */
+	@Override
+	public void visitBlock(Block bl) {
+		pushStatements(bl.getStatements());
+	}
+
+	/**
+	 * Compiles an if statement: its condition jumps past its body when false.
+	 *
+	 * @param is The if statement to compile.
+	 */
+	@Override
+	public void visitIfStatement(IfStatement is) {
+		var end = new Label();
+		compileCondition(is.getCondition(), false, end);
+		pending.push(end);
+		pushStatements(is.getBody().getStatements());
+	}
+
+	/**
+	 * Compiles nothing: parameters are copied to their slots when the method starts.
+	 *
+	 * @param ma The method argument.
+	 */
+	@Override
+	public void visitMethodArgument(MethodArgument ma) {}
+
+	/**
+	 * Compiles a method call: pushes the arguments converted to the types of the parameters,
+	 * then invokes the method.
+	 *
+	 * @param mc The method call to compile.
+	 */
+	@Override
+	public void visitMethodCall(MethodCall mc) {
+		var md = resolver.getMethods().get(mc.getSlot());
+		var arguments = mc.getArguments();
+		int width = 0;
+		for (int i = 0; i < arguments.size(); i++) {
+			int type = Frame.type(md.getArguments().get(i).getSlot());
+			push(arguments.get(i), type);
+			width += CodeWriter.width(type);
+		}
+		code.op2(INVOKESTATIC, cw.method(md.getIdentifier(), methodDescriptors[mc.getSlot()]),
+		         -width);
+	}
+
+	/**
+	 * Compiles nothing: methods are compiled by compile.
+	 *
+	 * @param md The method declaration.
+	 */
+	@Override
+	public void visitMethodDeclaration(MethodDeclaration md) {}
+
+	/**
+	 * Compiles a return statement.
+	 *
+	 * @param rs The return statement to compile.
+	 */
+	@Override
+	public void visitReturnStatement(ReturnStatement rs) {
+		code.op(RETURN, 0);
+	}
+
+	/**
+	 * Compiles an assignment of the value of an expression to a variable.
+	 *
+	 * @param va The variable assignment to compile.
+	 */
+	@Override
+	public void visitVariableAssignment(VariableAssignment va) {
+		push(va.getExpression(), Frame.type(va.getSlot()));
+		store(va.getSlot());
+	}
+
+	/**
+	 * Compiles the assignment of the initializer of a declared variable, or of the default value
+	 * of its type if it has none, since its slot may still hold a variable of a block that ended.
+	 *
+	 * @param vs The variable declaration to compile.
+	 */
+	@Override
+	public void visitVariableDeclaration(VariableDeclaration vs) {
+		int type = Frame.type(vs.getSlot());
+		if (vs.getInitializer() != null) {
+			push(vs.getInitializer(), type);
+		}
+		else {
+			pushDefault(type);
+		}
+		store(vs.getSlot());
+	}
+
+	/**
+	 * Compiles a while statement: its condition jumps past its body when false, and the end of
+	 * its body jumps back to its condition.
+	 *
+	 * @param ws The while statement to compile.
+	 */
+	@Override
+	public void visitWhileStatement(WhileStatement ws) {
+		var condition = new Label();
+		var end = new Label();
+		code.place(condition);
+		compileCondition(ws.getCondition(), false, end);
+		pending.push(end);
+		pending.push(new Loop(condition));
+		pushStatements(ws.getBody().getStatements());
+	}
+
+	/**
+	 * Pushes the value of a literal.
+	 *
+	 * @param le The literal expression to compile.
+	 * @return The type code of the value.
+	 */
+	@Override
+	public Integer visitLiteralExpression(LiteralExpression le) {
+		int index = Frame.index(le.getSlot());
+		int type = Frame.type(le.getSlot());
+		switch (type) {
+			case Frame.INT -> code.pushInt(constants.ints[index], cw);
+			case Frame.DOUBLE -> {
+				double value = constants.doubles[index];
+				if (Double.doubleToRawLongBits(value) == 0 || value == 1) {
+					code.op(value == 0 ? DCONST_0 : DCONST_1, 2);
+				}
+				else {
+					code.op2(LDC2_W, cw.doubleEntry(value), 2);
+				}
+			}
+			case Frame.BOOLEAN -> code.pushInt(constants.booleans[index] ? 1 : 0, cw);
+			case Frame.CHAR -> code.pushInt(constants.chars[index], cw);
+			default -> code.pushConstant(cw.string(constants.strings[index]));
+		}
+		return type;
+	}
+
+	/**
+	 * Pushes the value of a variable.
+	 *
+	 * @param ve The variable expression to compile.
+	 * @return The type code of the value.
+	 */
+	@Override
+	public Integer visitVariableExpression(VariableExpression ve) {
+		int slot = ve.getSlot();
+		int type = Frame.type(slot);
+		if (Frame.kind(slot) == Frame.GLOBAL) {
+			code.op2(GETSTATIC, field(slot), CodeWriter.width(type));
+		}
+		else {
+			code.load(type, local(slot));
+		}
+		return type;
+	}
+
+	/**
+	 * Fails: logical expressions are only conditions, which are compiled to branches.
+	 *
+	 * @param le The logical expression.
+	 * @return Nothing.
+	 * @throws ExecutionException always
+	 */
+	@Override
+	public Integer visitLogicalExpression(LogicalExpression le) {
+		throw new ExecutionException("A logical expression can only be a condition");
+	}
+
+	/*
+	 * Compiles the method initializing the globals, which has no locals.
+	 */
+	private void compileInitializer() {
+		code = new CodeWriter(new int[0], 0);
+		for (int type = 0; type < Frame.TYPES; type++) {
+			for (int i = 0; i < globalNames[type].length; i++) {
+				pushDefault(type);
+				store(Frame.slot(type, Frame.GLOBAL, i));
+			}
+		}
+		compileStatements(resolver.getGlobalStatements());
+		code.op(RETURN, 0);
+		cw.addMethod(INITIALIZER, "()V", code);
+	}
+
+	/*
+	 * Compiles a method. Its parameters take the first JVM locals, followed by its frame, one
+	 * type after the other; every local of the frame starts at its default value and the
+	 * parameters are then copied to theirs, so every local has its type from the first branch.
+	 */
+	private void compileMethod(int index, MethodDeclaration md) {
+		var arguments = md.getArguments();
+		var sizes = resolver.getFrameSizes(index);
+		int locals = 0;
+		int entries = arguments.size();
+		for (var argument : arguments) {
+			locals += CodeWriter.width(Frame.type(argument.getSlot()));
+		}
+		for (int type = 0; type < Frame.TYPES; type++) {
+			localBases[type] = locals;
+			locals += sizes[type] * CodeWriter.width(type);
+			entries += sizes[type];
+		}
+
+		var localTypes = new int[entries];
+		int entry = 0;
+		for (var argument : arguments) {
+			localTypes[entry++] = Frame.type(argument.getSlot());
+		}
+		for (int type = 0; type < Frame.TYPES; type++) {
+			for (int i = 0; i < sizes[type]; i++) {
+				localTypes[entry++] = type;
+			}
+		}
+		code = new CodeWriter(localTypes, locals);
+
+		for (int type = 0; type < Frame.TYPES; type++) {
+			for (int i = 0; i < sizes[type]; i++) {
+				pushDefault(type);
+				code.store(type, localBases[type] + i * CodeWriter.width(type));
+			}
+		}
+		int parameter = 0;
+		for (var argument : arguments) {
+			int slot = argument.getSlot();
+			code.load(Frame.type(slot), parameter);
+			store(slot);
+			parameter += CodeWriter.width(Frame.type(slot));
+		}
+		compileStatements(md.getBody().getStatements());
+		cw.addMethod(md.getIdentifier(), methodDescriptors[index], code);
+	}
+
+	/*
+	 * Compiles statements and every block nested in them, in order.
+	 */
+	private void compileStatements(List<Statement> statements) {
+		pushStatements(statements);
+		while (!pending.isEmpty()) {
+			var next = pending.pop();
+			if (next instanceof Statement statement) {
+				statement.accept(this);
+			}
+			else if (next instanceof Loop loop) {
+				code.jump(GOTO, loop.condition(), 0);
+			}
+			else {
+				code.place((Label) next);
+			}
+		}
+	}
+
+	/*
+	 * Pushes statements on the pending ones, so that the first is compiled next.
+	 */
+	private void pushStatements(List<Statement> statements) {
+		for (int i = statements.size() - 1; i >= 0; i--) {
+			pending.push(statements.get(i));
+		}
+	}
+
+	/*
+	 * Compiles a condition to a jump to the target when its value is the given one, falling
+	 * through otherwise. A chain of logical operators is walked down its left operands, deciding
+	 * where each one leads, then compiled from the innermost operand out:
+	 * the left operand of a && jumps to the target when false if a false result does, and
+	 * otherwise past the right operand, which then decides the result; || is the same with
+	 * true and false swapped.
+	 */
+	private void compileCondition(Expression condition, boolean when, Label target) {
+		int outer = after.size();
+		Expression operand = condition;
+		while (operand instanceof LogicalExpression logical) {
+			boolean decisive = logical.getOp() == TokenType.OR;
+			var right = new Branch(logical.getRight(), when, target);
+			if (when != decisive) {
+				var skip = new Label();
+				after.add(skip);
+				target = skip;
+			}
+			after.add(right);
+			when = decisive;
+			operand = logical.getLeft();
+		}
+		branch(operand, when, target);
+		while (after.size() > outer) {
+			var next = after.remove(after.size() - 1);
+			if (next instanceof Branch right) {
+				branch(right.operand(), right.when(), right.target());
+			}
+			else {
+				code.place((Label) next);
+			}
+		}
+	}
+
+	/*
+	 * Compiles a jump to the target when an operand of a condition has the given value, a
+	 * number being true if it is not zero.
+	 */
+	private void branch(Expression operand, boolean when, Label target) {
+		if (operand.accept(this) == Frame.DOUBLE) {
+			code.op(DCONST_0, 2);
+			code.op(DCMPL, -3);
+		}
+		code.jump(when ? IFNE : IFEQ, target, -1);
+	}
+
+	/*
+	 * Pushes the value of an expression, converted to the given type: an int to a double, or a
+	 * number to whether it is not zero, computed as the sign bit of x | -x for an int, and as
+	 * the lowest bit of the comparison of a double with zero, which is -1, 0 or 1.
+	 */
+	private void push(Expression expression, int type) {
+		int from = expression.accept(this);
+		if (from == type) {
+			return;
+		}
+		if (type == Frame.DOUBLE) {
+			code.op(I2D, 1);
+		}
+		else if (from == Frame.INT) {
+			code.op(DUP, 1);
+			code.op(INEG, 0);
+			code.op(IOR, -1);
+			code.op1(BIPUSH, 31, 1);
+			code.op(IUSHR, -1);
+		}
+		else {
+			code.op(DCONST_0, 2);
+			code.op(DCMPL, -3);
+			code.pushInt(1, cw);
+			code.op(IAND, -1);
+		}
+	}
+
+	/*
+	 * Pushes the default value of a type: zero, false or null.
+	 */
+	private void pushDefault(int type) {
+		switch (type) {
+			case Frame.DOUBLE -> code.op(DCONST_0, 2);
+			case Frame.STRING -> code.op(ACONST_NULL, 1);
+			default -> code.op(ICONST_0, 1);
+		}
+	}
+
+	/*
+	 * Stores the value on the operand stack into a variable.
+	 */
+	private void store(int slot) {
+		if (Frame.kind(slot) == Frame.GLOBAL) {
+			code.op2(PUTSTATIC, field(slot), -CodeWriter.width(Frame.type(slot)));
+		}
+		else {
+			code.store(Frame.type(slot), local(slot));
+		}
+	}
+
+	/*
+	 * Returns the constant pool index of the field of a global.
+	 */
+	private int field(int slot) {
+		int type = Frame.type(slot);
+		return cw.field(globalNames[type][Frame.index(slot)], DESCRIPTORS[type]);
+	}
+
+	/*
+	 * Returns the JVM local of a local slot of the method being compiled.
+	 */
+	private int local(int slot) {
+		int type = Frame.type(slot);
+		return localBases[type] + Frame.index(slot) * CodeWriter.width(type);
+	}
+}
@@ -0,0 +1,314 @@
+package ex5.interpreter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes a class file for the BytecodeCompiler: a public final class of public static fields
+ * and methods, with no constructor, interfaces or debug attributes.
+ * Only the parts of the format the compiler needs are supported.
+ *
+ * @author galart27
+ * @author noam_wein
+ */
+final class ClassWriter {
+
+	/*
+	 * Class file version 61, Java 17, which requires stack map frames.
+	 */
+	private static final int MAJOR_VERSION = 61;
+
+	/*
+	 * Access flags.
+	 */
+	private static final int ACC_PUBLIC = 0x0001, ACC_STATIC = 0x0008, ACC_FINAL = 0x0010,
+			ACC_SUPER = 0x0020;
+
+	/*
+	 * Constant pool tags.
+	 */
+	private static final int UTF8 = 1, INTEGER = 3, DOUBLE = 6, CLASS = 7, STRING = 8,
+			FIELDREF = 9, METHODREF = 10, NAME_AND_TYPE = 12;
+
+	private final ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+	private final DataOutputStream pool = new DataOutputStream(poolBytes);
+	private final Map<String, Integer> entries = new HashMap<>();
+	private int poolCount = 1;
+
+	private final ByteArrayOutputStream fieldBytes = new ByteArrayOutputStream();
+	private final DataOutputStream fields = new DataOutputStream(fieldBytes);
+	private int fieldCount = 0;
+
+	private final ByteArrayOutputStream methodBytes = new ByteArrayOutputStream();
+	private final DataOutputStream methods = new DataOutputStream(methodBytes);
+	private int methodCount = 0;
+
+	private final int thisClass;
+	private final int superClass;
+
+	/**
+	 * Constructs a ClassWriter for a class extending Object.
+	 *
+	 * @param name the internal name of the class, such as "ex5/interpreter/Program"
+	 */
+	ClassWriter(String name) {
+		thisClass = classEntry(name);
+		superClass = classEntry("java/lang/Object");
+	}
+
+	/**
+	 * Adds a public static field.
+	 *
+	 * @param name       the name of the field
+	 * @param descriptor the type descriptor of the field
+	 */
+	void addField(String name, String descriptor) {
+		write(fields, ACC_PUBLIC | ACC_STATIC, utf8(name), utf8(descriptor), 0);
+		fieldCount++;
+	}
+
+	/**
+	 * Adds a public static method.
+	 *
+	 * @param name       the name of the method
+	 * @param descriptor the method descriptor
+	 * @param code       the method's code
+	 * @throws ExecutionException if the code is too large for a method
+	 */
+	void addMethod(String name, String descriptor, CodeWriter code) {
+		var body = code.toAttribute(this);
+		write(methods, ACC_PUBLIC | ACC_STATIC, utf8(name), utf8(descriptor), 1);
+		write(methods, utf8("Code"));
+		writeInt(methods, body.length);
+		writeBytes(methods, body, body.length);
+		methodCount++;
+	}
+
+	/**
+	 * Returns the bytes of the class file.
+	 *
+	 * @return the class file
+	 * @throws ExecutionException if the constant pool overflows
+	 */
+	byte[] toByteArray() {
+		if (poolCount > 0xFFFF) {
+			throw new ExecutionException("Program too large to compile");
+		}
+		var bytes = new ByteArrayOutputStream();
+		var out = new DataOutputStream(bytes);
+		writeInt(out, 0xCAFEBABE);
+		write(out, 0, MAJOR_VERSION, poolCount);
+		writeBytes(out, poolBytes.toByteArray(), poolBytes.size());
+		write(out, ACC_PUBLIC | ACC_FINAL | ACC_SUPER, thisClass, superClass, 0, fieldCount);
+		writeBytes(out, fieldBytes.toByteArray(), fieldBytes.size());
+		write(out, methodCount);
+		writeBytes(out, methodBytes.toByteArray(), methodBytes.size());
+		write(out, 0);
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Returns the constant pool index of a UTF-8 string.
+	 *
+	 * @param value the string
+	 * @return the index
+	 */
+	int utf8(String value) {
+		var index = entries.get("U" + value);
+		if (index == null) {
+			index = add("U" + value, 1);
+			try {
+				writeByte(pool, UTF8);
+				pool.writeUTF(value);
+			} catch (IOException e) {
+				// writeUTF throws for strings longer than 65535 encoded bytes
+				throw new ExecutionException("String literal too long to compile");
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Returns the constant pool index of a class.
+	 *
+	 * @param internalName the internal name of the class
+	 * @return the index
+	 */
+	int classEntry(String internalName) {
+		return reference("C", CLASS, utf8(internalName));
+	}
+
+	/**
+	 * Returns the constant pool index of a String constant.
+	 *
+	 * @param value the string
+	 * @return the index
+	 */
+	int string(String value) {
+		return reference("S", STRING, utf8(value));
+	}
+
+	/**
+	 * Returns the constant pool index of an int constant.
+	 *
+	 * @param value the int
+	 * @return the index
+	 */
+	int integer(int value) {
+		var index = entries.get("I" + value);
+		if (index == null) {
+			index = add("I" + value, 1);
+			writeByte(pool, INTEGER);
+			writeInt(pool, value);
+		}
+		return index;
+	}
+
+	/**
+	 * Returns the constant pool index of a double constant, which takes two entries.
+	 *
+	 * @param value the double
+	 * @return the index
+	 */
+	int doubleEntry(double value) {
+		long bits = Double.doubleToRawLongBits(value);
+		var index = entries.get("D" + bits);
+		if (index == null) {
+			index = add("D" + bits, 2);
+			writeByte(pool, DOUBLE);
+			writeInt(pool, (int) (bits >>> 32));
+			writeInt(pool, (int) bits);
+		}
+		return index;
+	}
+
+	/**
+	 * Returns the constant pool index of a static field of this class.
+	 *
+	 * @param name       the name of the field
+	 * @param descriptor the type descriptor of the field
+	 * @return the index
+	 */
+	int field(String name, String descriptor) {
+		return member("F", FIELDREF, name, descriptor);
+	}
+
+	/**
+	 * Returns the constant pool index of a static method of this class.
+	 *
+	 * @param name       the name of the method
+	 * @param descriptor the method descriptor
+	 * @return the index
+	 */
+	int method(String name, String descriptor) {
+		return member("M", METHODREF, name, descriptor);
+	}
+
+	/*
+	 * Returns the index of an entry referring to one other entry, adding it if needed.
+	 */
+	private int reference(String kind, int tag, int target) {
+		var key = kind + target;
+		var index = entries.get(key);
+		if (index == null) {
+			index = add(key, 1);
+			writeByte(pool, tag);
+			write(pool, target);
+		}
+		return index;
+	}
+
+	/*
+	 * Returns the index of a field or method reference of this class, adding it if needed.
+	 */
+	private int member(String kind, int tag, String name, String descriptor) {
+		int nameAndType = nameAndType(name, descriptor);
+		var key = kind + nameAndType;
+		var index = entries.get(key);
+		if (index == null) {
+			index = add(key, 1);
+			writeByte(pool, tag);
+			write(pool, thisClass, nameAndType);
+		}
+		return index;
+	}
+
+	/*
+	 * Returns the index of a name and type entry, adding it if needed.
+	 */
+	private int nameAndType(String name, String descriptor) {
+		int nameIndex = utf8(name);
+		int descriptorIndex = utf8(descriptor);
+		var key = "N" + nameIndex + ":" + descriptorIndex;
+		var index = entries.get(key);
+		if (index == null) {
+			index = add(key, 1);
+			writeByte(pool, NAME_AND_TYPE);
+			write(pool, nameIndex, descriptorIndex);
+		}
+		return index;
+	}
+
+	/*
+	 * Reserves the next constant pool indices for an entry.
+	 */
+	private int add(String key, int size) {
+		int index = poolCount;
+		entries.put(key, index);
+		poolCount += size;
+		return index;
+	}
+
+	/*
+	 * Writes bytes.
+	 */
+	static void writeBytes(DataOutputStream out, byte[] bytes, int length) {
+		try {
+			out.write(bytes, 0, length);
+		} catch (IOException e) {
+			// Cannot happen when writing to a byte array
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/*
+	 * Writes a byte.
+	 */
+	static void writeByte(DataOutputStream out, int value) {
+		try {
+			out.writeByte(value);
+		} catch (IOException e) {
+			// Cannot happen when writing to a byte array
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/*
+	 * Writes unsigned 16-bit values.
+	 */
+	static void write(DataOutputStream out, int... values) {
+		try {
+			for (int value : values) {
+				out.writeShort(value);
+			}
+		} catch (IOException e) {
+			// Cannot happen when writing to a byte array
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/*
+	 * Writes a 32-bit value.
+	 */
+	static void writeInt(DataOutputStream out, int value) {
+		try {
+			out.writeInt(value);
+		} catch (IOException e) {
+			// Cannot happen when writing to a byte array
+			throw new IllegalStateException(e);
+		}
+	}
+}
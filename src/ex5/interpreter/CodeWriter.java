@@ -0,0 +1,346 @@
+package ex5.interpreter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.util.Arrays;
+
+/**
+ * Writes the code of one method for the ClassWriter, tracking the depth of the operand stack
+ * and the stack map frames the verifier needs.
+ * The code the BytecodeCompiler writes only branches with an empty operand stack, and every
+ * local is given a value before the first branch, so the locals are the same at every branch
+ * target: every frame of the stack map is the one full frame given to the constructor.
+ *
+ * @author galart27
+ * @author noam_wein
+ */
+final class CodeWriter {
+
+	/**
+	 * The opcodes the BytecodeCompiler uses.
+	 */
+	static final int ACONST_NULL = 0x01, ICONST_0 = 0x03, DCONST_0 = 0x0e, DCONST_1 = 0x0f,
+			BIPUSH = 0x10, SIPUSH = 0x11, LDC2_W = 0x14, DUP = 0x59, IAND = 0x7e,
+			IOR = 0x80, INEG = 0x74, IUSHR = 0x7c, I2D = 0x87, DCMPL = 0x97, IFEQ = 0x99,
+			IFNE = 0x9a, GOTO = 0xa7, RETURN = 0xb1, GETSTATIC = 0xb2, PUTSTATIC = 0xb3,
+			INVOKESTATIC = 0xb8;
+
+	/*
+	 * Opcodes used only here.
+	 */
+	private static final int LDC = 0x12, ILOAD = 0x15, DLOAD = 0x18,
+			ALOAD = 0x19, LDC_W = 0x13, ISTORE = 0x36, DSTORE = 0x39, ASTORE = 0x3a, WIDE = 0xc4;
+
+	/*
+	 * Verification types of the stack map.
+	 */
+	private static final int ITEM_INTEGER = 1, ITEM_DOUBLE = 3, ITEM_OBJECT = 7,
+			FULL_FRAME = 255;
+
+	/**
+	 * A position in the code that branches jump to, placed once.
+	 */
+	static final class Label {
+
+		private int offset = -1;
+		private int[] branches = new int[2];
+		private int branchCount = 0;
+	}
+
+	private byte[] code = new byte[64];
+	private int length = 0;
+	private int stack = 0;
+	private int maxStack = 0;
+	private final int maxLocals;
+	private final int[] localTypes;
+
+	/*
+	 * The offsets of the frames of the stack map, in order, and whether the next instruction
+	 * can only be reached by a branch.
+	 */
+	private int[] frames = new int[8];
+	private int frameCount = 0;
+	private boolean unreachable = false;
+
+	/**
+	 * Constructs a CodeWriter for a method.
+	 *
+	 * @param localTypes the type codes of the locals in order, a double counting once
+	 * @param maxLocals  the number of local variable slots, a double counting twice
+	 * @throws ExecutionException if there are too many locals for a method
+	 */
+	CodeWriter(int[] localTypes, int maxLocals) {
+		if (maxLocals > 0xFFFF) {
+			throw new ExecutionException("Method too large to compile");
+		}
+		this.localTypes = localTypes;
+		this.maxLocals = maxLocals;
+	}
+
+	/**
+	 * Writes an instruction with no operands.
+	 *
+	 * @param opcode     the opcode
+	 * @param stackDelta the change to the depth of the operand stack, in slots
+	 */
+	void op(int opcode, int stackDelta) {
+		begin(stackDelta);
+		put(opcode);
+		if (opcode == RETURN || opcode == GOTO) {
+			unreachable = true;
+		}
+	}
+
+	/**
+	 * Writes an instruction with a one-byte operand.
+	 *
+	 * @param opcode     the opcode
+	 * @param operand    the operand
+	 * @param stackDelta the change to the depth of the operand stack, in slots
+	 */
+	void op1(int opcode, int operand, int stackDelta) {
+		begin(stackDelta);
+		put(opcode);
+		put(operand);
+	}
+
+	/**
+	 * Writes an instruction with a two-byte operand, such as a constant pool index.
+	 *
+	 * @param opcode     the opcode
+	 * @param operand    the operand
+	 * @param stackDelta the change to the depth of the operand stack, in slots
+	 */
+	void op2(int opcode, int operand, int stackDelta) {
+		begin(stackDelta);
+		put(opcode);
+		put(operand >> 8);
+		put(operand);
+	}
+
+	/**
+	 * Pushes an int, with the shortest instruction that holds it.
+	 *
+	 * @param value the int
+	 * @param cw    the ClassWriter whose constant pool holds large values
+	 */
+	void pushInt(int value, ClassWriter cw) {
+		if (value >= -1 && value <= 5) {
+			op(ICONST_0 + value, 1);
+		}
+		else if (value == (byte) value) {
+			op1(BIPUSH, value, 1);
+		}
+		else if (value == (short) value) {
+			op2(SIPUSH, value, 1);
+		}
+		else {
+			pushConstant(cw.integer(value));
+		}
+	}
+
+	/**
+	 * Pushes an int or String constant of the constant pool.
+	 *
+	 * @param index the index of the constant
+	 */
+	void pushConstant(int index) {
+		if (index <= 0xFF) {
+			op1(LDC, index, 1);
+		}
+		else {
+			op2(LDC_W, index, 1);
+		}
+	}
+
+	/**
+	 * Loads a local variable onto the operand stack.
+	 *
+	 * @param type  the type code of the variable
+	 * @param local the local variable slot
+	 */
+	void load(int type, int local) {
+		local(switch (type) {
+			case Frame.DOUBLE -> DLOAD;
+			case Frame.STRING -> ALOAD;
+			default -> ILOAD;
+		}, local, width(type));
+	}
+
+	/**
+	 * Stores the top of the operand stack into a local variable.
+	 *
+	 * @param type  the type code of the variable
+	 * @param local the local variable slot
+	 */
+	void store(int type, int local) {
+		local(switch (type) {
+			case Frame.DOUBLE -> DSTORE;
+			case Frame.STRING -> ASTORE;
+			default -> ISTORE;
+		}, local, -width(type));
+	}
+
+	/**
+	 * Writes a branch to a label, which may be placed before or after it.
+	 *
+	 * @param opcode     GOTO or a conditional branch
+	 * @param target     the label to jump to
+	 * @param stackDelta the change to the depth of the operand stack, in slots
+	 */
+	void jump(int opcode, Label target, int stackDelta) {
+		int position = length;
+		op2(opcode, 0, stackDelta);
+		if (target.offset >= 0) {
+			patch(position, target.offset);
+		}
+		else {
+			if (target.branchCount == target.branches.length) {
+				target.branches = Arrays.copyOf(target.branches, target.branchCount * 2);
+			}
+			target.branches[target.branchCount++] = position;
+		}
+		if (opcode == GOTO) {
+			unreachable = true;
+		}
+	}
+
+	/**
+	 * Places a label at the next instruction, resolving the branches written to it so far.
+	 *
+	 * @param label the label, which must not be placed yet
+	 */
+	void place(Label label) {
+		label.offset = length;
+		for (int i = 0; i < label.branchCount; i++) {
+			patch(label.branches[i], length);
+		}
+		addFrame();
+	}
+
+	/**
+	 * Returns the Code attribute of the method, without its name and length.
+	 *
+	 * @param cw the ClassWriter whose constant pool the attribute refers to
+	 * @return the attribute
+	 * @throws ExecutionException if the code is too large for a method
+	 */
+	byte[] toAttribute(ClassWriter cw) {
+		if (length > 0xFFFF) {
+			throw new ExecutionException("Method too large to compile");
+		}
+		var bytes = new ByteArrayOutputStream();
+		var out = new DataOutputStream(bytes);
+		ClassWriter.write(out, maxStack, maxLocals);
+		ClassWriter.writeInt(out, length);
+		ClassWriter.writeBytes(out, code, length);
+		ClassWriter.write(out, 0);
+		if (frameCount == 0) {
+			ClassWriter.write(out, 0);
+			return bytes.toByteArray();
+		}
+
+		// Every frame is the same full frame, at its distance from the previous one
+		var frame = new ByteArrayOutputStream();
+		var frameOut = new DataOutputStream(frame);
+		ClassWriter.write(frameOut, localTypes.length);
+		int string = cw.classEntry("java/lang/String");
+		for (int type : localTypes) {
+			switch (type) {
+				case Frame.DOUBLE -> ClassWriter.writeByte(frameOut, ITEM_DOUBLE);
+				case Frame.STRING -> {
+					ClassWriter.writeByte(frameOut, ITEM_OBJECT);
+					ClassWriter.write(frameOut, string);
+				}
+				default -> ClassWriter.writeByte(frameOut, ITEM_INTEGER);
+			}
+		}
+		ClassWriter.write(frameOut, 0);
+		var stackMap = new ByteArrayOutputStream();
+		var stackMapOut = new DataOutputStream(stackMap);
+		ClassWriter.write(stackMapOut, frameCount);
+		for (int i = 0; i < frameCount; i++) {
+			ClassWriter.writeByte(stackMapOut, FULL_FRAME);
+			ClassWriter.write(stackMapOut, i == 0 ? frames[0] : frames[i] - frames[i - 1] - 1);
+			ClassWriter.writeBytes(stackMapOut, frame.toByteArray(), frame.size());
+		}
+		ClassWriter.write(out, 1, cw.utf8("StackMapTable"));
+		ClassWriter.writeInt(out, stackMap.size());
+		ClassWriter.writeBytes(out, stackMap.toByteArray(), stackMap.size());
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Returns the number of local variable or operand stack slots a value takes.
+	 *
+	 * @param type the type code of the value
+	 * @return 2 for a double, 1 otherwise
+	 */
+	static int width(int type) {
+		return type == Frame.DOUBLE ? 2 : 1;
+	}
+
+	/*
+	 * Writes a load or store of a local, in the wide form if its slot needs two bytes.
+	 */
+	private void local(int opcode, int local, int stackDelta) {
+		if (local <= 0xFF) {
+			op1(opcode, local, stackDelta);
+		}
+		else {
+			begin(stackDelta);
+			put(WIDE);
+			put(opcode);
+			put(local >> 8);
+			put(local);
+		}
+	}
+
+	/*
+	 * Starts an instruction: adds a frame if only a branch can reach it, and tracks the depth
+	 * of the operand stack.
+	 */
+	private void begin(int stackDelta) {
+		if (unreachable) {
+			addFrame();
+		}
+		stack += stackDelta;
+		maxStack = Math.max(maxStack, stack);
+	}
+
+	/*
+	 * Adds a frame at the next instruction, unless there is one already.
+	 */
+	private void addFrame() {
+		unreachable = false;
+		if (frameCount > 0 && frames[frameCount - 1] == length) {
+			return;
+		}
+		if (frameCount == frames.length) {
+			frames = Arrays.copyOf(frames, frameCount * 2);
+		}
+		frames[frameCount++] = length;
+	}
+
+	/*
+	 * Sets the offset of the branch at the given position to jump to the given target.
+	 */
+	private void patch(int position, int target) {
+		int offset = target - position;
+		if (offset != (short) offset) {
+			throw new ExecutionException("Method too large to compile");
+		}
+		code[position + 1] = (byte) (offset >> 8);
+		code[position + 2] = (byte) offset;
+	}
+
+	/*
+	 * Appends a byte to the code.
+	 */
+	private void put(int value) {
+		if (length == code.length) {
+			code = Arrays.copyOf(code, length * 2);
+		}
+		code[length++] = (byte) value;
+	}
+}
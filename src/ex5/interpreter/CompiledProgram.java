@@ -0,0 +1,187 @@
+package ex5.interpreter;
+
+import ex5.ast.statements.Statement;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.List;
+
+/**
+ * Runs a legal Sjavac program compiled to JVM bytecode, for programs whose loops are hot enough
+ * that the Interpreter's dispatch of every statement dominates.
+ * The BytecodeCompiler compiles the program to a class, which is defined as a hidden class of
+ * this package: it can only be reached through this object, and is unloaded with it.
+ * Values are converted like the Interpreter converts them, and a CompiledProgram has the same
+ * methods, but none of its limits: a call runs until it returns, and a recursion too deep for
+ * the thread's stack fails instead of exceeding a depth given in advance.
+ * A CompiledProgram resolves the AST it is given in place, like an Interpreter.
+ *
+ * @author galart27
+ * @author noam_wein
+ */
+public final class CompiledProgram {
+
+	/*
+	 * The internal name of the compiled class, before the JVM makes it unique.
+	 */
+	private static final String CLASS_NAME = "ex5/interpreter/Program";
+
+	private final Resolver resolver;
+	private final MethodHandles.Lookup lookup;
+	private final MethodHandle initializer;
+	private final MethodHandle[] methods;
+	private boolean initialized = false;
+
+	/**
+	 * Constructs a CompiledProgram for a program, resolving and compiling it.
+	 *
+	 * @param program the top-level statements of a program that passed the SemanticAnalyzer
+	 * @throws ExecutionException if the program cannot be resolved, which a legal program always
+	 *                            can unless a literal is out of range, or if it is too large for
+	 *                            a class file
+	 */
+	public CompiledProgram(List<Statement> program) {
+		resolver = new Resolver(program);
+		var bytes = new BytecodeCompiler(resolver, CLASS_NAME).compile();
+		try {
+			lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+			var compiled = lookup.lookupClass();
+			initializer = lookup.findStatic(compiled, BytecodeCompiler.INITIALIZER,
+			                                MethodType.methodType(void.class));
+			var declarations = resolver.getMethods();
+			methods = new MethodHandle[declarations.size()];
+			for (int i = 0; i < methods.length; i++) {
+				var md = declarations.get(i);
+				var parameters = new Class<?>[md.getArguments().size()];
+				for (int j = 0; j < parameters.length; j++) {
+					parameters[j] = javaType(Frame.type(md.getArguments().get(j).getSlot()));
+				}
+				methods[i] = lookup.findStatic(compiled, md.getIdentifier(),
+				                               MethodType.methodType(void.class, parameters));
+			}
+		} catch (ReflectiveOperationException e) {
+			// The class is generated to have every method looked up
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Runs the global declarations and assignments in order, giving the globals their initial
+	 * values. Running them again starts over from fresh globals.
+	 *
+	 * @throws ExecutionException if the stack overflows
+	 */
+	public void initialize() {
+		invoke(initializer);
+		initialized = true;
+	}
+
+	/**
+	 * Calls a method of the program with the given arguments, after initializing the globals if
+	 * initialize was not called yet. The globals keep the values the method leaves in them.
+	 * Arguments are given as Integer, Double, Boolean, Character or String, and are converted
+	 * to the types of the parameters like the arguments of a call in the program are.
+	 *
+	 * @param method    the name of the method
+	 * @param arguments the arguments
+	 * @throws ExecutionException if there is no such method, the arguments do not match its
+	 *                            parameters, or the stack overflows
+	 */
+	public void call(String method, Object... arguments) {
+		var index = resolver.getMethodIndex(method);
+		if (index == null) {
+			throw new ExecutionException("Undefined method: " + method);
+		}
+		var md = resolver.getMethods().get(index);
+		if (arguments.length != md.getArguments().size()) {
+			throw new ExecutionException("Method " + method + " expects " +
+			                             md.getArguments().size() + " arguments, got " +
+			                             arguments.length);
+		}
+		var values = new Object[arguments.length];
+		for (int i = 0; i < arguments.length; i++) {
+			values[i] = convert(arguments[i], Frame.type(md.getArguments().get(i).getSlot()));
+			if (values[i] == null) {
+				throw new ExecutionException("Argument " + (i + 1) + " of method " + method +
+				                             " cannot be " + arguments[i]);
+			}
+		}
+		if (!initialized) {
+			initialize();
+		}
+		invoke(methods[index], values);
+	}
+
+	/**
+	 * Returns the current value of a global variable.
+	 *
+	 * @param name the name of the variable
+	 * @return the value as an Integer, Double, Boolean, Character or String, or null for a
+	 *         String that was never assigned
+	 * @throws ExecutionException if there is no such global
+	 */
+	public Object getGlobal(String name) {
+		var slot = resolver.getGlobalSlot(name);
+		if (slot == null) {
+			throw new ExecutionException("Undefined variable: " + name);
+		}
+		if (!initialized) {
+			initialize();
+		}
+		try {
+			return lookup.findStaticGetter(lookup.lookupClass(), name,
+			                               javaType(Frame.type(slot))).invoke();
+		} catch (Throwable e) {
+			// Reading a field of the generated class cannot fail
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/*
+	 * Invokes a method of the compiled class, turning a stack overflow into an
+	 * ExecutionException.
+	 */
+	private static void invoke(MethodHandle method, Object... arguments) {
+		try {
+			method.invokeWithArguments(arguments);
+		} catch (StackOverflowError e) {
+			throw new ExecutionException("Stack overflow");
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			// The compiled methods throw no checked exceptions
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/*
+	 * Converts a value given by the caller to a parameter of the given type, or returns null if
+	 * it cannot be one.
+	 */
+	private static Object convert(Object value, int type) {
+		return switch (type) {
+			case Frame.INT -> value instanceof Integer ? value : null;
+			case Frame.DOUBLE -> value instanceof Integer i ? (Object) i.doubleValue() :
+			                     value instanceof Double ? value : null;
+			case Frame.BOOLEAN -> value instanceof Integer i ? (Object) (i != 0) :
+			                      value instanceof Double d ? (Object) (d != 0) :
+			                      value instanceof Boolean ? value : null;
+			case Frame.CHAR -> value instanceof Character ? value : null;
+			default -> value instanceof String ? value : null;
+		};
+	}
+
+	/*
+	 * Returns the Java type of a type code.
+	 */
+	private static Class<?> javaType(int type) {
+		return switch (type) {
+			case Frame.INT -> int.class;
+			case Frame.DOUBLE -> double.class;
+			case Frame.BOOLEAN -> boolean.class;
+			case Frame.CHAR -> char.class;
+			default -> String.class;
+		};
+	}
+}
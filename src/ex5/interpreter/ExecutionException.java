@@ -0,0 +1,21 @@
+package ex5.interpreter;
+
+/**
+ * An exception thrown when running a program fails: it exceeds a limit of the Interpreter, is
+ * called with arguments that do not match, or was not a legal program to begin with.
+ * Like the errors of the other phases, it is thrown without a stack trace.
+ *
+ * @author galart27
+ * @author noam_wein
+ */
+public class ExecutionException extends RuntimeException {
+
+	/**
+	 * Constructs an ExecutionException with the given message.
+	 *
+	 * @param message the exception message
+	 */
+	public ExecutionException(String message) {
+		super(message, null, false, false);
+	}
+}
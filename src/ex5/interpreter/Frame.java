@@ -0,0 +1,120 @@
+package ex5.interpreter;
+
+import ex5.lexer.TokenType;
+
+/**
+ * The variables of one method call, of the globals, or the literals of a program, in one array
+ * per type so that no value is boxed.
+ * A slot names a value in some frame: the index in the array of its type, which frame it is
+ * in, and its type, packed into an int as index << 5 | kind << 3 | type.
+ *
+ * @author galart27
+ * @author noam_wein
+ */
+final class Frame {
+
+	/**
+	 * The type codes of slots, which index the arrays of sizes given to the constructor.
+	 */
+	static final int INT = 0, DOUBLE = 1, BOOLEAN = 2, CHAR = 3, STRING = 4, TYPES = 5;
+
+	/**
+	 * The kinds of slots: in the frame of the running call, in the globals, or a literal.
+	 */
+	static final int LOCAL = 0, GLOBAL = 1, CONSTANT = 2;
+
+	final int[] ints;
+	final double[] doubles;
+	final boolean[] booleans;
+	final char[] chars;
+	final String[] strings;
+
+	/**
+	 * Constructs a Frame with every value zero, false or null.
+	 *
+	 * @param sizes the number of slots of each type, indexed by type code
+	 */
+	Frame(int[] sizes) {
+		ints = new int[sizes[INT]];
+		doubles = new double[sizes[DOUBLE]];
+		booleans = new boolean[sizes[BOOLEAN]];
+		chars = new char[sizes[CHAR]];
+		strings = new String[sizes[STRING]];
+	}
+
+	/**
+	 * Resets a slot of this frame to zero, false or null.
+	 *
+	 * @param slot the slot
+	 */
+	void clear(int slot) {
+		int index = index(slot);
+		switch (type(slot)) {
+			case INT -> ints[index] = 0;
+			case DOUBLE -> doubles[index] = 0;
+			case BOOLEAN -> booleans[index] = false;
+			case CHAR -> chars[index] = '\0';
+			default -> strings[index] = null;
+		}
+	}
+
+	/**
+	 * Packs a slot.
+	 *
+	 * @param type  the type code
+	 * @param kind  the kind of frame the slot is in
+	 * @param index the index in the array of the type
+	 * @return the slot
+	 */
+	static int slot(int type, int kind, int index) {
+		return index << 5 | kind << 3 | type;
+	}
+
+	/**
+	 * Returns the type code of a slot.
+	 *
+	 * @param slot the slot
+	 * @return the type code
+	 */
+	static int type(int slot) {
+		return slot & 7;
+	}
+
+	/**
+	 * Returns the kind of frame a slot is in.
+	 *
+	 * @param slot the slot
+	 * @return LOCAL, GLOBAL or CONSTANT
+	 */
+	static int kind(int slot) {
+		return slot >> 3 & 3;
+	}
+
+	/**
+	 * Returns the index of a slot in the array of its type.
+	 *
+	 * @param slot the slot
+	 * @return the index
+	 */
+	static int index(int slot) {
+		return slot >>> 5;
+	}
+
+	/**
+	 * Returns the type code of a variable type.
+	 *
+	 * @param type the declared type of a variable or parameter
+	 * @return the type code
+	 * @throws ExecutionException if the type is not a variable type
+	 */
+	static int typeCode(TokenType type) {
+		return switch (type) {
+			case INT -> INT;
+			case DOUBLE -> DOUBLE;
+			case BOOLEAN -> BOOLEAN;
+			case CHAR -> CHAR;
+			case STRING -> STRING;
+			default -> throw new ExecutionException("Invalid variable type: " + type);
+		};
+	}
+}
@@ -0,0 +1,516 @@
+package ex5.interpreter;
+
+import ex5.ast.ASTVisitor;
+import ex5.ast.expressions.Expression;
+import ex5.ast.expressions.LiteralExpression;
+import ex5.ast.expressions.LogicalExpression;
+import ex5.ast.expressions.VariableExpression;
+import ex5.ast.statements.*;
+import ex5.lexer.TokenType;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs a legal Sjavac program: initializes its globals, then calls its methods.
+ * The program is first resolved, which binds every variable and literal to a slot of a Frame
+ * and every call to its method, so that running it never looks a name up. Values live in the
+ * frames' arrays of their type and are moved through one register per type, so running a
+ * program boxes nothing.
+ * A value assigned to a double or boolean variable is converted like the SemanticAnalyzer allows:
+ * an int becomes a double, and a number becomes true if it is not zero. A number used as a
+ * condition is true in the same way. The operators && and || do not evaluate their right operand
+ * when the left one decides the result.
+ * Like the other phases, the interpreter has no recursion: blocks and calls are run from an
+ * explicit stack, so only the limits given to the constructor bound a program.
+ * An Interpreter resolves the AST it is given in place, so an AST is run by one Interpreter at a
+ * time.
+ *
+ * @author galart27
+ * @author noam_wein
+ */
+public final class Interpreter implements ASTVisitor<TokenType> {
+
+	/*
+	 * A block being run: its statements and the next one to run, the while statement it is the
+	 * body of, and, if it is the body of a method call, the frame of the caller to go back to.
+	 */
+	private static final class Activation {
+
+		private final List<Statement> statements;
+		private final WhileStatement loop;
+		private final Frame caller;
+		private int next = 0;
+
+		/*
+		 * Constructs an Activation at the first statement of a block.
+		 */
+		private Activation(List<Statement> statements, WhileStatement loop, Frame caller) {
+			this.statements = statements;
+			this.loop = loop;
+			this.caller = caller;
+		}
+	}
+
+	private final Resolver resolver;
+	private final Frame constants;
+	private final long maxSteps;
+	private final int maxCallDepth;
+
+	private Frame globals;
+	private Frame frame;
+	private final ArrayDeque<Activation> activations = new ArrayDeque<>();
+	private int callDepth = 0;
+	private long steps = 0;
+
+	/*
+	 * The registers holding the value of the last expression evaluated, one per type; the visit
+	 * methods of expressions return which one holds it.
+	 */
+	private int intValue;
+	private double doubleValue;
+	private boolean booleanValue;
+	private char charValue;
+	private String stringValue;
+
+	/*
+	 * The left operands of the logical expression being evaluated, reused between expressions.
+	 */
+	private final List<LogicalExpression> chain = new ArrayList<>();
+
+	/**
+	 * Constructs an Interpreter for a program, resolving it.
+	 *
+	 * @param program      the top-level statements of a program that passed the
+	 *                     SemanticAnalyzer
+	 * @param maxSteps     the number of statements and loop conditions a single initialize or
+	 *                     call may run
+	 * @param maxCallDepth the number of method calls that may be running at once
+	 * @throws ExecutionException if the program cannot be resolved, which a legal program always
+	 *                            can unless a literal is out of range
+	 */
+	public Interpreter(List<Statement> program, long maxSteps, int maxCallDepth) {
+		resolver = new Resolver(program);
+		constants = resolver.createConstants();
+		this.maxSteps = maxSteps;
+		this.maxCallDepth = maxCallDepth;
+	}
+
+	/**
+	 * Runs the global declarations and assignments in order, giving the globals their initial
+	 * values. Running them again starts over from fresh globals.
+	 *
+	 * @throws ExecutionException if a limit is exceeded
+	 */
+	public void initialize() {
+		globals = new Frame(resolver.getGlobalSizes());
+		frame = globals;
+		run(new Activation(resolver.getGlobalStatements(), null, globals));
+	}
+
+	/**
+	 * Calls a method of the program with the given arguments, after initializing the globals if
+	 * initialize was not called yet. The globals keep the values the method leaves in them.
+	 * Arguments are given as Integer, Double, Boolean, Character or String, and are converted
+	 * to the types of the parameters like the arguments of a call in the program are.
+	 *
+	 * @param method    the name of the method
+	 * @param arguments the arguments
+	 * @throws ExecutionException if there is no such method, the arguments do not match its
+	 *                            parameters, or a limit is exceeded
+	 */
+	public void call(String method, Object... arguments) {
+		var index = resolver.getMethodIndex(method);
+		if (index == null) {
+			throw new ExecutionException("Undefined method: " + method);
+		}
+		var md = resolver.getMethods().get(index);
+		if (arguments.length != md.getArguments().size()) {
+			throw new ExecutionException("Method " + method + " expects " +
+			                             md.getArguments().size() + " arguments, got " +
+			                             arguments.length);
+		}
+		if (globals == null) {
+			initialize();
+		}
+
+		var callee = new Frame(resolver.getFrameSizes(index));
+		for (int i = 0; i < arguments.length; i++) {
+			int slot = md.getArguments().get(i).getSlot();
+			var type = load(arguments[i]);
+			if (type == null || !isAssignable(Frame.type(slot), type)) {
+				throw new ExecutionException("Argument " + (i + 1) + " of method " + method +
+				                             " cannot be " + arguments[i]);
+			}
+			store(callee, slot, type);
+		}
+		frame = callee;
+		callDepth = 1;
+		run(new Activation(md.getBody().getStatements(), null, globals));
+	}
+
+	/**
+	 * Returns the current value of a global variable.
+	 *
+	 * @param name the name of the variable
+	 * @return the value as an Integer, Double, Boolean, Character or String, or null for a
+	 *         String that was never assigned
+	 * @throws ExecutionException if there is no such global
+	 */
+	public Object getGlobal(String name) {
+		var slot = resolver.getGlobalSlot(name);
+		if (slot == null) {
+			throw new ExecutionException("Undefined variable: " + name);
+		}
+		if (globals == null) {
+			initialize();
+		}
+		return switch (load(globals, slot)) {
+			case INT -> intValue;
+			case DOUBLE -> doubleValue;
+			case BOOLEAN -> booleanValue;
+			case CHAR -> charValue;
+			default -> stringValue;
+		};
+	}
+
+	/**
+	 * Returns the number of statements and loop conditions the last initialize or call ran.
+	 *
+	 * @return the number of steps
+	 */
+	public long getStepCount() {
+		return steps;
+	}
+
+	/**
+	 * Starts running the statements of a block. The bodies of methods, if and while statements
+	 * are started by the visit methods of their owners instead.
+	 *
+	 * @param bl The block to run.
+	 */
+	@Override
+	public void visitBlock(Block bl) {
+		activations.push(new Activation(bl.getStatements(), null, null));
+	}
+
+	/**
+	 * Runs the body of an if statement if its condition is true.
+	 *
+	 * @param is The if statement to run.
+	 */
+	@Override
+	public void visitIfStatement(IfStatement is) {
+		if (isTrue(is.getCondition())) {
+			activations.push(new Activation(is.getBody().getStatements(), null, null));
+		}
+	}
+
+	/**
+	 * Does nothing: parameters are given their values by the call.
+	 *
+	 * @param ma The method argument.
+	 */
+	@Override
+	public void visitMethodArgument(MethodArgument ma) {}
+
+	/**
+	 * Calls a method: evaluates the arguments into a new frame and starts running the body.
+	 *
+	 * @param mc The method call to run.
+	 */
+	@Override
+	public void visitMethodCall(MethodCall mc) {
+		if (callDepth == maxCallDepth) {
+			throw new ExecutionException("Call depth limit of " + maxCallDepth + " exceeded");
+		}
+		var md = resolver.getMethods().get(mc.getSlot());
+		var callee = new Frame(resolver.getFrameSizes(mc.getSlot()));
+		var arguments = mc.getArguments();
+		for (int i = 0; i < arguments.size(); i++) {
+			store(callee, md.getArguments().get(i).getSlot(), arguments.get(i).accept(this));
+		}
+		activations.push(new Activation(md.getBody().getStatements(), null, frame));
+		frame = callee;
+		callDepth++;
+	}
+
+	/**
+	 * Does nothing: methods are only run when called.
+	 *
+	 * @param md The method declaration.
+	 */
+	@Override
+	public void visitMethodDeclaration(MethodDeclaration md) {}
+
+	/**
+	 * Returns from the running method, leaving the blocks it is in.
+	 *
+	 * @param rs The return statement to run.
+	 */
+	@Override
+	public void visitReturnStatement(ReturnStatement rs) {
+		Activation activation;
+		do {
+			activation = activations.pop();
+		} while (activation.caller == null);
+		exitCall(activation);
+	}
+
+	/**
+	 * Assigns the value of an expression to a variable.
+	 *
+	 * @param va The variable assignment to run.
+	 */
+	@Override
+	public void visitVariableAssignment(VariableAssignment va) {
+		int slot = va.getSlot();
+		store(frameOf(slot), slot, va.getExpression().accept(this));
+	}
+
+	/**
+	 * Gives a declared variable the value of its initializer, or the default value of its type if
+	 * it has none, since its slot may still hold a variable of a block that ended.
+	 *
+	 * @param vs The variable declaration to run.
+	 */
+	@Override
+	public void visitVariableDeclaration(VariableDeclaration vs) {
+		int slot = vs.getSlot();
+		if (vs.getInitializer() != null) {
+			store(frameOf(slot), slot, vs.getInitializer().accept(this));
+		}
+		else {
+			frameOf(slot).clear(slot);
+		}
+	}
+
+	/**
+	 * Starts running the body of a while statement if its condition is true; the condition is
+	 * checked again every time the body ends.
+	 *
+	 * @param ws The while statement to run.
+	 */
+	@Override
+	public void visitWhileStatement(WhileStatement ws) {
+		if (isTrue(ws.getCondition())) {
+			activations.push(new Activation(ws.getBody().getStatements(), ws, null));
+		}
+	}
+
+	/**
+	 * Loads the value of a literal into its register.
+	 *
+	 * @param le The literal expression to evaluate.
+	 * @return The type of the register holding the value.
+	 */
+	@Override
+	public TokenType visitLiteralExpression(LiteralExpression le) {
+		return load(constants, le.getSlot());
+	}
+
+	/**
+	 * Loads the value of a variable into its register.
+	 *
+	 * @param ve The variable expression to evaluate.
+	 * @return The type of the register holding the value.
+	 */
+	@Override
+	public TokenType visitVariableExpression(VariableExpression ve) {
+		int slot = ve.getSlot();
+		return load(frameOf(slot), slot);
+	}
+
+	/**
+	 * Evaluates a logical expression from its innermost left operand out, skipping the right
+	 * operands that cannot change the result.
+	 *
+	 * @param le The logical expression to evaluate.
+	 * @return BOOLEAN, the type of the register holding the value.
+	 */
+	@Override
+	public TokenType visitLogicalExpression(LogicalExpression le) {
+		int outer = chain.size();
+		Expression operand = le;
+		while (operand instanceof LogicalExpression logical) {
+			chain.add(logical);
+			operand = logical.getLeft();
+		}
+
+		boolean value = isTrue(operand);
+		while (chain.size() > outer) {
+			var logical = chain.remove(chain.size() - 1);
+			if (logical.getOp() == TokenType.AND ? value : !value) {
+				value = isTrue(logical.getRight());
+			}
+		}
+		booleanValue = value;
+		return TokenType.BOOLEAN;
+	}
+
+	/*
+	 * Runs a block and everything it calls, until it ends. The stack is emptied even if a limit
+	 * is exceeded, so that the interpreter can be used again.
+	 */
+	private void run(Activation activation) {
+		steps = 0;
+		activations.push(activation);
+		try {
+			while (!activations.isEmpty()) {
+				var top = activations.peek();
+				if (top.next < top.statements.size()) {
+					step();
+					top.statements.get(top.next++).accept(this);
+				}
+				else if (top.loop != null && step() && isTrue(top.loop.getCondition())) {
+					top.next = 0;
+				}
+				else {
+					activations.pop();
+					if (top.caller != null) {
+						exitCall(top);
+					}
+				}
+			}
+		} finally {
+			activations.clear();
+			frame = globals;
+			callDepth = 0;
+		}
+	}
+
+	/*
+	 * Counts a step, throwing once there are more than the limit.
+	 */
+	private boolean step() {
+		if (++steps > maxSteps) {
+			throw new ExecutionException("Step limit of " + maxSteps + " exceeded");
+		}
+		return true;
+	}
+
+	/*
+	 * Goes back to the caller of the method whose body was the given activation.
+	 */
+	private void exitCall(Activation activation) {
+		frame = activation.caller;
+		callDepth--;
+	}
+
+	/*
+	 * Evaluates a condition.
+	 */
+	private boolean isTrue(Expression condition) {
+		return isTrue(condition.accept(this));
+	}
+
+	/*
+	 * Returns whether the value in a register is true, a number being true if it is not zero.
+	 */
+	private boolean isTrue(TokenType register) {
+		return switch (register) {
+			case INT -> intValue != 0;
+			case DOUBLE -> doubleValue != 0;
+			default -> booleanValue;
+		};
+	}
+
+	/*
+	 * Returns the frame holding a slot.
+	 */
+	private Frame frameOf(int slot) {
+		return switch (Frame.kind(slot)) {
+			case Frame.LOCAL -> frame;
+			case Frame.GLOBAL -> globals;
+			default -> constants;
+		};
+	}
+
+	/*
+	 * Loads the value of a slot of the given frame into the register of its type.
+	 */
+	private TokenType load(Frame from, int slot) {
+		int index = Frame.index(slot);
+		switch (Frame.type(slot)) {
+			case Frame.INT -> {
+				intValue = from.ints[index];
+				return TokenType.INT;
+			}
+			case Frame.DOUBLE -> {
+				doubleValue = from.doubles[index];
+				return TokenType.DOUBLE;
+			}
+			case Frame.BOOLEAN -> {
+				booleanValue = from.booleans[index];
+				return TokenType.BOOLEAN;
+			}
+			case Frame.CHAR -> {
+				charValue = from.chars[index];
+				return TokenType.CHAR;
+			}
+			default -> {
+				stringValue = from.strings[index];
+				return TokenType.STRING;
+			}
+		}
+	}
+
+	/*
+	 * Loads a value given by the caller of the interpreter into the register of its type, or
+	 * returns null if it has none.
+	 */
+	private TokenType load(Object value) {
+		if (value instanceof Integer i) {
+			intValue = i;
+			return TokenType.INT;
+		}
+		if (value instanceof Double d) {
+			doubleValue = d;
+			return TokenType.DOUBLE;
+		}
+		if (value instanceof Boolean b) {
+			booleanValue = b;
+			return TokenType.BOOLEAN;
+		}
+		if (value instanceof Character c) {
+			charValue = c;
+			return TokenType.CHAR;
+		}
+		if (value instanceof String s) {
+			stringValue = s;
+			return TokenType.STRING;
+		}
+		return null;
+	}
+
+	/*
+	 * Stores the value in a register into a slot of the given frame, converting it to the type
+	 * of the slot.
+	 */
+	private void store(Frame to, int slot, TokenType register) {
+		int index = Frame.index(slot);
+		switch (Frame.type(slot)) {
+			case Frame.INT -> to.ints[index] = intValue;
+			case Frame.DOUBLE -> to.doubles[index] =
+					register == TokenType.INT ? intValue : doubleValue;
+			case Frame.BOOLEAN -> to.booleans[index] = isTrue(register);
+			case Frame.CHAR -> to.chars[index] = charValue;
+			default -> to.strings[index] = stringValue;
+		}
+	}
+
+	/*
+	 * Returns whether a value in a register may be stored into a slot of the given type.
+	 */
+	private static boolean isAssignable(int type, TokenType register) {
+		return switch (type) {
+			case Frame.INT -> register == TokenType.INT;
+			case Frame.DOUBLE -> register == TokenType.INT || register == TokenType.DOUBLE;
+			case Frame.BOOLEAN -> register == TokenType.BOOLEAN || register == TokenType.INT ||
+			                      register == TokenType.DOUBLE;
+			case Frame.CHAR -> register == TokenType.CHAR;
+			default -> register == TokenType.STRING;
+		};
+	}
+}
@@ -0,0 +1,476 @@
+package ex5.interpreter;
+
+import ex5.ast.ASTVisitor;
+import ex5.ast.expressions.Expression;
+import ex5.ast.expressions.LiteralExpression;
+import ex5.ast.expressions.LogicalExpression;
+import ex5.ast.expressions.VariableExpression;
+import ex5.ast.statements.*;
+import ex5.lexer.TokenType;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The resolution pass of the Interpreter: binds every variable, literal and method of a program
+ * to its slot once, so that running it looks nothing up by name.
+ * Globals get slots of their own frame. Locals get slots of the frame of their method, and the
+ * slots of a block's variables are reused once the block ends, so a frame is only as large as
+ * the most variables in scope at once. Literals become slots of a frame of constants.
+ * Like the SemanticAnalyzer, nested blocks are walked with an explicit stack of the open blocks
+ * instead of recursion.
+ *
+ * @author galart27
+ * @author noam_wein
+ */
+final class Resolver implements ASTVisitor<Void> {
+
+	private final List<Statement> globalStatements = new ArrayList<>();
+	private final List<MethodDeclaration> methods = new ArrayList<>();
+	private final Map<String, Integer> methodIndexes = new HashMap<>();
+	private final Map<String, Integer> globalSlots = new HashMap<>();
+	private final List<int[]> frameSizes = new ArrayList<>();
+	private final int[] globalSizes = new int[Frame.TYPES];
+
+	/*
+	 * The literals of every type, as written in the source, in slot order.
+	 */
+	private final List<List<String>> constants = new ArrayList<>();
+
+	/*
+	 * The variables in scope, as a stack of bindings of a name id to a slot, each linked to the
+	 * binding of the same name it shadows, like the bindings of the SymbolTable. By name id, the
+	 * innermost binding plus one, 0 if there is none; by scope, the first binding in it, the
+	 * global scope being the first one.
+	 */
+	private int[] innermost = new int[64];
+	private int[] bindingIds = new int[64];
+	private int[] bindingSlots = new int[64];
+	private int[] bindingOuters = new int[64];
+	private int bindingCount = 0;
+	private int[] scopeStarts = new int[16];
+	private int scopeCount = 0;
+
+	/*
+	 * While a method is resolved, the number of local slots of each type in use, the counts to go
+	 * back to when each block ends, and the most ever used.
+	 */
+	private int[] localCounts = new int[Frame.TYPES];
+	private final ArrayDeque<int[]> savedCounts = new ArrayDeque<>();
+	private int[] localSizes;
+
+	/*
+	 * The statements left to resolve in each open block, innermost first.
+	 */
+	private final ArrayDeque<Iterator<Statement>> openBlocks = new ArrayDeque<>();
+
+	/**
+	 * Resolves a program, which must have passed the SemanticAnalyzer, setting the slot of every
+	 * node that has one.
+	 *
+	 * @param program the top-level statements of the program
+	 * @throws ExecutionException if a variable or method is not defined, or a literal is out of
+	 *                            range
+	 */
+	Resolver(List<Statement> program) {
+		for (int type = 0; type < Frame.TYPES; type++) {
+			constants.add(new ArrayList<>());
+		}
+		enterScope();
+
+		// Methods can be called before they are declared
+		for (var statement : program) {
+			if (statement instanceof MethodDeclaration md) {
+				md.setSlot(methods.size());
+				methodIndexes.put(md.getIdentifier(), methods.size());
+				methods.add(md);
+			}
+		}
+
+		// Every global is in scope in every method, like in the SemanticAnalyzer
+		for (var statement : program) {
+			if (!(statement instanceof MethodDeclaration)) {
+				globalStatements.add(statement);
+				statement.accept(this);
+			}
+		}
+		for (var md : methods) {
+			md.accept(this);
+		}
+	}
+
+	/**
+	 * Returns the top-level statements that are not method declarations, in order.
+	 *
+	 * @return the statements initializing the globals
+	 */
+	List<Statement> getGlobalStatements() {
+		return globalStatements;
+	}
+
+	/**
+	 * Returns the methods of the program, indexed by the slots of their declarations and calls.
+	 *
+	 * @return the method declarations
+	 */
+	List<MethodDeclaration> getMethods() {
+		return methods;
+	}
+
+	/**
+	 * Returns the index of a method.
+	 *
+	 * @param name the name of the method
+	 * @return the index, or null if there is no such method
+	 */
+	Integer getMethodIndex(String name) {
+		return methodIndexes.get(name);
+	}
+
+	/**
+	 * Returns the slot of a global variable.
+	 *
+	 * @param name the name of the variable
+	 * @return the slot, or null if there is no such global
+	 */
+	Integer getGlobalSlot(String name) {
+		return globalSlots.get(name);
+	}
+
+	/**
+	 * Returns the slots of the global variables.
+	 *
+	 * @return the slots, by name
+	 */
+	Map<String, Integer> getGlobalSlots() {
+		return globalSlots;
+	}
+
+	/**
+	 * Returns the number of slots of each type the frame of a method needs.
+	 *
+	 * @param method the index of the method
+	 * @return the sizes, indexed by type code
+	 */
+	int[] getFrameSizes(int method) {
+		return frameSizes.get(method);
+	}
+
+	/**
+	 * Returns the number of slots of each type the globals need.
+	 *
+	 * @return the sizes, indexed by type code
+	 */
+	int[] getGlobalSizes() {
+		return globalSizes;
+	}
+
+	/**
+	 * Creates the frame holding the value of every literal of the program.
+	 *
+	 * @return the frame of constants
+	 * @throws ExecutionException if a numeric literal is out of range
+	 */
+	Frame createConstants() {
+		var sizes = new int[Frame.TYPES];
+		for (int type = 0; type < Frame.TYPES; type++) {
+			sizes[type] = constants.get(type).size();
+		}
+		var frame = new Frame(sizes);
+		for (int i = 0; i < sizes[Frame.INT]; i++) {
+			var literal = constants.get(Frame.INT).get(i);
+			try {
+				frame.ints[i] = Integer.parseInt(literal);
+			} catch (NumberFormatException e) {
+				throw new ExecutionException("Invalid int literal: " + literal);
+			}
+		}
+		for (int i = 0; i < sizes[Frame.DOUBLE]; i++) {
+			frame.doubles[i] = Double.parseDouble(constants.get(Frame.DOUBLE).get(i));
+		}
+		for (int i = 0; i < sizes[Frame.BOOLEAN]; i++) {
+			frame.booleans[i] = constants.get(Frame.BOOLEAN).get(i).equals("true");
+		}
+		for (int i = 0; i < sizes[Frame.CHAR]; i++) {
+			frame.chars[i] = constants.get(Frame.CHAR).get(i).charAt(1);
+		}
+		for (int i = 0; i < sizes[Frame.STRING]; i++) {
+			var literal = constants.get(Frame.STRING).get(i);
+			frame.strings[i] = literal.substring(1, literal.length() - 1);
+		}
+		return frame;
+	}
+
+	/**
+	 * Resolves the statements of a block, opening a scope for every nested block.
+	 *
+	 * @param bl The block to resolve.
+	 */
+	@Override
+	public void visitBlock(Block bl) {
+		int outer = openBlocks.size();
+		openBlocks.push(bl.getStatements().iterator());
+		while (openBlocks.size() > outer) {
+			var statements = openBlocks.peek();
+			if (statements.hasNext()) {
+				statements.next().accept(this);
+			}
+			else {
+				openBlocks.pop();
+				if (openBlocks.size() > outer) {
+					exitBlockScope();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Resolves the condition and the body of an if statement.
+	 *
+	 * @param is The if statement to resolve.
+	 */
+	@Override
+	public void visitIfStatement(IfStatement is) {
+		is.getCondition().accept(this);
+		visitNestedBlock(is.getBody());
+	}
+
+	/**
+	 * Binds a method parameter to a slot of its method's frame.
+	 *
+	 * @param ma The method argument to resolve.
+	 */
+	@Override
+	public void visitMethodArgument(MethodArgument ma) {
+		ma.setSlot(define(ma.getType(), ma.getIdentifier(), ma.getId()));
+	}
+
+	/**
+	 * Binds a method call to the called method, and resolves its arguments.
+	 *
+	 * @param mc The method call to resolve.
+	 */
+	@Override
+	public void visitMethodCall(MethodCall mc) {
+		var index = methodIndexes.get(mc.getIdentifier());
+		if (index == null) {
+			throw new ExecutionException("Undefined method: " + mc.getIdentifier());
+		}
+		int parameters = methods.get(index).getArguments().size();
+		if (mc.getArguments().size() != parameters) {
+			throw new ExecutionException("Method " + mc.getIdentifier() + " expects " +
+			                             parameters + " arguments, got " +
+			                             mc.getArguments().size());
+		}
+		mc.setSlot(index);
+		for (var argument : mc.getArguments()) {
+			argument.accept(this);
+		}
+	}
+
+	/**
+	 * Resolves a method: its parameters and body share the first scope of its frame.
+	 *
+	 * @param md The method declaration to resolve.
+	 */
+	@Override
+	public void visitMethodDeclaration(MethodDeclaration md) {
+		if (scopeCount > 1) {
+			throw new ExecutionException("Method " + md.getIdentifier() +
+			                             " cannot be declared inside another method");
+		}
+		localCounts = new int[Frame.TYPES];
+		localSizes = new int[Frame.TYPES];
+		enterScope();
+		for (var argument : md.getArguments()) {
+			argument.accept(this);
+		}
+		md.getBody().accept(this);
+		exitScope();
+		frameSizes.add(localSizes);
+	}
+
+	/**
+	 * Resolves nothing: a return statement has no operands.
+	 *
+	 * @param rs The return statement.
+	 */
+	@Override
+	public void visitReturnStatement(ReturnStatement rs) {}
+
+	/**
+	 * Binds an assignment to the slot of its variable, and resolves the assigned value.
+	 *
+	 * @param va The variable assignment to resolve.
+	 */
+	@Override
+	public void visitVariableAssignment(VariableAssignment va) {
+		va.getExpression().accept(this);
+		va.setSlot(resolve(va.getIdentifier(), va.getId()));
+	}
+
+	/**
+	 * Binds a declaration to a new slot, after resolving its initializer, which still sees the
+	 * variables the declared one may shadow.
+	 *
+	 * @param vs The variable declaration to resolve.
+	 */
+	@Override
+	public void visitVariableDeclaration(VariableDeclaration vs) {
+		if (vs.getInitializer() != null) {
+			vs.getInitializer().accept(this);
+		}
+		vs.setSlot(define(vs.getType(), vs.getIdentifier(), vs.getId()));
+	}
+
+	/**
+	 * Resolves the condition and the body of a while statement.
+	 *
+	 * @param ws The while statement to resolve.
+	 */
+	@Override
+	public void visitWhileStatement(WhileStatement ws) {
+		ws.getCondition().accept(this);
+		visitNestedBlock(ws.getBody());
+	}
+
+	/**
+	 * Binds a literal to a new slot of the frame of constants.
+	 *
+	 * @param le The literal expression to resolve.
+	 * @return null
+	 */
+	@Override
+	public Void visitLiteralExpression(LiteralExpression le) {
+		int type = switch (le.getLiteral().getType()) {
+			case INT_LITERAL -> Frame.INT;
+			case DOUBLE_LITERAL -> Frame.DOUBLE;
+			case BOOLEAN_LITERAL -> Frame.BOOLEAN;
+			case CHAR_LITERAL -> Frame.CHAR;
+			case STRING_LITERAL -> Frame.STRING;
+			default -> throw new ExecutionException("Invalid literal");
+		};
+		var values = constants.get(type);
+		le.setSlot(Frame.slot(type, Frame.CONSTANT, values.size()));
+		values.add(le.getLiteral().getValue());
+		return null;
+	}
+
+	/**
+	 * Binds a variable expression to the slot of its variable.
+	 *
+	 * @param ve The variable expression to resolve.
+	 * @return null
+	 */
+	@Override
+	public Void visitVariableExpression(VariableExpression ve) {
+		ve.setSlot(resolve(ve.getIdentifier(), ve.getId()));
+		return null;
+	}
+
+	/**
+	 * Resolves the operands of a logical expression, walking down its left operands without
+	 * recursion.
+	 *
+	 * @param le The logical expression to resolve.
+	 * @return null
+	 */
+	@Override
+	public Void visitLogicalExpression(LogicalExpression le) {
+		Expression operand = le;
+		while (operand instanceof LogicalExpression logical) {
+			logical.getRight().accept(this);
+			operand = logical.getLeft();
+		}
+		return operand.accept(this);
+	}
+
+	/*
+	 * Resolves the body of an if or while statement in a new scope, pushing it on the open
+	 * blocks when inside a block.
+	 */
+	private void visitNestedBlock(Block body) {
+		enterScope();
+		savedCounts.push(localCounts.clone());
+		if (!openBlocks.isEmpty()) {
+			openBlocks.push(body.getStatements().iterator());
+			return;
+		}
+		body.accept(this);
+		exitBlockScope();
+	}
+
+	/*
+	 * Closes the innermost block scope, freeing the slots of its variables.
+	 */
+	private void exitBlockScope() {
+		exitScope();
+		localCounts = savedCounts.pop();
+	}
+
+	/*
+	 * Opens a scope.
+	 */
+	private void enterScope() {
+		if (scopeCount == scopeStarts.length) {
+			scopeStarts = Arrays.copyOf(scopeStarts, scopeCount * 2);
+		}
+		scopeStarts[scopeCount++] = bindingCount;
+	}
+
+	/*
+	 * Closes the innermost scope, unbinding its variables.
+	 */
+	private void exitScope() {
+		int start = scopeStarts[--scopeCount];
+		while (bindingCount > start) {
+			bindingCount--;
+			innermost[bindingIds[bindingCount]] = bindingOuters[bindingCount];
+		}
+	}
+
+	/*
+	 * Defines a variable in the innermost scope, in a new slot of the globals or of the frame of
+	 * the method being resolved.
+	 */
+	private int define(TokenType declaredType, String identifier, int id) {
+		int type = Frame.typeCode(declaredType);
+		int slot;
+		if (scopeCount == 1) {
+			slot = Frame.slot(type, Frame.GLOBAL, globalSizes[type]++);
+			globalSlots.put(identifier, slot);
+		}
+		else {
+			slot = Frame.slot(type, Frame.LOCAL, localCounts[type]++);
+			localSizes[type] = Math.max(localSizes[type], localCounts[type]);
+		}
+		if (id >= innermost.length) {
+			innermost = Arrays.copyOf(innermost, Math.max(id + 1, innermost.length * 2));
+		}
+		if (bindingCount == bindingIds.length) {
+			bindingIds = Arrays.copyOf(bindingIds, bindingCount * 2);
+			bindingSlots = Arrays.copyOf(bindingSlots, bindingCount * 2);
+			bindingOuters = Arrays.copyOf(bindingOuters, bindingCount * 2);
+		}
+		bindingIds[bindingCount] = id;
+		bindingSlots[bindingCount] = slot;
+		bindingOuters[bindingCount] = innermost[id];
+		innermost[id] = ++bindingCount;
+		return slot;
+	}
+
+	/*
+	 * Returns the slot of the innermost variable with the given name.
+	 */
+	private int resolve(String identifier, int id) {
+		if (id >= innermost.length || innermost[id] == 0) {
+			throw new ExecutionException("Undefined variable: " + identifier);
+		}
+		return bindingSlots[innermost[id] - 1];
+	}
+}
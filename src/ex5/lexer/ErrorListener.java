@@ -0,0 +1,21 @@
+package ex5.lexer;
+
+/**
+ * Receives the errors found by a phase that recovers from them instead of stopping at the first
+ * one: the lexer, the parser and the semantic analyzer can all report to the same listener.
+ *
+ * @author galart27
+ * @author noam_wein
+ */
+public interface ErrorListener {
+
+	/**
+	 * Reports an error, after which the phase goes on looking for more unless told to stop.
+	 *
+	 * @param offset where the error is, as the offset in the source text of the start of its
+	 *               token or statement, or -1 if it is unknown
+	 * @param error  the error, as the phase would have thrown it
+	 * @return true to go on, false to stop, in which case the phase throws the error
+	 */
+	boolean report(int offset, RuntimeException error);
+}
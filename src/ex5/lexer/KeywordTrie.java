@@ -0,0 +1,103 @@
+package ex5.lexer;
+
+import java.util.Arrays;
+
+/**
+ * A small array-backed trie over ASCII characters, used by the lexer to recognize keywords
+ * without allocating a lexeme first.
+ *
+ * @author galart27
+ * @author noam_wein
+ */
+final class KeywordTrie {
+
+	private static final int ALPHABET = 128;
+
+	private int[][] children = new int[8][];
+	private TokenType[] accepts = new TokenType[8];
+	private int[] depths = new int[8];
+	private int size = 1;
+
+	/**
+	 * Constructs an empty KeywordTrie.
+	 */
+	KeywordTrie() {
+		children[0] = new int[ALPHABET];
+	}
+
+	/**
+	 * Inserts a keyword into the trie.
+	 *
+	 * @param word the keyword, made of ASCII characters only
+	 * @param type the token type produced when the keyword is found
+	 */
+	void insert(String word, TokenType type) {
+		int node = 0;
+		for (int i = 0; i < word.length(); i++) {
+			char c = word.charAt(i);
+			if (children[node][c] == 0) {
+				children[node][c] = newNode(i + 1);
+			}
+			node = children[node][c];
+		}
+		accepts[node] = type;
+	}
+
+	/**
+	 * Finds the keyword starting at the given position of the input.
+	 * No keyword is a prefix of another one, so the first accepting node reached is the only
+	 * possible match, just like the first matching pattern in TokenType order.
+	 *
+	 * @param input the input to look at
+	 * @param from  the index of the first character
+	 * @param to    the index after the last character that may be read
+	 * @return the accepting node of the keyword, or 0 if no keyword starts at that position
+	 */
+	int match(char[] input, int from, int to) {
+		int node = 0;
+		for (int i = from; i < to; i++) {
+			char c = input[i];
+			if (c >= ALPHABET || (node = children[node][c]) == 0) {
+				return 0;
+			}
+			if (accepts[node] != null) {
+				return node;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Returns the token type of an accepting node.
+	 *
+	 * @param node a node returned by match
+	 * @return the keyword's token type
+	 */
+	TokenType typeOf(int node) {
+		return accepts[node];
+	}
+
+	/**
+	 * Returns the length of the keyword ending at an accepting node.
+	 *
+	 * @param node a node returned by match
+	 * @return the keyword's length
+	 */
+	int lengthOf(int node) {
+		return depths[node];
+	}
+
+	/*
+	 * Allocates a new node, growing the backing arrays when needed.
+	 */
+	private int newNode(int depth) {
+		if (size == children.length) {
+			children = Arrays.copyOf(children, size * 2);
+			accepts = Arrays.copyOf(accepts, size * 2);
+			depths = Arrays.copyOf(depths, size * 2);
+		}
+		children[size] = new int[ALPHABET];
+		depths[size] = depth;
+		return size++;
+	}
+}
@@ -0,0 +1,32 @@
+package ex5.lexer;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * A Flight Recorder event for tokenizing a batch of lines into a token buffer, either a whole
+ * file or one chunk of a file lexed in parallel. Lines lexed lazily while parsing are not
+ * recorded on their own; their time is part of the parse event.
+ *
+ * @author galart27
+ * @author noam_wein
+ */
+@Name("ex5.Lex")
+@Label("Lex")
+@Category("Sjavac")
+@Description("Tokenizing a batch of source lines")
+@Threshold("10 ms")
+final class LexEvent extends Event {
+
+	@Label("Characters")
+	@Description("The number of characters tokenized")
+	int characters;
+
+	@Label("Tokens")
+	@Description("The number of tokens produced")
+	int tokens;
+}
@@ -1,16 +1,38 @@
 package ex5.lexer;
 
+import java.nio.CharBuffer;
 import java.util.*;
 
 /**
  * A simple lexer that tokenizes an input string into a list of tokens.
+ * The scanner walks every line once, character by character, and produces the same tokens as
+ * matching the TokenType patterns in declaration order would.
  *
  * @author galart27
  * @author noam_wein
  */
 public final class Lexer {
 
+	private static final KeywordTrie KEYWORDS = new KeywordTrie();
+
+	static {
+		for (var type : TokenType.values()) {
+			var lexeme = type.getLexeme();
+			if (lexeme != null && Character.isLetter(lexeme.charAt(0))) {
+				KEYWORDS.insert(lexeme, type);
+			}
+		}
+		KEYWORDS.insert("true", TokenType.BOOLEAN_LITERAL);
+		KEYWORDS.insert("false", TokenType.BOOLEAN_LITERAL);
+	}
+
 	private int pos;
+	private TokenType type;
+
+	/*
+	 * Where unknown tokens are reported while recovering from them, or null to throw them.
+	 */
+	private ErrorListener listener;
 
 	/**
 	 * Constructs a Lexer
@@ -24,51 +46,331 @@ public final class Lexer {
 	 * @throws UnknownTokenException if an unknown token is encountered
 	 */
 	public List<Token> tokenize(String line) {
-		var tokens = new ArrayList<Token>();
-		pos = 0;
+		var buffer = new TokenBuffer();
+		tokenize(line, buffer);
+		return buffer.toList();
+	}
 
-		skipWhitespace(line);
+	/**
+	 * Tokenizes the input line into the given token buffer.
+	 * The line is appended to the buffer's shared text, and the tokens only record offsets into it.
+	 *
+	 * @param line the input line
+	 * @param out  the buffer to append the tokens to
+	 * @throws UnknownTokenException if an unknown token is encountered
+	 */
+	public void tokenize(CharSequence line, TokenBuffer out) {
+		int base = out.appendText(line);
+		tokenizeLine(out.text(), base, base + line.length(), out);
+	}
+
+	/*
+	 * Tokenizes a single line held by text at [start, end), appending it to the buffer's text.
+	 */
+	void tokenize(char[] text, int start, int end, TokenBuffer out) {
+		int base = out.appendText(text, start, end - start);
+		tokenizeLine(out.text(), base, base + end - start, out);
+	}
+
+	/**
+	 * Tokenizes a whole source file, straight from its characters.
+	 * Lines are split like BufferedReader.readLine does, and blank lines and lines starting with
+	 * "//" are skipped. The returned buffer uses the source characters as its shared text.
+	 *
+	 * @param source the source file's characters
+	 * @return a buffer holding the tokens of every line
+	 * @throws UnknownTokenException if an unknown token is encountered
+	 */
+	public TokenBuffer tokenize(CharBuffer source) {
+		var out = TokenBuffer.wrap(source);
+		tokenizeLines(out.text(), 0, out.textLength(), out);
+		return out;
+	}
 
-		while (pos < line.length()) {
-			var remaining = line.substring(pos);
+	/**
+	 * Tokenizes a whole source file, stopping at the first unknown token instead of throwing it.
+	 * The returned buffer then holds the tokens of every line before that token and reports it
+	 * through getError, and its token sources throw it once they read past the last token, at
+	 * the same point as a source lexing lazily would.
+	 *
+	 * @param source the source file's characters
+	 * @return a buffer holding the tokens of every line lexed
+	 */
+	public TokenBuffer lex(CharBuffer source) {
+		var out = TokenBuffer.wrap(source);
+		try {
+			tokenizeLines(out.text(), 0, out.textLength(), out);
+		} catch (UnknownTokenException e) {
+			out.fail(e);
+		}
+		return out;
+	}
 
-			var token = currentToken(remaining);
-			tokens.add(token);
-			pos += token.getValue().length();
+	/**
+	 * Tokenizes a whole source file, reporting every unknown token to the listener instead of
+	 * throwing it. An unknown token is skipped, and the rest of its line is still tokenized.
+	 *
+	 * @param source   the source file's characters
+	 * @param listener the listener to report unknown tokens to, at the offset where they start
+	 * @return a buffer holding the tokens of every line, without the unknown ones
+	 * @throws UnknownTokenException if the listener asks to stop
+	 */
+	public TokenBuffer lex(CharBuffer source, ErrorListener listener) {
+		this.listener = listener;
+		try {
+			return tokenize(source);
+		} finally {
+			this.listener = null;
+		}
+	}
 
-			skipWhitespace(line);
+	/**
+	 * Tokenizes the lines held by the buffer's text at [from, to), which must start at a line
+	 * boundary and end at one or at the end of the text.
+	 * If a line holds an unknown token, the tokens already added for that line are removed
+	 * before the exception is thrown, so the buffer ends with the last complete line.
+	 * The batch is recorded as a LexEvent when Flight Recorder is on.
+	 *
+	 * @param text the buffer's text
+	 * @param from the index of the first character of the first line
+	 * @param to   the index after the last line, including its line terminator
+	 * @param out  the buffer to append the tokens to
+	 * @throws UnknownTokenException if an unknown token is encountered
+	 */
+	void tokenizeLines(char[] text, int from, int to, TokenBuffer out) {
+		var event = new LexEvent();
+		event.begin();
+		int tokens = out.size();
+		try {
+			tokenizeLinesUnrecorded(text, from, to, out);
+		} finally {
+			if (event.shouldCommit()) {
+				event.characters = to - from;
+				event.tokens = out.size() - tokens;
+				event.commit();
+			}
 		}
+	}
 
-		// Add a newline token at the end of each line
-		tokens.add(new Token(TokenType.NEWLINE, "\n"));
-		return tokens;
+	/*
+	 * Tokenizes the lines held by the buffer's text at [from, to) like tokenizeLines, without
+	 * recording a LexEvent.
+	 */
+	private void tokenizeLinesUnrecorded(char[] text, int from, int to, TokenBuffer out) {
+		int lineStart = from;
+		while (lineStart < to) {
+			int lineEnd = lineStart;
+			while (lineEnd < to && text[lineEnd] != '\n' && text[lineEnd] != '\r') {
+				lineEnd++;
+			}
+
+			if (!isSkippedLine(text, lineStart, lineEnd)) {
+				int lineTokens = out.size();
+				try {
+					tokenizeLine(text, lineStart, lineEnd, out);
+				} catch (UnknownTokenException e) {
+					out.truncate(lineTokens);
+					throw e;
+				}
+			}
+
+			lineStart = lineEnd + 1;
+			if (lineEnd < to && text[lineEnd] == '\r' &&
+			    lineStart < to && text[lineStart] == '\n') {
+				lineStart++;
+			}
+		}
 	}
 
+	/*
+	 * Tokenizes the characters of a single line, which the buffer's text holds at [start, end).
+	 */
+	private void tokenizeLine(char[] text, int start, int end, TokenBuffer out) {
+		pos = start;
+
+		skipWhitespace(text, end);
+
+		while (pos < end) {
+			int tokenEnd;
+			try {
+				tokenEnd = scanToken(text, start, end);
+			} catch (UnknownTokenException e) {
+				if (listener == null || !listener.report(pos, e)) {
+					throw e;
+				}
+				// Skips the unknown token as if it were whitespace, so the line still ends
+				// with its own braces and newline
+				while (pos < end && !isRegexWhitespace(text[pos])) {
+					pos++;
+				}
+				skipWhitespace(text, end);
+				continue;
+			}
+			out.add(type, pos, tokenEnd);
+			pos = tokenEnd;
+
+			skipWhitespace(text, end);
+		}
+
+		// Add a newline token at the end of each line
+		out.add(TokenType.NEWLINE, pos, pos);
+	}
 
 	/**
-	 * Identifies the current token from the input string.
+	 * Identifies the token starting at the current position and stores its type.
 	 *
-	 * @param input the remaining input string
-	 * @return the identified token
+	 * @param text      the characters to scan
+	 * @param lineStart the index where the current line starts
+	 * @param len       the index where the current line ends
+	 * @return the index right after the identified token
 	 * @throws UnknownTokenException if no valid token is found
 	 */
-	private Token currentToken(String input) {
-		for (var type : TokenType.values()) {
-			var matcher = type.getPattern().matcher(input);
-			if (matcher.lookingAt()) {
-				var value = matcher.group();
-				return new Token(type, value);
+	private int scanToken(char[] text, int lineStart, int len) {
+		char c = text[pos];
+
+		if (isAsciiLetter(c)) {
+			int keyword = KEYWORDS.match(text, pos, len);
+			if (keyword != 0) {
+				return single(KEYWORDS.typeOf(keyword), pos + KEYWORDS.lengthOf(keyword));
+			}
+		}
+		if (isAsciiLetter(c) || c == '_') {
+			int end = pos + 1;
+			while (end < len && isIdentifierPart(text[end])) {
+				end++;
+			}
+			type = TokenType.IDENTIFIER;
+			return end;
+		}
+
+		switch (c) {
+			case '+', '-', '.', '0', '1', '2', '3', '4', '5', '6', '7', '8', '9' -> {
+				int end = scanNumber(text, len);
+				if (end > pos) return end;
+			}
+			case '"' -> {
+				int close = pos + 1;
+				while (close < len && text[close] != '"') {
+					close++;
+				}
+				if (close < len) return single(TokenType.STRING_LITERAL, close + 1);
+			}
+			case '\'' -> {
+				if (pos + 2 < len && text[pos + 1] != '\'' && text[pos + 2] == '\'') {
+					return single(TokenType.CHAR_LITERAL, pos + 3);
+				}
+			}
+			case '|' -> {
+				if (pos + 1 < len && text[pos + 1] == '|') return single(TokenType.OR, pos + 2);
+			}
+			case '&' -> {
+				if (pos + 1 < len && text[pos + 1] == '&') return single(TokenType.AND, pos + 2);
+			}
+			case '(' -> {return single(TokenType.LPAREN, pos + 1);}
+			case ')' -> {return single(TokenType.RPAREN, pos + 1);}
+			case '{' -> {return single(TokenType.LBRACE, pos + 1);}
+			case '}' -> {return single(TokenType.RBRACE, pos + 1);}
+			case ';' -> {return single(TokenType.SEMICOLON, pos + 1);}
+			case ',' -> {return single(TokenType.COMMA, pos + 1);}
+			case '\n' -> {return single(TokenType.NEWLINE, pos + 1);}
+			case '=' -> {return single(TokenType.ASSIGN, pos + 1);}
+			default -> {
+			}
+		}
+
+		int end = pos;
+		while (end < len && !isRegexWhitespace(text[end])) {
+			end++;
+		}
+		throw new UnknownTokenException("Unknown token " + new String(text, pos, end - pos) +
+		                                " at position " + (pos - lineStart));
+	}
+
+	/*
+	 * Scans a signed int or double literal, preferring a double like the pattern order does.
+	 * Returns the current position if no number starts here.
+	 */
+	private int scanNumber(char[] text, int len) {
+		int start = pos;
+		char c = text[start];
+		if (c == '+' || c == '-') {
+			start++;
+		}
+
+		int intEnd = skipDigits(text, start, len);
+		if (intEnd < len && text[intEnd] == '.') {
+			int fracEnd = skipDigits(text, intEnd + 1, len);
+			if (intEnd > start || fracEnd > intEnd + 1) {
+				type = TokenType.DOUBLE_LITERAL;
+				return fracEnd;
+			}
+		}
+		if (intEnd > start) {
+			type = TokenType.INT_LITERAL;
+			return intEnd;
+		}
+		return pos;
+	}
+
+	/*
+	 * Stores the type of a token whose end is already known and returns that end.
+	 */
+	private int single(TokenType type, int end) {
+		this.type = type;
+		return end;
+	}
+
+	/*
+	 * Returns the index of the first non-digit at or after from.
+	 */
+	private static int skipDigits(char[] text, int from, int to) {
+		while (from < to && text[from] >= '0' && text[from] <= '9') {
+			from++;
+		}
+		return from;
+	}
+
+	/*
+	 * Checks for the characters matched by [A-Za-z].
+	 */
+	private static boolean isAsciiLetter(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+	}
+
+	/*
+	 * Checks for the characters matched by [A-Za-z0-9_].
+	 */
+	private static boolean isIdentifierPart(char c) {
+		return isAsciiLetter(c) || (c >= '0' && c <= '9') || c == '_';
+	}
+
+	/*
+	 * Checks for the characters matched by \s, used to cut the lexeme of an unknown token.
+	 */
+	private static boolean isRegexWhitespace(char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+	}
+
+	/*
+	 * Checks for lines that are not lexed at all: blank lines and "//" comments.
+	 */
+	static boolean isSkippedLine(char[] text, int start, int end) {
+		if (end - start >= 2 && text[start] == '/' && text[start + 1] == '/') {
+			return true;
+		}
+		for (int i = start; i < end; i++) {
+			if (!Character.isWhitespace(text[i])) {
+				return false;
 			}
 		}
-		var token = input.split("\\s+")[0];
-		throw new UnknownTokenException("Unknown token " + token + " at position " + pos);
+		return true;
 	}
 
 	/**
-	 * Skips whitespace characters in the input line.
+	 * Skips whitespace characters in the current line.
 	 */
-	private void skipWhitespace(String line) {
-		while (pos < line.length() && Character.isWhitespace(line.charAt(pos))) {
+	private void skipWhitespace(char[] text, int end) {
+		while (pos < end && Character.isWhitespace(text[pos])) {
 			pos++;
 		}
 	}
@@ -0,0 +1,171 @@
+package ex5.lexer;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * A token source that lexes its input lazily, one line at a time, as the parser pulls tokens.
+ * Only a small window of decoded characters and the tokens of the current line are kept in
+ * memory, no matter how large the input is.
+ *
+ * @author galart27
+ * @author noam_wein
+ */
+public final class LexerTokenSource implements TokenSource {
+
+	private static final int WINDOW = 8192;
+
+	private final Lexer lexer = new Lexer();
+	private final TokenBuffer line;
+	private final ByteBuffer input;
+	private final CharsetDecoder decoder;
+
+	private CharBuffer chars = CharBuffer.allocate(WINDOW).flip();
+	private boolean decoded;
+	private boolean endOfInput;
+	private int index;
+
+	/**
+	 * Constructs a LexerTokenSource reading the given encoded input.
+	 *
+	 * @param input   the whole input, e.g. a memory-mapped file
+	 * @param charset the charset the input is encoded with
+	 */
+	public LexerTokenSource(ByteBuffer input, Charset charset) {
+		this.line = new TokenBuffer();
+		this.input = input;
+		this.decoder = charset.newDecoder()
+		                      .onMalformedInput(CodingErrorAction.REPLACE)
+		                      .onUnmappableCharacter(CodingErrorAction.REPLACE);
+	}
+
+	/**
+	 * Constructs a LexerTokenSource reading the already decoded characters text[start, end).
+	 *
+	 * @param text  the characters to lex
+	 * @param start the index of the first character
+	 * @param end   the index after the last character
+	 * @param names the table to intern the identifiers in
+	 */
+	public LexerTokenSource(char[] text, int start, int end, NameTable names) {
+		this.line = new TokenBuffer(names);
+		this.input = null;
+		this.decoder = null;
+		this.chars = CharBuffer.wrap(text, start, end - start);
+		this.decoded = true;
+		this.endOfInput = true;
+	}
+
+	/**
+	 * Returns the position right after the last line that has been split off and lexed.
+	 * For a source over a character array, this is an index into that array.
+	 *
+	 * @return the position of the next unread line
+	 */
+	public int position() {
+		return chars.position();
+	}
+
+	/**
+	 * Reads the next token, lexing the next non-skipped line when the current one is used up.
+	 *
+	 * @return the next token, or null at the end of the input
+	 * @throws UnknownTokenException if an unknown token is encountered
+	 */
+	@Override
+	public Token next() {
+		while (index >= line.size()) {
+			if (!readLine()) {
+				return null;
+			}
+		}
+		return line.getToken(index++);
+	}
+
+	/**
+	 * Returns the table the identifiers are interned in.
+	 *
+	 * @return the name table
+	 */
+	@Override
+	public NameTable getNames() {
+		return line.getNames();
+	}
+
+	/*
+	 * Splits the next line off the decoded window, the way BufferedReader.readLine does, and
+	 * lexes it unless it is blank or a comment. Returns false at the end of the input.
+	 */
+	private boolean readLine() {
+		while (true) {
+			char[] text = chars.array();
+			int start = chars.position();
+			int limit = chars.limit();
+
+			int end = start;
+			while (end < limit && text[end] != '\n' && text[end] != '\r') {
+				end++;
+			}
+
+			if (end < limit) {
+				// A '\r' at the end of the window may be the first half of "\r\n"
+				if (text[end] == '\r' && end + 1 == limit && !endOfInput) {
+					decodeMore();
+					continue;
+				}
+				int next = end + 1;
+				if (text[end] == '\r' && next < limit && text[next] == '\n') {
+					next++;
+				}
+				chars.position(next);
+				lexLine(text, start, end);
+				return true;
+			}
+
+			if (endOfInput) {
+				if (start == limit) {
+					return false;
+				}
+				chars.position(limit);
+				lexLine(text, start, limit);
+				return true;
+			}
+			decodeMore();
+		}
+	}
+
+	/*
+	 * Replaces the current line's tokens with the tokens of text[start, end).
+	 */
+	private void lexLine(char[] text, int start, int end) {
+		line.clear();
+		index = 0;
+		if (!Lexer.isSkippedLine(text, start, end)) {
+			lexer.tokenize(text, start, end, line);
+		}
+	}
+
+	/*
+	 * Decodes more input into the window, growing it only when a single line does not fit.
+	 */
+	private void decodeMore() {
+		chars.compact();
+		if (!chars.hasRemaining()) {
+			var larger = CharBuffer.allocate(chars.capacity() * 2);
+			chars.flip();
+			chars = larger.put(chars);
+		}
+
+		// The whole input is already in the buffer, so every call sees the end of the input
+		if (!decoded && decoder.decode(input, chars, true).isUnderflow()) {
+			decoded = true;
+		}
+		if (decoded && decoder.flush(chars).isUnderflow()) {
+			endOfInput = true;
+		}
+		chars.flip();
+	}
+}
@@ -0,0 +1,155 @@
+package ex5.lexer;
+
+import java.util.Arrays;
+
+/**
+ * Interns identifiers, giving every distinct name a dense int id, starting at 0.
+ * Names are looked up straight from the lexer's characters, so an identifier that was seen
+ * before costs neither a String nor a Token; all its occurrences share one of each.
+ *
+ * @author galart27
+ * @author noam_wein
+ */
+public final class NameTable {
+
+	private String[] names = new String[64];
+	private int[] hashes = new int[64];
+	private Token[] tokens = new Token[64];
+	private int size = 0;
+
+	/*
+	 * Open addressing hash table holding id + 1 for every name, 0 for a free slot.
+	 */
+	private int[] slots = new int[128];
+
+	/**
+	 * Constructs an empty NameTable.
+	 */
+	public NameTable() {}
+
+	/**
+	 * Returns the id of the name held by text[start, end), adding it if it is new.
+	 *
+	 * @param text  the characters holding the name
+	 * @param start the index of the first character
+	 * @param end   the index after the last character
+	 * @return the name's id
+	 */
+	public int intern(char[] text, int start, int end) {
+		int hash = 0;
+		for (int i = start; i < end; i++) {
+			hash = 31 * hash + text[i];
+		}
+
+		int mask = slots.length - 1;
+		for (int slot = spread(hash) & mask; ; slot = (slot + 1) & mask) {
+			int id = slots[slot] - 1;
+			if (id < 0) {
+				id = add(new String(text, start, end - start), hash);
+				slots[slot] = id + 1;
+				if (size * 2 > slots.length) {
+					rehash();
+				}
+				return id;
+			}
+			if (hashes[id] == hash && matches(names[id], text, start, end)) {
+				return id;
+			}
+		}
+	}
+
+	/**
+	 * Returns the id of the given name, adding it if it is new.
+	 *
+	 * @param name the name
+	 * @return the name's id
+	 */
+	public int intern(String name) {
+		return intern(name.toCharArray(), 0, name.length());
+	}
+
+	/**
+	 * Returns the name with the given id.
+	 *
+	 * @param id an id returned by intern
+	 * @return the name
+	 */
+	public String nameOf(int id) {
+		return names[id];
+	}
+
+	/**
+	 * Returns the number of distinct names, which is also the first unused id.
+	 *
+	 * @return the number of names
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the identifier token of the name with the given id, shared by all its occurrences.
+	 *
+	 * @param id an id returned by intern
+	 * @return the identifier token
+	 */
+	Token tokenOf(int id) {
+		var token = tokens[id];
+		if (token == null) {
+			token = new Token(TokenType.IDENTIFIER, names[id], id);
+			tokens[id] = token;
+		}
+		return token;
+	}
+
+	/*
+	 * Stores a new name and returns its id.
+	 */
+	private int add(String name, int hash) {
+		if (size == names.length) {
+			names = Arrays.copyOf(names, size * 2);
+			hashes = Arrays.copyOf(hashes, size * 2);
+			tokens = Arrays.copyOf(tokens, size * 2);
+		}
+		names[size] = name;
+		hashes[size] = hash;
+		return size++;
+	}
+
+	/*
+	 * Doubles the hash table, reinserting every id.
+	 */
+	private void rehash() {
+		slots = new int[slots.length * 2];
+		int mask = slots.length - 1;
+		for (int id = 0; id < size; id++) {
+			int slot = spread(hashes[id]) & mask;
+			while (slots[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			slots[slot] = id + 1;
+		}
+	}
+
+	/*
+	 * Mixes the high bits of a hash into the low bits used to pick a slot.
+	 */
+	private static int spread(int hash) {
+		return hash ^ (hash >>> 16);
+	}
+
+	/*
+	 * Checks if a name equals the characters text[start, end).
+	 */
+	private static boolean matches(String name, char[] text, int start, int end) {
+		if (name.length() != end - start) {
+			return false;
+		}
+		for (int i = 0; i < name.length(); i++) {
+			if (name.charAt(i) != text[start + i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,148 @@
+package ex5.lexer;
+
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Tokenizes a whole source file on a fork-join pool.
+ * Lines are lexed independently of each other, so the file is split at line boundaries into
+ * chunks that are tokenized concurrently, each by its own Lexer into its own buffer, and the
+ * buffers are then concatenated in order. The tokens, name ids and reported error are the same
+ * as Lexer.tokenize gives.
+ *
+ * @author galart27
+ * @author noam_wein
+ */
+public final class ParallelLexer {
+
+	/*
+	 * Smaller chunks cost more to schedule and merge than they save.
+	 */
+	private static final int MIN_CHUNK = 1 << 16;
+
+	/*
+	 * Chunks per thread, so that chunks with denser lines still balance out.
+	 */
+	private static final int CHUNKS_PER_THREAD = 4;
+
+	/*
+	 * Utility class, not meant to be instantiated.
+	 */
+	private ParallelLexer() {}
+
+	/**
+	 * Tokenizes a whole source file, like Lexer.tokenize does, on the given pool.
+	 *
+	 * @param source the source file's characters
+	 * @param pool   the pool to tokenize the chunks on
+	 * @return a buffer holding the tokens of every line
+	 * @throws UnknownTokenException for the first unknown token in the file
+	 */
+	public static TokenBuffer tokenize(CharBuffer source, ForkJoinPool pool) {
+		var out = lex(source, pool);
+		if (out.getError() != null) {
+			throw out.getError();
+		}
+		return out;
+	}
+
+	/**
+	 * Tokenizes a whole source file on the given pool, stopping at the first unknown token.
+	 * The returned buffer then holds the tokens of every line before that token and reports it
+	 * through getError, and its token sources throw it once they read past the last token, at
+	 * the same point as a source lexing lazily would.
+	 *
+	 * @param source the source file's characters
+	 * @param pool   the pool to tokenize the chunks on
+	 * @return a buffer holding the tokens of every line lexed
+	 */
+	public static TokenBuffer lex(CharBuffer source, ForkJoinPool pool) {
+		var out = TokenBuffer.wrap(source);
+		var error = tokenize(out, pool);
+		if (error != null) {
+			out.fail(error);
+		}
+		return out;
+	}
+
+	/**
+	 * Tokenizes a whole source file on the given pool, and returns a token source over the
+	 * tokens, which throws the first lexing error after the last token before it.
+	 *
+	 * @param source the source file's characters
+	 * @param pool   the pool to tokenize the chunks on
+	 * @return a token source over the file's tokens
+	 */
+	public static TokenSource stream(CharBuffer source, ForkJoinPool pool) {
+		return lex(source, pool).source();
+	}
+
+	/*
+	 * Tokenizes the buffer's text into it, chunk by chunk. Returns the first error in file
+	 * order, with the buffer holding every line before it, or null.
+	 */
+	private static UnknownTokenException tokenize(TokenBuffer out, ForkJoinPool pool) {
+		char[] text = out.text();
+		int length = out.textLength();
+		int chunks = Math.max(1, Math.min(pool.getParallelism() * CHUNKS_PER_THREAD,
+		                                  length / MIN_CHUNK));
+
+		var buffers = new ArrayList<TokenBuffer>(chunks);
+		var tasks = new ArrayList<ForkJoinTask<UnknownTokenException>>(chunks);
+		int from = 0;
+		for (int c = 1; c <= chunks && from < length; c++) {
+			int to = c == chunks ? length : lineBoundary(text, (int) ((long) length * c / chunks),
+			                                             length);
+			if (to <= from) {
+				continue;
+			}
+
+			var buffer = new TokenBuffer(text, length, new NameTable());
+			int start = from;
+			buffers.add(buffer);
+			tasks.add(pool.submit(() -> {
+				try {
+					new Lexer().tokenizeLines(text, start, to, buffer);
+					return null;
+				} catch (UnknownTokenException e) {
+					return e;
+				}
+			}));
+			from = to;
+		}
+
+		for (int c = 0; c < tasks.size(); c++) {
+			var error = tasks.get(c).join();
+			out.addAll(buffers.get(c));
+			if (error != null) {
+				for (int rest = c + 1; rest < tasks.size(); rest++) {
+					tasks.get(rest).cancel(false);
+				}
+				return error;
+			}
+		}
+		return null;
+	}
+
+	/*
+	 * Returns the index of the first line start at or after from, never splitting "\r\n".
+	 */
+	private static int lineBoundary(char[] text, int from, int length) {
+		int i = from;
+		if (i > 0 && text[i - 1] == '\r' && i < length && text[i] == '\n') {
+			return i + 1;
+		}
+		if (i > 0 && (text[i - 1] == '\n' || text[i - 1] == '\r')) {
+			return i;
+		}
+		while (i < length && text[i] != '\n' && text[i] != '\r') {
+			i++;
+		}
+		if (i < length && text[i] == '\r' && i + 1 < length && text[i + 1] == '\n') {
+			return i + 2;
+		}
+		return Math.min(i + 1, length);
+	}
+}
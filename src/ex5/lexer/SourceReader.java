@@ -0,0 +1,91 @@
+package ex5.lexer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads source files for the lexer by memory-mapping them.
+ * The mapped bytes are either decoded in a single pass into one character buffer, or lexed
+ * lazily as a stream; neither builds a String per line.
+ *
+ * @author galart27
+ * @author noam_wein
+ */
+public final class SourceReader {
+
+	/*
+	 * Utility class, not meant to be instantiated.
+	 */
+	private SourceReader() {}
+
+	/**
+	 * Memory-maps the given file and decodes it with the platform charset, like FileReader does.
+	 *
+	 * @param path the file to read
+	 * @return the file's characters
+	 * @throws IOException if the file cannot be read
+	 */
+	public static CharBuffer map(Path path) throws IOException {
+		return decode(mapBytes(path));
+	}
+
+	/**
+	 * Decodes the bytes of a file with the platform charset, like FileReader does.
+	 *
+	 * @param bytes the file's bytes, as returned by mapBytes
+	 * @return the file's characters
+	 * @throws IOException if the bytes cannot be decoded
+	 */
+	public static CharBuffer decode(ByteBuffer bytes) throws IOException {
+		return Charset.defaultCharset()
+		              .newDecoder()
+		              .onMalformedInput(CodingErrorAction.REPLACE)
+		              .onUnmappableCharacter(CodingErrorAction.REPLACE)
+		              .decode(bytes.duplicate());
+	}
+
+	/**
+	 * Memory-maps the given file and returns a token source that lexes it lazily.
+	 * Unlike map, the file is never decoded as a whole, so memory use does not grow with its size.
+	 *
+	 * @param path the file to read
+	 * @return a token source over the file's tokens
+	 * @throws IOException if the file cannot be read
+	 */
+	public static TokenSource stream(Path path) throws IOException {
+		return stream(mapBytes(path));
+	}
+
+	/**
+	 * Returns a token source that lexes the bytes of a file lazily.
+	 *
+	 * @param bytes the file's bytes, as returned by mapBytes
+	 * @return a token source over the file's tokens
+	 */
+	public static TokenSource stream(ByteBuffer bytes) {
+		return new LexerTokenSource(bytes.duplicate(), Charset.defaultCharset());
+	}
+
+	/**
+	 * Memory-maps the whole file read-only. The mapping stays valid after the file is closed.
+	 *
+	 * @param path the file to read
+	 * @return the file's bytes
+	 * @throws IOException if the file cannot be read
+	 */
+	public static ByteBuffer mapBytes(Path path) throws IOException {
+		try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE) {
+				throw new IOException("File too large: " + path);
+			}
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+		}
+	}
+}
@@ -10,6 +10,7 @@ public final class Token {
 
 	private final TokenType type;
 	private final String value;
+	private final int id;
 
 	/**
 	 * Constructs a Token with the given type and value.
@@ -18,8 +19,20 @@ public final class Token {
 	 * @param value the string value of the token
 	 */
 	public Token(TokenType type, String value) {
+		this(type, value, -1);
+	}
+
+	/**
+	 * Constructs a Token with the given type, value and interned name id.
+	 *
+	 * @param type  the type of the token
+	 * @param value the string value of the token
+	 * @param id    the id of the value in a NameTable, or -1 if it is not a name
+	 */
+	public Token(TokenType type, String value, int id) {
 		this.type = type;
 		this.value = value;
+		this.id = id;
 	}
 
 	/**
@@ -39,5 +52,14 @@ public final class Token {
 	public String getValue() {
 		return value;
 	}
+
+	/**
+	 * Returns the id of an identifier's name in the NameTable of the lexer that produced it.
+	 *
+	 * @return the name id, or -1 if the token is not an interned identifier
+	 */
+	public int getId() {
+		return id;
+	}
 }
 
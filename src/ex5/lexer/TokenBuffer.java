@@ -0,0 +1,398 @@
+package ex5.lexer;
+
+import java.nio.CharBuffer;
+import java.util.*;
+
+/**
+ * A compact buffer of tokens stored as parallel primitive arrays.
+ * Every token is a type ordinal plus start/end offsets into one shared character buffer, and its
+ * lexeme is only turned into a String when somebody asks for it. Identifiers are interned in a
+ * NameTable as they are added, and also store their name id.
+ *
+ * @author galart27
+ * @author noam_wein
+ */
+public final class TokenBuffer {
+
+	private static final TokenType[] TYPES = TokenType.values();
+	private static final Token[] FIXED_TOKENS = new Token[TYPES.length];
+
+	static {
+		for (var type : TYPES) {
+			if (type.getLexeme() != null) {
+				FIXED_TOKENS[type.ordinal()] = new Token(type, type.getLexeme());
+			}
+		}
+	}
+
+	private final NameTable names;
+	private char[] text;
+	private int textLength;
+
+	private byte[] types;
+	private int[] starts;
+	private int[] ends;
+	private int[] ids;
+	private int size;
+	private UnknownTokenException error;
+
+	/**
+	 * Constructs an empty TokenBuffer with a name table of its own.
+	 */
+	public TokenBuffer() {
+		this(new NameTable());
+	}
+
+	/**
+	 * Constructs an empty TokenBuffer interning its identifiers in the given name table.
+	 *
+	 * @param names the name table
+	 */
+	public TokenBuffer(NameTable names) {
+		this.names = names;
+		text = new char[256];
+		types = new byte[64];
+		starts = new int[64];
+		ends = new int[64];
+		ids = new int[64];
+	}
+
+	/*
+	 * Constructs an empty TokenBuffer over existing text, which it shares with other buffers.
+	 */
+	TokenBuffer(char[] text, int textLength, NameTable names) {
+		this(names);
+		this.text = text;
+		this.textLength = textLength;
+	}
+
+	/**
+	 * Creates an empty TokenBuffer whose shared text is the given source.
+	 * A heap buffer's backing array is used directly; other buffers are copied once.
+	 *
+	 * @param source the characters the tokens will point into
+	 * @return a new TokenBuffer
+	 */
+	public static TokenBuffer wrap(CharBuffer source) {
+		var buffer = new TokenBuffer();
+		if (source.hasArray() && source.arrayOffset() == 0 && source.position() == 0) {
+			buffer.text = source.array();
+			buffer.textLength = source.limit();
+		}
+		else {
+			buffer.appendText(source);
+		}
+		return buffer;
+	}
+
+	/**
+	 * Creates a TokenBuffer holding the given tokens, in order.
+	 *
+	 * @param tokens the tokens to copy
+	 * @return a new TokenBuffer
+	 */
+	public static TokenBuffer of(List<Token> tokens) {
+		var buffer = new TokenBuffer();
+		for (var token : tokens) {
+			int start = buffer.appendText(token.getValue());
+			buffer.add(token.getType(), start, buffer.textLength);
+		}
+		return buffer;
+	}
+
+	/**
+	 * Appends characters to the shared text buffer.
+	 *
+	 * @param chars the characters to append
+	 * @return the offset of the first appended character
+	 */
+	public int appendText(CharSequence chars) {
+		int start = textLength;
+		int needed = textLength + chars.length();
+		if (needed > text.length) {
+			text = Arrays.copyOf(text, Math.max(needed, text.length * 2));
+		}
+		for (int i = 0; i < chars.length(); i++) {
+			text[textLength++] = chars.charAt(i);
+		}
+		return start;
+	}
+
+	/**
+	 * Appends a range of a character array to the shared text buffer.
+	 *
+	 * @param chars  the array holding the characters to append
+	 * @param offset the index of the first character to append
+	 * @param length the number of characters to append
+	 * @return the offset of the first appended character
+	 */
+	public int appendText(char[] chars, int offset, int length) {
+		int start = textLength;
+		if (textLength + length > text.length) {
+			text = Arrays.copyOf(text, Math.max(textLength + length, text.length * 2));
+		}
+		System.arraycopy(chars, offset, text, textLength, length);
+		textLength += length;
+		return start;
+	}
+
+	/**
+	 * Adds a token whose lexeme spans the given range of the shared text buffer.
+	 *
+	 * @param type  the token type
+	 * @param start the offset of the first character of the lexeme
+	 * @param end   the offset after the last character of the lexeme
+	 */
+	public void add(TokenType type, int start, int end) {
+		if (size == types.length) {
+			int capacity = size * 2;
+			types = Arrays.copyOf(types, capacity);
+			starts = Arrays.copyOf(starts, capacity);
+			ends = Arrays.copyOf(ends, capacity);
+			ids = Arrays.copyOf(ids, capacity);
+		}
+		types[size] = (byte) type.ordinal();
+		starts[size] = start;
+		ends[size] = end;
+		ids[size] = type == TokenType.IDENTIFIER ? names.intern(text, start, end) : -1;
+		size++;
+	}
+
+	/**
+	 * Appends all the tokens of another buffer over the same text, moving their identifiers
+	 * into this buffer's name table. Names new to this table get ids in the other table's order.
+	 *
+	 * @param other a buffer sharing this buffer's text
+	 */
+	void addAll(TokenBuffer other) {
+		var remap = new int[other.names.size()];
+		for (int id = 0; id < remap.length; id++) {
+			remap[id] = names.intern(other.names.nameOf(id));
+		}
+
+		int needed = size + other.size;
+		if (needed > types.length) {
+			int capacity = Math.max(needed, types.length * 2);
+			types = Arrays.copyOf(types, capacity);
+			starts = Arrays.copyOf(starts, capacity);
+			ends = Arrays.copyOf(ends, capacity);
+			ids = Arrays.copyOf(ids, capacity);
+		}
+		System.arraycopy(other.types, 0, types, size, other.size);
+		System.arraycopy(other.starts, 0, starts, size, other.size);
+		System.arraycopy(other.ends, 0, ends, size, other.size);
+		for (int i = 0; i < other.size; i++) {
+			int id = other.ids[i];
+			ids[size + i] = id < 0 ? -1 : remap[id];
+		}
+		size = needed;
+	}
+
+	/**
+	 * Records the error that stopped lexing right after the last token of the buffer.
+	 *
+	 * @param error the lexing error
+	 */
+	void fail(UnknownTokenException error) {
+		this.error = error;
+	}
+
+	/**
+	 * Returns the error that stopped lexing right after the last token of the buffer.
+	 * Token sources reaching the end of such a buffer throw it instead of returning null.
+	 *
+	 * @return the lexing error, or null if the whole input was lexed
+	 */
+	public UnknownTokenException getError() {
+		return error;
+	}
+
+	/**
+	 * Removes the tokens from the given index on, keeping the text.
+	 *
+	 * @param size the number of tokens to keep
+	 */
+	void truncate(int size) {
+		this.size = size;
+	}
+
+	/**
+	 * Removes all the tokens and text from the buffer, keeping its capacity.
+	 * The name table is kept too, so ids stay valid across clears.
+	 */
+	public void clear() {
+		size = 0;
+		textLength = 0;
+		error = null;
+	}
+
+	/**
+	 * Returns the shared text buffer, for the lexer to scan in place.
+	 *
+	 * @return the backing character array
+	 */
+	char[] text() {
+		return text;
+	}
+
+	/**
+	 * Returns the number of characters used in the shared text buffer.
+	 *
+	 * @return the text length
+	 */
+	int textLength() {
+		return textLength;
+	}
+
+	/**
+	 * Returns the number of tokens in the buffer.
+	 *
+	 * @return the token count
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the type of the token at the given index.
+	 *
+	 * @param index the token index
+	 * @return the token type
+	 */
+	public TokenType getType(int index) {
+		return TYPES[types[index]];
+	}
+
+	/**
+	 * Returns the offset where the lexeme of the token at the given index starts.
+	 *
+	 * @param index the token index
+	 * @return the start offset in the shared text buffer
+	 */
+	public int getStart(int index) {
+		return starts[index];
+	}
+
+	/**
+	 * Returns the offset after the lexeme of the token at the given index.
+	 *
+	 * @param index the token index
+	 * @return the end offset in the shared text buffer
+	 */
+	public int getEnd(int index) {
+		return ends[index];
+	}
+
+	/**
+	 * Returns the name id of the token at the given index.
+	 *
+	 * @param index the token index
+	 * @return the id in the name table, or -1 if the token is not an identifier
+	 */
+	public int getId(int index) {
+		return ids[index];
+	}
+
+	/**
+	 * Returns the table the identifier ids refer to.
+	 *
+	 * @return the name table
+	 */
+	public NameTable getNames() {
+		return names;
+	}
+
+	/**
+	 * Returns the lexeme of the token at the given index, building it if it is not fixed.
+	 * Identifiers return their interned name.
+	 *
+	 * @param index the token index
+	 * @return the token value
+	 */
+	public String getValue(int index) {
+		var lexeme = getType(index).getLexeme();
+		if (lexeme != null) {
+			return lexeme;
+		}
+		if (ids[index] >= 0) {
+			return names.nameOf(ids[index]);
+		}
+		return new String(text, starts[index], ends[index] - starts[index]);
+	}
+
+	/**
+	 * Returns the token at the given index as a Token object.
+	 * Tokens with a fixed lexeme and identifiers are shared, so only literals are allocated.
+	 *
+	 * @param index the token index
+	 * @return the token
+	 */
+	public Token getToken(int index) {
+		var fixed = FIXED_TOKENS[types[index]];
+		if (fixed != null) {
+			return fixed;
+		}
+		if (ids[index] >= 0) {
+			return names.tokenOf(ids[index]);
+		}
+		return new Token(getType(index), getValue(index));
+	}
+
+	/**
+	 * Returns a token source reading the tokens of the buffer in order.
+	 *
+	 * @return a new token source
+	 */
+	public TokenSource source() {
+		return source(0, size);
+	}
+
+	/**
+	 * Returns a token source reading the tokens in the given index range, in order.
+	 * If the range ends at the end of a buffer that failed lexing, reading past its last token
+	 * throws the lexing error.
+	 *
+	 * @param from the index of the first token
+	 * @param to   the index after the last token
+	 * @return a new token source
+	 */
+	public TokenSource source(int from, int to) {
+		return new TokenSource() {
+			private int index = from;
+
+			@Override
+			public Token next() {
+				if (index < to) {
+					return getToken(index++);
+				}
+				if (to == size && error != null) {
+					throw error;
+				}
+				return null;
+			}
+
+			@Override
+			public int getOffset() {
+				return index > from ? starts[index - 1] : -1;
+			}
+
+			@Override
+			public NameTable getNames() {
+				return names;
+			}
+		};
+	}
+
+	/**
+	 * Returns all the tokens in the buffer as a list of Token objects.
+	 *
+	 * @return a new list of tokens
+	 */
+	public List<Token> toList() {
+		var tokens = new ArrayList<Token>(size);
+		for (int i = 0; i < size; i++) {
+			tokens.add(getToken(i));
+		}
+		return tokens;
+	}
+}
@@ -0,0 +1,34 @@
+package ex5.lexer;
+
+/**
+ * A pull-based source of tokens, read one token at a time.
+ *
+ * @author galart27
+ * @author noam_wein
+ */
+public interface TokenSource {
+
+	/**
+	 * Reads the next token.
+	 *
+	 * @return the next token, or null if there are no tokens left
+	 * @throws UnknownTokenException if the source lexes lazily and hits an unknown token
+	 */
+	Token next();
+
+	/**
+	 * Returns where the token last returned by next starts in the source text.
+	 *
+	 * @return the offset of the token's first character, or -1 if the source does not know it
+	 */
+	default int getOffset() {
+		return -1;
+	}
+
+	/**
+	 * Returns the table the ids of the identifier tokens refer to.
+	 *
+	 * @return the name table
+	 */
+	NameTable getNames();
+}
@@ -11,18 +11,18 @@ import java.util.regex.*;
 public enum TokenType {
 
 	// Keywords
-	IF("if"),
-	WHILE("while"),
-	RETURN("return"),
-	FINAL("final"),
+	IF("if", "if"),
+	WHILE("while", "while"),
+	RETURN("return", "return"),
+	FINAL("final", "final"),
 
 	// Types
-	VOID("void"),
-	INT("int"),
-	DOUBLE("double"),
-	STRING("String"),
-	BOOLEAN("boolean"),
-	CHAR("char"),
+	VOID("void", "void"),
+	INT("int", "int"),
+	DOUBLE("double", "double"),
+	STRING("String", "String"),
+	BOOLEAN("boolean", "boolean"),
+	CHAR("char", "char"),
 
 	// Literals
 	DOUBLE_LITERAL("[+-]?(\\d*\\.\\d+|\\d+\\.\\d*)"),
@@ -36,26 +36,38 @@ public enum TokenType {
 
 
 	// Symbols
-	OR("\\|\\|"),
-	AND("&&"),
-	LPAREN("\\("),
-	RPAREN("\\)"),
-	LBRACE("\\{"),
-	RBRACE("\\}"),
-	SEMICOLON(";"),
-	COMMA(","),
-	NEWLINE("\\n"),
-	ASSIGN("=");
+	OR("\\|\\|", "||"),
+	AND("&&", "&&"),
+	LPAREN("\\(", "("),
+	RPAREN("\\)", ")"),
+	LBRACE("\\{", "{"),
+	RBRACE("\\}", "}"),
+	SEMICOLON(";", ";"),
+	COMMA(",", ","),
+	NEWLINE("\\n", "\n"),
+	ASSIGN("=", "=");
 
 	private final Pattern pattern;
+	private final String lexeme;
 
 	/**
-	 * Constructs a TokenType with the given regex pattern.
+	 * Constructs a TokenType with the given regex pattern and a variable lexeme.
 	 *
 	 * @param regex the regex pattern for the token type
 	 */
 	TokenType(String regex) {
+		this(regex, null);
+	}
+
+	/**
+	 * Constructs a TokenType with the given regex pattern and fixed lexeme.
+	 *
+	 * @param regex  the regex pattern for the token type
+	 * @param lexeme the only text this token type can match, or null if it varies
+	 */
+	TokenType(String regex, String lexeme) {
 		this.pattern = Pattern.compile(regex);
+		this.lexeme = lexeme;
 	}
 
 	/**
@@ -66,4 +78,13 @@ public enum TokenType {
 	public Pattern getPattern() {
 		return pattern;
 	}
+
+	/**
+	 * Returns the fixed lexeme of the token type, e.g. "while" or ";".
+	 *
+	 * @return the fixed lexeme, or null for literals and identifiers
+	 */
+	public String getLexeme() {
+		return lexeme;
+	}
 }
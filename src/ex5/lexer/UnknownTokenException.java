@@ -2,6 +2,8 @@ package ex5.lexer;
 
 /**
  * An exception thrown when an unknown token is encountered during lexing.
+ * It has no stack trace: it describes the input, not where the lexer was, and a batch of
+ * invalid files should not pay for filling one in.
  *
  * @author galart27
  * @author noam_wein
@@ -14,6 +16,6 @@ public class UnknownTokenException extends RuntimeException {
 	 * @param message the exception message
 	 */
 	public UnknownTokenException(String message) {
-		super(message);
+		super(message, null, false, false);
 	}
 }
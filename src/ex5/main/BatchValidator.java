@@ -0,0 +1,176 @@
+package ex5.main;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Validates many .sjava files concurrently on a fork-join pool inside a single JVM.
+ * Verdicts are printed in input order, each as soon as it and all the files before it are done.
+ * With a VerdictCache, files whose content was validated before are not validated again.
+ *
+ * @author galart27
+ * @author noam_wein
+ */
+public final class BatchValidator {
+
+	private final ForkJoinPool pool;
+	private final VerdictCache cache;
+
+	/**
+	 * Constructs a BatchValidator using the given number of worker threads.
+	 *
+	 * @param parallelism the number of files validated at the same time
+	 */
+	public BatchValidator(int parallelism) {
+		this(parallelism, null);
+	}
+
+	/**
+	 * Constructs a BatchValidator using the given number of worker threads and verdict cache.
+	 *
+	 * @param parallelism the number of files validated at the same time
+	 * @param cache       the cache of verdicts, or null to validate every file
+	 */
+	public BatchValidator(int parallelism, VerdictCache cache) {
+		pool = new ForkJoinPool(parallelism);
+		this.cache = cache;
+	}
+
+	/**
+	 * Expands the given paths into the list of files to validate.
+	 * Directories are searched recursively for .sjava files, in sorted order; other paths are
+	 * kept as they are, in the order given.
+	 *
+	 * @param paths the files and directories given on the command line
+	 * @return the files to validate
+	 * @throws IOException if a directory cannot be read
+	 */
+	public static List<Path> collectFiles(List<Path> paths) throws IOException {
+		var files = new ArrayList<Path>();
+		for (var path : paths) {
+			if (!Files.isDirectory(path)) {
+				files.add(path);
+				continue;
+			}
+			try (var walk = Files.walk(path)) {
+				walk.filter(p -> Files.isRegularFile(p) && p.toString().endsWith(".sjava"))
+				    .sorted()
+				    .forEach(files::add);
+			}
+		}
+		return files;
+	}
+
+	/**
+	 * Validates the given files and prints one "path code" line per file on out, in order.
+	 * The message of every illegal or unreadable file is printed on err.
+	 *
+	 * @param files the files to validate
+	 * @param out   the stream for the verdict codes
+	 * @param err   the stream for the error messages
+	 */
+	public void run(List<Path> files, PrintStream out, PrintStream err) {
+		var tasks = new ArrayList<ForkJoinTask<Verdict>>(files.size());
+		for (var file : files) {
+			tasks.add(pool.submit(() -> cache != null ? cache.validate(file, null) :
+			                            Validator.validate(file)));
+		}
+
+		for (int i = 0; i < files.size(); i++) {
+			print(files.get(i), tasks.get(i).join(), out, err);
+		}
+	}
+
+	/**
+	 * Validates the given files like run, measuring the phases of every file instead of using
+	 * the cache. After the error message of each file, its stats are printed on err, every line
+	 * prefixed with the file's path.
+	 *
+	 * @param files the files to validate
+	 * @param out   the stream for the verdict codes
+	 * @param err   the stream for the error messages and the stats
+	 */
+	public void runWithStats(List<Path> files, PrintStream out, PrintStream err) {
+		var stats = new ValidationStats[files.size()];
+		var tasks = new ArrayList<ForkJoinTask<Verdict>>(files.size());
+		for (int i = 0; i < files.size(); i++) {
+			var file = files.get(i);
+			var fileStats = new ValidationStats();
+			stats[i] = fileStats;
+			tasks.add(pool.submit(() -> Validator.validateWithStats(file, fileStats)));
+		}
+
+		for (int i = 0; i < files.size(); i++) {
+			var verdict = tasks.get(i).join();
+			for (var line : stats[i].toString().split("\n")) {
+				err.println(files.get(i) + ": " + line.strip());
+			}
+			print(files.get(i), verdict, out, err);
+		}
+	}
+
+	/**
+	 * Checks the given files like run, reporting every error of each file instead of the first
+	 * one, and without the cache. The errors of each file are printed on err as "path:line:
+	 * message" lines, before its "path code" line on out.
+	 *
+	 * @param files     the files to check
+	 * @param maxErrors the most errors to print for a file, the first ones by line
+	 * @param out       the stream for the verdict codes
+	 * @param err       the stream for the errors
+	 */
+	public void runWithDiagnostics(List<Path> files, int maxErrors, PrintStream out,
+	                               PrintStream err) {
+		var tasks = new ArrayList<ForkJoinTask<List<Diagnostic>>>(files.size());
+		for (var file : files) {
+			tasks.add(pool.submit(() -> Validator.diagnose(file, maxErrors)));
+		}
+
+		for (int i = 0; i < files.size(); i++) {
+			printDiagnostics(files.get(i), tasks.get(i), out, err);
+		}
+	}
+
+	/*
+	 * Prints the errors of a file checked by Validator.diagnose, and its code.
+	 */
+	private static void printDiagnostics(Path file, ForkJoinTask<List<Diagnostic>> task,
+	                                     PrintStream out, PrintStream err) {
+		List<Diagnostic> diagnostics;
+		try {
+			diagnostics = task.join();
+		} catch (RuntimeException e) {
+			// The IOException of an unreadable file comes wrapped in an unchecked exception
+			var cause = e.getCause() instanceof IOException io ? io : e;
+			print(file, Verdict.ioError(cause.getMessage()), out, err);
+			return;
+		}
+		for (var diagnostic : diagnostics) {
+			err.println(file + ":" + diagnostic.getLine() + ": " + diagnostic.getMessage());
+		}
+		out.println(file + " " + (diagnostics.isEmpty() ? Verdict.LEGAL : Verdict.ILLEGAL));
+	}
+
+	/*
+	 * Prints the verdict of a file.
+	 */
+	private static void print(Path file, Verdict verdict, PrintStream out, PrintStream err) {
+		if (verdict.getMessage() != null) {
+			err.println(file + ": " + verdict.getMessage());
+		}
+		out.println(file + " " + verdict.getCode());
+	}
+
+	/**
+	 * Stops the worker threads.
+	 */
+	public void shutdown() {
+		pool.shutdown();
+	}
+}
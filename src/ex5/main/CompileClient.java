@@ -0,0 +1,102 @@
+package ex5.main;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/**
+ * A thin client sending validation requests to a running CompileServer.
+ * It does not load the lexer, parser or analyzer, so it starts fast and leaves the actual work to
+ * the server's warm JVM.
+ *
+ * @author galart27
+ * @author noam_wein
+ */
+public final class CompileClient {
+
+	/*
+	 * Utility class, not meant to be instantiated.
+	 */
+	private CompileClient() {}
+
+	/**
+	 * Asks the server on the given port to validate a file, and prints the answer the same way
+	 * Sjavac does: the message on stderr and the 0/1/2 code on stdout.
+	 *
+	 * @param args [--port N] file.sjava
+	 */
+	public static void main(String[] args) {
+		int port = CompileServer.DEFAULT_PORT;
+		int i = 0;
+		if (args.length == 3 && args[0].equals("--port")) {
+			try {
+				port = Integer.parseInt(args[1]);
+			} catch (NumberFormatException e) {
+				port = -1;
+			}
+			i = 2;
+		}
+		if (args.length != i + 1 || !args[i].endsWith(".sjava") || port < 0 || port > 0xFFFF) {
+			System.err.println("Usage: CompileClient [--port N] <file.sjava>");
+			System.out.println(2);
+			return;
+		}
+
+		try {
+			var answer = validate(port, Path.of(args[i]));
+			if (!answer[1].isEmpty()) {
+				System.err.println(answer[1]);
+			}
+			System.out.println(answer[0]);
+		} catch (IOException e) {
+			System.err.println("Cannot reach sjavac server on port " + port + ": " + e.getMessage());
+			System.out.println(2);
+		}
+	}
+
+	/**
+	 * Sends a FILE request for the given file.
+	 *
+	 * @param port the server's port
+	 * @param file the file to validate
+	 * @return the answer: the 0/1/2 code and the message, which is empty for a legal file
+	 * @throws IOException if the server cannot be reached
+	 */
+	public static String[] validate(int port, Path file) throws IOException {
+		return request(port, "FILE " + file.toAbsolutePath() + "\n");
+	}
+
+	/**
+	 * Sends a SOURCE request for the given inline source.
+	 *
+	 * @param port   the server's port
+	 * @param source the source code to validate
+	 * @return the answer: the 0/1/2 code and the message, which is empty for a legal file
+	 * @throws IOException if the server cannot be reached
+	 */
+	public static String[] validateSource(int port, String source) throws IOException {
+		return request(port, "SOURCE " + source.length() + "\n" + source);
+	}
+
+	/*
+	 * Sends a single request and reads its two-line answer.
+	 */
+	private static String[] request(int port, String request) throws IOException {
+		try (var socket = new Socket(InetAddress.getLoopbackAddress(), port);
+		     var in = new BufferedReader(
+				     new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+		     var out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)) {
+			out.write(request);
+			out.flush();
+
+			var code = in.readLine();
+			var message = in.readLine();
+			if (code == null || message == null) {
+				throw new EOFException("Connection closed before the answer");
+			}
+			return new String[] {code, message};
+		}
+	}
+}
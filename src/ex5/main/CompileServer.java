@@ -0,0 +1,183 @@
+package ex5.main;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A long-running validation daemon listening on a loopback socket.
+ * Keeping one JVM alive lets repeated validations run on JIT-compiled code instead of paying for
+ * JVM startup and class loading every time.
+ * <p>
+ * The protocol is line based, in UTF-8. A client sends one request per line:
+ * <ul>
+ *     <li>{@code FILE <path>} validates the file at the given absolute path.</li>
+ *     <li>{@code SOURCE <length>} followed by exactly length characters validates them as the
+ *     content of a .sjava file. A length that is not a number from 0 to
+ *     {@link #MAX_SOURCE_LENGTH} is answered with a 2 and closes the connection, since the
+ *     source that follows cannot be skipped.</li>
+ *     <li>{@code STOP} stops the server.</li>
+ * </ul>
+ * Every validation is answered with two lines: the 0/1/2 code and the message, which is empty for
+ * a legal file.
+ *
+ * @author galart27
+ * @author noam_wein
+ */
+public final class CompileServer {
+
+	/**
+	 * The port used when none is given.
+	 */
+	public static final int DEFAULT_PORT = 7075;
+
+	/**
+	 * The most characters a SOURCE request may send, so that a client cannot make the server
+	 * allocate an arbitrary amount of memory.
+	 */
+	public static final int MAX_SOURCE_LENGTH = 1 << 24;
+
+	private final ServerSocket serverSocket;
+	private final ExecutorService workers = Executors.newCachedThreadPool(r -> {
+		var thread = new Thread(r, "sjavac-worker");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	/**
+	 * Constructs a CompileServer bound to the given port of the loopback interface.
+	 *
+	 * @param port the port to listen on, or 0 for any free port
+	 * @throws IOException if the socket cannot be bound
+	 */
+	public CompileServer(int port) throws IOException {
+		serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+	}
+
+	/**
+	 * Returns the port the server listens on.
+	 *
+	 * @return the local port
+	 */
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	/**
+	 * Accepts connections until a STOP request arrives, serving each one on its own worker.
+	 *
+	 * @throws IOException if accepting a connection fails
+	 */
+	public void serve() throws IOException {
+		try {
+			while (!serverSocket.isClosed()) {
+				Socket socket;
+				try {
+					socket = serverSocket.accept();
+				} catch (IOException e) {
+					if (serverSocket.isClosed()) {
+						break;
+					}
+					throw e;
+				}
+				workers.execute(() -> handle(socket));
+			}
+		} finally {
+			workers.shutdown();
+		}
+	}
+
+	/**
+	 * Stops accepting connections.
+	 */
+	public void stop() {
+		try {
+			serverSocket.close();
+		} catch (IOException ignored) {
+			// Closing is best effort, the server is going away anyway
+		}
+	}
+
+	/*
+	 * Serves the requests of a single connection until the client closes it.
+	 */
+	private void handle(Socket socket) {
+		try (socket;
+		     var in = new BufferedReader(
+				     new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+		     var out = new PrintWriter(
+				     new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+			String request;
+			while ((request = in.readLine()) != null) {
+				Verdict verdict;
+				if (request.startsWith("FILE ")) {
+					verdict = Validator.validate(Path.of(request.substring(5)));
+				}
+				else if (request.startsWith("SOURCE ")) {
+					int length = sourceLength(request.substring(7));
+					if (length < 0) {
+						answer(out, Verdict.ioError("Invalid source length: " +
+						                            request.substring(7) + " (at most " +
+						                            MAX_SOURCE_LENGTH + " chars)"));
+						return;
+					}
+					verdict = Validator.validateSource(readSource(in, length));
+				}
+				else if (request.equals("STOP")) {
+					stop();
+					return;
+				}
+				else {
+					verdict = Verdict.ioError("Unknown request: " + request);
+				}
+
+				answer(out, verdict);
+			}
+		} catch (IOException | RuntimeException e) {
+			System.err.println("sjavac server: " + e.getMessage());
+		}
+	}
+
+	/*
+	 * Sends the two-line answer to a request.
+	 */
+	private static void answer(PrintWriter out, Verdict verdict) {
+		var message = verdict.getMessage();
+		out.print(verdict.getCode() + "\n" +
+		          (message == null ? "" : message.replace('\n', ' ')) + "\n");
+		out.flush();
+	}
+
+	/*
+	 * Parses the length of a SOURCE request, or returns -1 if it is not a number or out of range.
+	 */
+	private static int sourceLength(String length) {
+		try {
+			int value = Integer.parseInt(length.trim());
+			return value <= MAX_SOURCE_LENGTH ? value : -1;
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	/*
+	 * Reads the inline source of the given length that follows a SOURCE request.
+	 */
+	private static String readSource(BufferedReader in, int remaining) throws IOException {
+		var source = new char[remaining];
+		int read = 0;
+		while (read < remaining) {
+			int n = in.read(source, read, remaining - read);
+			if (n < 0) {
+				throw new EOFException("Source ended after " + read + " of " + remaining + " chars");
+			}
+			read += n;
+		}
+		return new String(source);
+	}
+}
@@ -0,0 +1,53 @@
+package ex5.main;
+
+/**
+ * An error found in a .sjava file when all of its errors are reported instead of the first one:
+ * the line it is on and its message.
+ *
+ * @author galart27
+ * @author noam_wein
+ */
+public final class Diagnostic {
+
+	private final int line;
+	private final String message;
+
+	/**
+	 * Constructs a Diagnostic.
+	 *
+	 * @param line    the 1-based line of the error, or 0 if it is unknown
+	 * @param message the message of the error
+	 */
+	public Diagnostic(int line, String message) {
+		this.line = line;
+		this.message = message;
+	}
+
+	/**
+	 * Returns the line the error is on.
+	 *
+	 * @return the 1-based line, or 0 if it is unknown
+	 */
+	public int getLine() {
+		return line;
+	}
+
+	/**
+	 * Returns the message of the error, the same one the phase would have thrown.
+	 *
+	 * @return the message
+	 */
+	public String getMessage() {
+		return message;
+	}
+
+	/**
+	 * Returns the diagnostic as "line N: message".
+	 *
+	 * @return the formatted diagnostic
+	 */
+	@Override
+	public String toString() {
+		return "line " + line + ": " + message;
+	}
+}
@@ -0,0 +1,114 @@
+package ex5.main;
+
+import ex5.lexer.ErrorListener;
+import ex5.semantic.SemanticException;
+
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Collects the errors the lexer, parser and semantic analyzer report for one file, turning their
+ * offsets into line numbers, and keeps the first ones by line up to a maximum number.
+ * The phases do not report in line order: the whole file is lexed before it is parsed, and the
+ * globals are analyzed before the method bodies. Every error is therefore recorded, and the
+ * maximum only applies once they are sorted.
+ * A line gets at most one syntax error: once the lexer skips an unknown token, the parser
+ * usually fails on the same line too, and only the first of the two is kept.
+ *
+ * @author galart27
+ * @author noam_wein
+ */
+final class DiagnosticCollector implements ErrorListener {
+
+	private final int[] lineStarts;
+	private final int lineCount;
+	private final int maxErrors;
+	private final List<Diagnostic> diagnostics = new ArrayList<>();
+	private final BitSet syntaxErrorLines = new BitSet();
+	private int syntaxErrors = 0;
+
+	/**
+	 * Constructs a DiagnosticCollector for the given source text.
+	 *
+	 * @param source    the source text the offsets of the errors refer to
+	 * @param maxErrors the number of errors to keep, the first ones by line
+	 */
+	DiagnosticCollector(CharBuffer source, int maxErrors) {
+		this.maxErrors = maxErrors;
+		var starts = new int[64];
+		int count = 1;
+		int length = source.remaining();
+		for (int i = 0; i < length; i++) {
+			char c = source.get(source.position() + i);
+			if (c == '\r' && i + 1 < length && source.get(source.position() + i + 1) == '\n') {
+				i++;
+			}
+			else if (c != '\n' && c != '\r') {
+				continue;
+			}
+			if (count == starts.length) {
+				starts = Arrays.copyOf(starts, count * 2);
+			}
+			starts[count++] = i + 1;
+		}
+		lineStarts = starts;
+		lineCount = count;
+	}
+
+	/**
+	 * Records an error, unless it is a second syntax error on the same line.
+	 *
+	 * @param offset where the error is in the source text, or -1 if it is unknown
+	 * @param error  the error
+	 * @return true, so that the phase goes on to the errors of every line
+	 */
+	@Override
+	public boolean report(int offset, RuntimeException error) {
+		int line = lineOf(offset);
+		if (!(error instanceof SemanticException)) {
+			if (line > 0 && syntaxErrorLines.get(line)) {
+				return true;
+			}
+			syntaxErrorLines.set(line);
+			syntaxErrors++;
+		}
+		diagnostics.add(new Diagnostic(line, error.getMessage()));
+		return true;
+	}
+
+	/**
+	 * Returns the number of syntax errors recorded, reported by the lexer or the parser.
+	 *
+	 * @return the number of syntax errors
+	 */
+	int getSyntaxErrorCount() {
+		return syntaxErrors;
+	}
+
+	/**
+	 * Returns the first errors by line, up to the maximum number. Errors on the same line keep
+	 * the order they were reported in.
+	 *
+	 * @return the errors, sorted by line
+	 */
+	List<Diagnostic> getDiagnostics() {
+		var sorted = new ArrayList<>(diagnostics);
+		sorted.sort(Comparator.comparingInt(Diagnostic::getLine));
+		return sorted.size() > maxErrors ? new ArrayList<>(sorted.subList(0, maxErrors)) : sorted;
+	}
+
+	/*
+	 * Returns the 1-based line holding the given offset, or 0 if the offset is unknown.
+	 */
+	private int lineOf(int offset) {
+		if (offset < 0) {
+			return 0;
+		}
+		int index = Arrays.binarySearch(lineStarts, 0, lineCount, offset);
+		return index >= 0 ? index + 1 : -index - 1;
+	}
+}
@@ -0,0 +1,198 @@
+package ex5.main;
+
+import ex5.ast.statements.Statement;
+import ex5.lexer.LexerTokenSource;
+import ex5.lexer.NameTable;
+import ex5.lexer.UnknownTokenException;
+import ex5.parser.Parser;
+import ex5.parser.UnexpectedTokenException;
+import ex5.semantic.IncrementalAnalyzer;
+import ex5.semantic.SemanticException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Validates a document that is edited over time, such as a file open in an editor.
+ * The document is kept as a sequence of units, each holding the lines of one top-level statement
+ * (with the blank and comment lines before it) and its parsed statements. An edit re-lexes and
+ * re-parses only from the unit it starts in until the new units line up with an old unit
+ * boundary again, and the IncrementalAnalyzer then re-checks only the affected methods.
+ * Every verdict is the one Validator.validateSource would give for the whole document.
+ * Instances are not thread-safe.
+ *
+ * @author galart27
+ * @author noam_wein
+ */
+public final class IncrementalValidator {
+
+	/*
+	 * The lines of one top-level statement. A unit that failed to lex or parse has no
+	 * statements and runs to the end of the document.
+	 */
+	private record Unit(int length, List<? extends Statement> statements, String error) {}
+
+	private final NameTable names = new NameTable();
+	private final IncrementalAnalyzer analyzer = new IncrementalAnalyzer(names);
+	private final List<Unit> units = new ArrayList<>();
+	private char[] text;
+	private int textLength;
+	private Verdict verdict;
+
+	/**
+	 * Constructs an IncrementalValidator and validates the initial document.
+	 *
+	 * @param source the initial source code
+	 */
+	public IncrementalValidator(String source) {
+		text = source.toCharArray();
+		textLength = text.length;
+		reparse(0, 0, 0, 0);
+		verdict = analyze();
+	}
+
+	/**
+	 * Replaces a range of the document and validates the result.
+	 *
+	 * @param offset      the index of the first replaced character
+	 * @param length      the number of replaced characters
+	 * @param replacement the text to insert instead
+	 * @return the verdict for the edited document
+	 * @throws IndexOutOfBoundsException if the range is not within the document
+	 */
+	public Verdict edit(int offset, int length, String replacement) {
+		Objects.checkFromIndexSize(offset, length, textLength);
+
+		// Start one character early, so an edit at a unit boundary re-parses the unit before it
+		int first = 0;
+		int firstStart = 0;
+		int at = Math.max(0, offset - 1);
+		while (first < units.size() - 1 && firstStart + units.get(first).length() <= at) {
+			firstStart += units.get(first).length();
+			first++;
+		}
+
+		replaceText(offset, length, replacement);
+		reparse(first, firstStart, offset + replacement.length(), replacement.length() - length);
+		verdict = analyze();
+		return verdict;
+	}
+
+	/**
+	 * Returns the verdict for the current document.
+	 *
+	 * @return the last verdict
+	 */
+	public Verdict getVerdict() {
+		return verdict;
+	}
+
+	/**
+	 * Returns the current document.
+	 *
+	 * @return the source code
+	 */
+	public String getSource() {
+		return new String(text, 0, textLength);
+	}
+
+	/**
+	 * Returns the top-level statements of the current document.
+	 * Statements of units an edit did not reach are the same objects as before the edit.
+	 *
+	 * @return the statements, or the ones parsed before the first syntax error
+	 */
+	public List<Statement> getStatements() {
+		var statements = new ArrayList<Statement>();
+		for (var unit : units) {
+			if (unit.statements() != null) {
+				statements.addAll(unit.statements());
+			}
+		}
+		return statements;
+	}
+
+	/*
+	 * Replaces text[offset, offset + length) with the replacement.
+	 */
+	private void replaceText(int offset, int length, String replacement) {
+		int newLength = textLength - length + replacement.length();
+		if (newLength > text.length) {
+			text = Arrays.copyOf(text, Math.max(newLength, text.length * 2));
+		}
+		System.arraycopy(text, offset + length, text, offset + replacement.length(),
+		                 textLength - offset - length);
+		replacement.getChars(0, replacement.length(), text, offset);
+		textLength = newLength;
+	}
+
+	/*
+	 * Re-parses the document from the start of unit first, whose position is the same before and
+	 * after the edit. Stops once the edit is behind and the parse ends exactly where an old unit
+	 * ended, since the rest of the document is then unchanged and starts a statement of its own.
+	 */
+	private void reparse(int first, int regionStart, int editEnd, int delta) {
+		var source = new LexerTokenSource(text, regionStart, textLength, names);
+		var parser = new Parser(source);
+		var parsed = new ArrayList<Unit>();
+
+		int last = first;
+		int oldEnd = regionStart + (first < units.size() ? units.get(first).length() : 0);
+		int start = regionStart;
+		try {
+			while (true) {
+				if (start >= editEnd) {
+					while (last < units.size() - 1 && oldEnd + delta < start) {
+						last++;
+						oldEnd += units.get(last).length();
+					}
+					if (last < units.size() && oldEnd + delta == start) {
+						replaceUnits(first, last + 1, parsed);
+						return;
+					}
+				}
+
+				if (parser.isAtEnd()) {
+					if (textLength > start) {
+						parsed.add(new Unit(textLength - start, List.of(), null));
+					}
+					break;
+				}
+				var statements = parser.parseNextStatement();
+				parsed.add(new Unit(source.position() - start, statements, null));
+				start = source.position();
+			}
+		} catch (UnexpectedTokenException | UnknownTokenException e) {
+			parsed.add(new Unit(textLength - start, null, e.getMessage()));
+		}
+		replaceUnits(first, units.size(), parsed);
+	}
+
+	/*
+	 * Replaces units[from, to) with the given units.
+	 */
+	private void replaceUnits(int from, int to, List<Unit> replacement) {
+		var replaced = units.subList(from, to);
+		replaced.clear();
+		replaced.addAll(replacement);
+	}
+
+	/*
+	 * Analyzes the current statements, unless the document does not even parse.
+	 */
+	private Verdict analyze() {
+		var last = units.isEmpty() ? null : units.get(units.size() - 1);
+		if (last != null && last.error() != null) {
+			return Verdict.illegal(last.error());
+		}
+
+		try {
+			analyzer.analyze(getStatements());
+			return Verdict.legal();
+		} catch (SemanticException e) {
+			return Verdict.illegal(e.getMessage());
+		}
+	}
+}
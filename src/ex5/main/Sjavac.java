@@ -1,17 +1,11 @@
 package ex5.main;
 
-import ex5.lexer.Lexer;
-import ex5.lexer.Token;
-import ex5.lexer.UnknownTokenException;
-import ex5.parser.Parser;
-import ex5.parser.UnexpectedTokenException;
-import ex5.semantic.SemanticAnalyzer;
-import ex5.semantic.SemanticException;
-
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Main class for the Sjavac compiler.
@@ -23,40 +17,166 @@ public class Sjavac {
 
 	/**
 	 * Main method to run the Sjavac compiler.
+	 * With a single .sjava file, prints its 0/1/2 code. With several files or directories,
+	 * validates them all concurrently and prints a "path code" line for each, in order.
+	 * With --server, runs a CompileServer daemon for CompileClient to call.
+	 * With --cache dir before the paths, reuses the verdicts of unchanged files kept in dir.
+	 * With --stats before the paths, prints the time, memory and work of every phase of every
+	 * file on stderr; files are then always validated, without the cache.
+	 * With --max-errors n before the paths, reports the first n errors by line of every file on
+	 * stderr, each as "path:line: message", instead of the first one only; the cache and --stats
+	 * are then not used.
 	 *
-	 * @param args Command line arguments; expects a single argument which is the path to the
-	 *             .sjava file.
+	 * @param args Command line arguments; the paths to the .sjava files or to directories
+	 *             containing them.
 	 */
 	public static void main(String[] args) {
-		if (args.length != 1 || !args[0].endsWith(".sjava")) {
+		if (args.length >= 1 && args[0].equals("--server")) {
+			serve(args);
+			return;
+		}
+
+		VerdictCache cache = null;
+		boolean stats = false;
+		int maxErrors = 0;
+		int first = 0;
+		while (first < args.length) {
+			if (args[first].equals("--stats")) {
+				stats = true;
+				first++;
+			}
+			else if (args[first].equals("--max-errors") && first + 1 < args.length) {
+				try {
+					maxErrors = Integer.parseInt(args[first + 1]);
+				} catch (NumberFormatException e) {
+					maxErrors = 0;
+				}
+				if (maxErrors < 1) {
+					System.err.println("Invalid error count: " + args[first + 1]);
+					System.out.println(2);
+					return;
+				}
+				first += 2;
+			}
+			else if (args[first].equals("--cache") && first + 1 < args.length) {
+				try {
+					cache = new VerdictCache(Path.of(args[first + 1]), VerdictCache.DEFAULT_MAX_BYTES);
+				} catch (IOException e) {
+					// Validating without the cache still gives the right verdicts
+					System.err.println("Cache disabled: " + e.getMessage());
+				}
+				first += 2;
+			}
+			else {
+				break;
+			}
+		}
+
+		var paths = new ArrayList<Path>();
+		for (var arg : Arrays.copyOfRange(args, first, args.length)) {
+			var path = Path.of(arg);
+			if (!arg.endsWith(".sjava") && !Files.isDirectory(path)) {
+				paths.clear();
+				break;
+			}
+			paths.add(path);
+		}
+
+		if (paths.isEmpty()) {
 			System.err.println("Usage: Sjavac <file.sjava>");
+			System.err.println("       Sjavac [--stats] [--cache dir] [--max-errors n] " +
+			                   "<file.sjava | directory>...");
+			System.err.println("       Sjavac --server [port]");
 			System.out.println(2);
 			return;
 		}
 
-		try (var fileReader = new BufferedReader(new FileReader(args[0]))) {
-			var lexer = new Lexer();
-			var tokens = new ArrayList<Token>();
+		if (paths.size() == 1 && !Files.isDirectory(paths.get(0))) {
+			Verdict verdict;
+			if (maxErrors > 0) {
+				verdict = diagnose(paths.get(0), maxErrors);
+			}
+			else if (stats) {
+				var fileStats = new ValidationStats();
+				verdict = Validator.validateWithStats(paths.get(0), fileStats);
+				System.err.println(fileStats);
+			}
+			else {
+				// A single file has the cores to itself, so its method bodies are checked in parallel
+				verdict = cache != null ? cache.validate(paths.get(0), ForkJoinPool.commonPool()) :
+				          Validator.validate(paths.get(0), ForkJoinPool.commonPool());
+			}
+			if (verdict.getMessage() != null) {
+				System.err.println(verdict.getMessage());
+			}
+			System.out.println(verdict.getCode());
+			return;
+		}
 
-			var line = "";
-			while ((line = fileReader.readLine()) != null) {
-				if (line.startsWith("//") || line.isBlank()) continue;
-				tokens.addAll(lexer.tokenize(line));
+		var batch = new BatchValidator(Runtime.getRuntime().availableProcessors(), cache);
+		try {
+			var files = BatchValidator.collectFiles(paths);
+			if (maxErrors > 0) {
+				batch.runWithDiagnostics(files, maxErrors, System.out, System.err);
+			}
+			else if (stats) {
+				batch.runWithStats(files, System.out, System.err);
 			}
+			else {
+				batch.run(files, System.out, System.err);
+			}
+		} catch (IOException e) {
+			System.err.println("IO Error: " + e.getMessage());
+			System.out.println(2);
+		} finally {
+			batch.shutdown();
+		}
+	}
 
-			var statements = new Parser(tokens).parseProgram();
+	/*
+	 * Prints up to maxErrors errors of a single file on stderr, as "line N: message", and
+	 * returns its verdict, whose message is then only set if the file cannot be read.
+	 */
+	private static Verdict diagnose(Path file, int maxErrors) {
+		try {
+			var diagnostics = Validator.diagnose(file, maxErrors);
+			for (var diagnostic : diagnostics) {
+				System.err.println(diagnostic);
+			}
+			return diagnostics.isEmpty() ? Verdict.legal() : Verdict.illegal(null);
+		} catch (IOException e) {
+			return Verdict.ioError(e.getMessage());
+		}
+	}
 
-			// Debug: print the parsed statements
-			// for (var s : statements) {
-			// System.out.println(s.print());
-			//}
+	/*
+	 * Runs the validation daemon until a client asks it to stop.
+	 */
+	private static void serve(String[] args) {
+		if (args.length > 2) {
+			System.err.println("Usage: Sjavac --server [port]");
+			System.out.println(2);
+			return;
+		}
 
-			new SemanticAnalyzer().analyze(statements);
+		int port = CompileServer.DEFAULT_PORT;
+		if (args.length == 2) {
+			try {
+				port = Integer.parseInt(args[1]);
+			} catch (NumberFormatException e) {
+				port = -1;
+			}
+		}
+		if (port < 0 || port > 0xFFFF) {
+			System.err.println("Invalid port: " + args[1]);
+			System.out.println(2);
+			return;
+		}
 
-			System.out.println(0);
-		} catch (UnexpectedTokenException | UnknownTokenException | SemanticException e) {
-			System.err.println(e.getMessage());
-			System.out.println(1);
+		try {
+			var server = new CompileServer(port);
+			System.err.println("sjavac server listening on port " + server.getPort());
+			server.serve();
 		} catch (IOException e) {
 			System.err.println("IO Error: " + e.getMessage());
 			System.out.println(2);
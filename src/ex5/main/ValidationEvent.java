@@ -0,0 +1,60 @@
+package ex5.main;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+import java.nio.file.Path;
+
+/**
+ * A Flight Recorder event for validating one file, with its verdict.
+ *
+ * @author galart27
+ * @author noam_wein
+ */
+@Name("ex5.Validation")
+@Label("Validation")
+@Category("Sjavac")
+@Description("Validating one .sjava file")
+@Threshold("20 ms")
+final class ValidationEvent extends Event {
+
+	@Label("File")
+	@Description("The path of the file")
+	String file;
+
+	@Label("Code")
+	@Description("The 0/1/2 verdict code")
+	int code;
+
+	@Label("Message")
+	@Description("The error message, if the file is not legal")
+	String message;
+
+	@Label("Cached")
+	@Description("Whether the verdict came from the verdict cache")
+	boolean cached;
+
+	/**
+	 * Ends the event and commits it with the given verdict, if it is enabled and lasted longer
+	 * than its threshold.
+	 *
+	 * @param file    the validated file
+	 * @param verdict the verdict for the file
+	 * @param cached  whether the verdict came from the verdict cache
+	 * @return the verdict
+	 */
+	Verdict commit(Path file, Verdict verdict, boolean cached) {
+		if (shouldCommit()) {
+			this.file = file.toString();
+			this.code = verdict.getCode();
+			this.message = verdict.getMessage();
+			this.cached = cached;
+			commit();
+		}
+		return verdict;
+	}
+}
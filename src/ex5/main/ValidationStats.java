@@ -0,0 +1,219 @@
+package ex5.main;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Where the time and memory of validating one file went: the wall time and the bytes allocated
+ * by each phase, and counters of the work each phase did.
+ * A ValidationStats is filled in by Validator.validateWithStats and is then a snapshot that
+ * no longer changes. Allocated bytes are measured per thread with the JVM's ThreadMXBean, so the
+ * phases run in order on the calling thread while they are measured; they are -1 if the JVM
+ * cannot measure them.
+ *
+ * @author galart27
+ * @author noam_wein
+ */
+public final class ValidationStats {
+
+	/**
+	 * The phases of validating a file.
+	 */
+	public enum Phase {
+		/**
+		 * Decoding the file and tokenizing it.
+		 */
+		LEX,
+
+		/**
+		 * Building the AST from the tokens.
+		 */
+		PARSE,
+
+		/**
+		 * Checking the AST against the semantic rules.
+		 */
+		ANALYZE
+	}
+
+	private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+	private final long[] nanos = new long[Phase.values().length];
+	private final long[] allocatedBytes = new long[Phase.values().length];
+	private long tokens;
+	private long statements;
+	private long lookups;
+	private int maxScopeDepth;
+	private int methods;
+	private int scopeCopies;
+
+	private long phaseStartNanos;
+	private long phaseStartBytes;
+
+	/**
+	 * Constructs an empty ValidationStats, to pass to Validator.validateWithStats.
+	 */
+	public ValidationStats() {}
+
+	/**
+	 * Returns the wall time spent in a phase.
+	 *
+	 * @param phase the phase
+	 * @return the time in nanoseconds, 0 if the phase did not run
+	 */
+	public long getNanos(Phase phase) {
+		return nanos[phase.ordinal()];
+	}
+
+	/**
+	 * Returns the bytes allocated on the heap by a phase.
+	 *
+	 * @param phase the phase
+	 * @return the allocated bytes, 0 if the phase did not run, -1 if they cannot be measured
+	 */
+	public long getAllocatedBytes(Phase phase) {
+		return allocatedBytes[phase.ordinal()];
+	}
+
+	/**
+	 * Returns the number of tokens the lexer produced.
+	 *
+	 * @return the number of tokens
+	 */
+	public long getTokens() {
+		return tokens;
+	}
+
+	/**
+	 * Returns the number of statements the parser parsed, nested ones included.
+	 *
+	 * @return the number of statements
+	 */
+	public long getStatements() {
+		return statements;
+	}
+
+	/**
+	 * Returns the number of variable lookups in the symbol table.
+	 *
+	 * @return the number of lookups
+	 */
+	public long getLookups() {
+		return lookups;
+	}
+
+	/**
+	 * Returns the largest number of scopes open at once, not counting the global scope.
+	 *
+	 * @return the largest scope depth
+	 */
+	public int getMaxScopeDepth() {
+		return maxScopeDepth;
+	}
+
+	/**
+	 * Returns the number of method bodies analyzed.
+	 *
+	 * @return the number of methods
+	 */
+	public int getMethods() {
+		return methods;
+	}
+
+	/**
+	 * Returns the number of copies made of the global scope.
+	 *
+	 * @return the number of copies
+	 */
+	public int getScopeCopies() {
+		return scopeCopies;
+	}
+
+	/**
+	 * Returns the stats as three lines of text, one per phase, without a trailing line break.
+	 *
+	 * @return the formatted stats
+	 */
+	@Override
+	public String toString() {
+		return String.format(
+				"lex: %s, %d tokens%n" +
+				"parse: %s, %d statements%n" +
+				"analyze: %s, %d methods, %d lookups, max scope depth %d, %d scope copies",
+				phase(Phase.LEX), tokens,
+				phase(Phase.PARSE), statements,
+				phase(Phase.ANALYZE), methods, lookups, maxScopeDepth, scopeCopies);
+	}
+
+	/**
+	 * Starts measuring a phase on the current thread.
+	 */
+	void begin() {
+		phaseStartBytes = currentAllocatedBytes();
+		phaseStartNanos = System.nanoTime();
+	}
+
+	/**
+	 * Stops measuring a phase started by begin, on the same thread.
+	 *
+	 * @param phase the phase that ran
+	 */
+	void end(Phase phase) {
+		nanos[phase.ordinal()] = System.nanoTime() - phaseStartNanos;
+		long bytes = currentAllocatedBytes();
+		allocatedBytes[phase.ordinal()] = bytes < 0 ? -1 : bytes - phaseStartBytes;
+	}
+
+	/**
+	 * Records the counters of the lexer.
+	 *
+	 * @param tokens the number of tokens
+	 */
+	void recordLex(long tokens) {
+		this.tokens = tokens;
+	}
+
+	/**
+	 * Records the counters of the parser.
+	 *
+	 * @param statements the number of statements
+	 */
+	void recordParse(long statements) {
+		this.statements = statements;
+	}
+
+	/**
+	 * Records the counters of the semantic analyzer.
+	 *
+	 * @param methods       the number of methods
+	 * @param lookups       the number of variable lookups
+	 * @param maxScopeDepth the largest scope depth
+	 * @param scopeCopies   the number of global scope copies
+	 */
+	void recordAnalyze(int methods, long lookups, int maxScopeDepth, int scopeCopies) {
+		this.methods = methods;
+		this.lookups = lookups;
+		this.maxScopeDepth = maxScopeDepth;
+		this.scopeCopies = scopeCopies;
+	}
+
+	/*
+	 * Formats the time and memory of a phase.
+	 */
+	private String phase(Phase phase) {
+		var time = String.format("%.3f ms", getNanos(phase) / 1e6);
+		long bytes = getAllocatedBytes(phase);
+		return bytes < 0 ? time : time + String.format(", %.1f KB allocated", bytes / 1024.0);
+	}
+
+	/*
+	 * Returns the bytes the current thread allocated so far, or -1 if they cannot be measured.
+	 */
+	private static long currentAllocatedBytes() {
+		if (THREADS instanceof com.sun.management.ThreadMXBean threads &&
+		    threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+			return threads.getCurrentThreadAllocatedBytes();
+		}
+		return -1;
+	}
+}
@@ -0,0 +1,234 @@
+package ex5.main;
+
+import ex5.ast.statements.Statement;
+import ex5.lexer.Lexer;
+import ex5.lexer.LexerTokenSource;
+import ex5.lexer.NameTable;
+import ex5.lexer.ParallelLexer;
+import ex5.lexer.SourceReader;
+import ex5.lexer.TokenBuffer;
+import ex5.lexer.TokenSource;
+import ex5.lexer.UnknownTokenException;
+import ex5.parser.ParallelParser;
+import ex5.parser.Parser;
+import ex5.parser.UnexpectedTokenException;
+import ex5.semantic.SemanticAnalyzer;
+import ex5.semantic.SemanticException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Validates a single .sjava file through the lexer, parser and semantic analyzer.
+ * Every call uses its own Lexer, Parser and SemanticAnalyzer, so files can be validated
+ * concurrently.
+ *
+ * @author galart27
+ * @author noam_wein
+ */
+public final class Validator {
+
+	/*
+	 * Files at least this large are lexed and parsed in parallel when a pool is given; smaller
+	 * ones are lexed lazily, which needs no memory for the whole token list.
+	 */
+	private static final long PARALLEL_LEXING_SIZE = 1 << 22;
+
+	/*
+	 * Utility class, not meant to be instantiated.
+	 */
+	private Validator() {}
+
+	/**
+	 * Validates the given file.
+	 *
+	 * @param file the .sjava file to validate
+	 * @return the verdict for the file
+	 */
+	public static Verdict validate(Path file) {
+		return validate(file, null);
+	}
+
+	/**
+	 * Validates the given file, checking its method bodies in parallel on the given pool.
+	 * Large files are also tokenized in parallel, in chunks of lines, and their top-level methods
+	 * are parsed in parallel. The validation is recorded as a ValidationEvent when Flight
+	 * Recorder is on.
+	 *
+	 * @param file the .sjava file to validate
+	 * @param pool the pool to lex and analyze on, or null to do everything in order
+	 * @return the verdict for the file, the same as validate(file) gives
+	 */
+	public static Verdict validate(Path file, ForkJoinPool pool) {
+		var event = new ValidationEvent();
+		event.begin();
+		Verdict verdict;
+		try {
+			verdict = validate(SourceReader.mapBytes(file), pool);
+		} catch (IOException e) {
+			verdict = Verdict.ioError(e.getMessage());
+		}
+		return event.commit(file, verdict, false);
+	}
+
+	/**
+	 * Validates the content of a file that was already read, as validate(file, pool) does.
+	 *
+	 * @param bytes the bytes of the .sjava file, in the platform charset
+	 * @param pool  the pool to lex and analyze on, or null to do everything in order
+	 * @return the verdict for the content
+	 */
+	public static Verdict validate(ByteBuffer bytes, ForkJoinPool pool) {
+		try {
+			if (pool != null && pool.getParallelism() > 1 &&
+			    bytes.remaining() >= PARALLEL_LEXING_SIZE) {
+				return validate(ParallelLexer.lex(SourceReader.decode(bytes), pool), pool);
+			}
+			// Tokens are lexed lazily as the parser pulls them
+			return validate(SourceReader.stream(bytes), pool);
+		} catch (IOException e) {
+			return Verdict.ioError(e.getMessage());
+		}
+	}
+
+	/**
+	 * Validates the given file while measuring its phases, which then run one after the other
+	 * on the calling thread: the whole file is lexed before it is parsed.
+	 *
+	 * @param file  the .sjava file to validate
+	 * @param stats the stats to fill in
+	 * @return the verdict for the file, the same as validate(file) gives
+	 */
+	public static Verdict validateWithStats(Path file, ValidationStats stats) {
+		var event = new ValidationEvent();
+		event.begin();
+		return event.commit(file, measure(file, stats), false);
+	}
+
+	/*
+	 * Validates the given file while measuring its phases, without recording a ValidationEvent.
+	 */
+	private static Verdict measure(Path file, ValidationStats stats) {
+		try {
+			stats.begin();
+			TokenBuffer tokens;
+			try {
+				tokens = new Lexer().lex(SourceReader.map(file));
+			} finally {
+				stats.end(ValidationStats.Phase.LEX);
+			}
+			stats.recordLex(tokens.size());
+
+			var parser = new Parser(tokens.source());
+			stats.begin();
+			List<Statement> statements;
+			try {
+				statements = parser.parseProgram();
+			} finally {
+				stats.end(ValidationStats.Phase.PARSE);
+				stats.recordParse(parser.getStatementCount());
+			}
+
+			var analyzer = new SemanticAnalyzer(tokens.getNames());
+			stats.begin();
+			try {
+				analyzer.analyze(statements);
+			} finally {
+				stats.end(ValidationStats.Phase.ANALYZE);
+				stats.recordAnalyze(analyzer.getMethodCount(), analyzer.getLookupCount(),
+				                    analyzer.getMaxScopeDepth(), analyzer.getScopeCopyCount());
+			}
+			return Verdict.legal();
+		} catch (UnexpectedTokenException | UnknownTokenException | SemanticException e) {
+			return Verdict.illegal(e.getMessage());
+		} catch (IOException e) {
+			return Verdict.ioError(e.getMessage());
+		}
+	}
+
+	/**
+	 * Finds the errors of the given file instead of the first one, up to a maximum number of the
+	 * first ones by line.
+	 * Lines with syntax errors are skipped, so the syntax errors of the whole file are found;
+	 * the semantic analysis only runs if there are none, since it would otherwise report errors
+	 * caused by the skipped lines.
+	 *
+	 * @param file      the .sjava file to check
+	 * @param maxErrors the most errors to return
+	 * @return the errors, sorted by line, empty if and only if the file is legal
+	 * @throws IOException if the file cannot be read
+	 */
+	public static List<Diagnostic> diagnose(Path file, int maxErrors) throws IOException {
+		var source = SourceReader.map(file);
+		var collector = new DiagnosticCollector(source, maxErrors);
+		try {
+			var tokens = new Lexer().lex(source, collector);
+			var statements = new Parser(tokens.source()).parseProgram(collector);
+			if (collector.getSyntaxErrorCount() == 0) {
+				new SemanticAnalyzer(tokens.getNames()).analyze(statements, collector);
+			}
+		} catch (UnexpectedTokenException | UnknownTokenException | SemanticException e) {
+			// Already reported, and one that ends the file
+		}
+		return collector.getDiagnostics();
+	}
+
+	/**
+	 * Validates the given source code, as if it were the content of a .sjava file.
+	 *
+	 * @param source the source code to validate
+	 * @return the verdict for the source
+	 */
+	public static Verdict validateSource(String source) {
+		var bytes = ByteBuffer.wrap(source.getBytes(StandardCharsets.UTF_8));
+		return validate(new LexerTokenSource(bytes, StandardCharsets.UTF_8), null);
+	}
+
+	/*
+	 * Parses and analyzes the tokens of a single file.
+	 */
+	private static Verdict validate(TokenSource tokens, ForkJoinPool pool) {
+		try {
+			var statements = new Parser(tokens).parseProgram();
+
+			// Debug: print the parsed statements
+			// for (var s : statements) {
+			// System.out.println(s.print());
+			//}
+
+			analyze(statements, tokens.getNames(), pool);
+			return Verdict.legal();
+		} catch (UnexpectedTokenException | UnknownTokenException | SemanticException e) {
+			return Verdict.illegal(e.getMessage());
+		}
+	}
+
+	/*
+	 * Parses and analyzes the lexed tokens of a single file, on the given pool.
+	 */
+	private static Verdict validate(TokenBuffer tokens, ForkJoinPool pool) {
+		try {
+			var statements = ParallelParser.parseProgram(tokens, pool);
+			analyze(statements, tokens.getNames(), pool);
+			return Verdict.legal();
+		} catch (UnexpectedTokenException | UnknownTokenException | SemanticException e) {
+			return Verdict.illegal(e.getMessage());
+		}
+	}
+
+	/*
+	 * Runs the semantic analysis, on the pool if one is given.
+	 */
+	private static void analyze(List<Statement> statements, NameTable names, ForkJoinPool pool) {
+		if (pool != null) {
+			new SemanticAnalyzer(names).analyze(statements, pool);
+		}
+		else {
+			new SemanticAnalyzer(names).analyze(statements);
+		}
+	}
+}
@@ -0,0 +1,86 @@
+package ex5.main;
+
+/**
+ * The result of validating a single .sjava file: the 0/1/2 code printed by Sjavac and the
+ * message explaining it.
+ *
+ * @author galart27
+ * @author noam_wein
+ */
+public final class Verdict {
+
+	/**
+	 * The code of a legal file.
+	 */
+	public static final int LEGAL = 0;
+
+	/**
+	 * The code of an illegal file.
+	 */
+	public static final int ILLEGAL = 1;
+
+	/**
+	 * The code of a file that could not be read.
+	 */
+	public static final int IO_ERROR = 2;
+
+	private static final Verdict LEGAL_VERDICT = new Verdict(LEGAL, null);
+
+	private final int code;
+	private final String message;
+
+	/*
+	 * Constructs a Verdict with the given code and message.
+	 */
+	private Verdict(int code, String message) {
+		this.code = code;
+		this.message = message;
+	}
+
+	/**
+	 * Returns the verdict of a legal file.
+	 *
+	 * @return the legal verdict
+	 */
+	public static Verdict legal() {
+		return LEGAL_VERDICT;
+	}
+
+	/**
+	 * Returns the verdict of an illegal file.
+	 *
+	 * @param message the lexing, parsing or semantic error
+	 * @return a new illegal verdict
+	 */
+	public static Verdict illegal(String message) {
+		return new Verdict(ILLEGAL, message);
+	}
+
+	/**
+	 * Returns the verdict of a file that could not be read.
+	 *
+	 * @param message the IO error
+	 * @return a new IO error verdict
+	 */
+	public static Verdict ioError(String message) {
+		return new Verdict(IO_ERROR, "IO Error: " + message);
+	}
+
+	/**
+	 * Returns the 0/1/2 code of the verdict.
+	 *
+	 * @return the verdict code
+	 */
+	public int getCode() {
+		return code;
+	}
+
+	/**
+	 * Returns the message explaining the verdict.
+	 *
+	 * @return the message, or null for a legal file
+	 */
+	public String getMessage() {
+		return message;
+	}
+}
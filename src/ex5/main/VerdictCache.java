@@ -0,0 +1,351 @@
+package ex5.main;
+
+import ex5.lexer.SourceReader;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * A persistent cache of verdicts, kept as one small file per entry in a directory.
+ * An entry is keyed by a 128 bit hash of a file's content and by a fingerprint of the charset
+ * files are decoded with and of every compiled class of the lexer, parser, AST, semantic and
+ * main packages, so an unchanged file validated by the same rules skips lexing and parsing
+ * entirely, and changing the rules or the charset starts over with fresh entries.
+ * <p>
+ * Several processes may share the directory. Entries are written to a temporary file and then
+ * atomically renamed into place, so readers never see a partial entry, and a hit touches the
+ * entry's modification time, which eviction uses as its last access time: once the entries
+ * grow past the size bound, the least recently used ones are removed. Only files named as the
+ * cache names its entries and temporary files are ever counted or removed, so other files in
+ * the directory are left alone. The cache is only ever an optimization; any failure to read or
+ * write it falls back to validating the file. Instances are thread-safe.
+ *
+ * @author galart27
+ * @author noam_wein
+ */
+public final class VerdictCache {
+
+	/**
+	 * The size bound used when none is given, in bytes.
+	 */
+	public static final long DEFAULT_MAX_BYTES = 64L << 20;
+
+	/*
+	 * The packages whose classes decide verdicts, as resource directories. Their class files are
+	 * all fingerprinted, nested classes included, so none can be forgotten. Bump FORMAT when the
+	 * entry format changes.
+	 */
+	private static final String[] RULES = {
+			"ex5/lexer", "ex5/parser", "ex5/ast", "ex5/semantic", "ex5/main"
+	};
+	private static final int FORMAT = 1;
+
+	/*
+	 * Every entry file name ends with this; temporary files do not.
+	 */
+	private static final String SUFFIX = ".verdict";
+
+	/*
+	 * The prefix and suffix of the temporary files entries are written through.
+	 */
+	private static final String TEMP_PREFIX = "entry", TEMP_SUFFIX = ".tmp";
+
+	/*
+	 * The names of the files the cache creates: entries, named by a fingerprint and a hash of
+	 * any version so that stale entries still age out, and temporary files, named by
+	 * Files.createTempFile. Nothing else in the directory is ever counted or removed.
+	 */
+	private static final Pattern OWN_FILE = Pattern.compile(
+			"[0-9a-f]{16}-[0-9a-f]{32}" + Pattern.quote(SUFFIX) + "|" +
+			Pattern.quote(TEMP_PREFIX) + "[0-9]+" + Pattern.quote(TEMP_SUFFIX));
+
+	/*
+	 * Eviction removes entries until the cache is this fraction of its bound, so that it does
+	 * not run again for every new entry.
+	 */
+	private static final double LOW_WATER = 0.75;
+
+	private static final long SEED = 0x9E3779B97F4A7C15L;
+	private static final long MULTIPLIER = 0xC2B2AE3D27D4EB4FL;
+
+	/*
+	 * A file of the cache directory, with its size and last access time.
+	 */
+	private record CacheFile(Path path, long bytes, FileTime time) {}
+
+	/*
+	 * The files of the cache directory and their total size.
+	 */
+	private record Scan(ArrayList<CacheFile> files, long bytes) {}
+
+	private final Path directory;
+	private final long maxBytes;
+	private final String fingerprint;
+
+	/*
+	 * An estimate of the bytes in the directory: exact after every scan, then grown by the
+	 * entries this instance writes, which is enough to know when to scan again.
+	 */
+	private final AtomicLong size = new AtomicLong();
+
+	/**
+	 * Constructs a VerdictCache in the given directory, creating it if needed.
+	 *
+	 * @param directory the directory holding the entries
+	 * @param maxBytes  the bound on the total size of the entries
+	 * @throws IOException if the directory cannot be created or read
+	 */
+	public VerdictCache(Path directory, long maxBytes) throws IOException {
+		this.directory = Files.createDirectories(directory);
+		this.maxBytes = maxBytes;
+		this.fingerprint = fingerprint();
+		size.set(scan().bytes);
+	}
+
+	/**
+	 * Validates the given file, or returns its cached verdict if its content was validated
+	 * before. Files that cannot be read are never cached.
+	 *
+	 * @param file the .sjava file to validate
+	 * @param pool the pool to lex and analyze on, or null to do everything in order
+	 * @return the verdict for the file, the same as Validator.validate(file, pool) gives
+	 */
+	public Verdict validate(Path file, ForkJoinPool pool) {
+		var event = new ValidationEvent();
+		event.begin();
+		ByteBuffer bytes;
+		try {
+			bytes = SourceReader.mapBytes(file);
+		} catch (IOException e) {
+			return event.commit(file, Verdict.ioError(e.getMessage()), false);
+		}
+
+		var entry = directory.resolve(fingerprint + hash(bytes) + SUFFIX);
+		var verdict = read(entry);
+		if (verdict != null) {
+			return event.commit(file, verdict, true);
+		}
+		verdict = Validator.validate(bytes, pool);
+		if (verdict.getCode() != Verdict.IO_ERROR) {
+			write(entry, verdict);
+		}
+		return event.commit(file, verdict, false);
+	}
+
+	/**
+	 * Removes the least recently used entries until the cache is well within its bound,
+	 * along with temporary files left behind by processes that died while writing.
+	 *
+	 * @throws IOException if the directory cannot be read
+	 */
+	public void evict() throws IOException {
+		var scan = scan();
+		long bytes = scan.bytes;
+		if (bytes > maxBytes) {
+			scan.files.sort(Comparator.comparing(file -> file.time));
+			for (var file : scan.files) {
+				if (bytes <= maxBytes * LOW_WATER) {
+					break;
+				}
+				try {
+					Files.deleteIfExists(file.path);
+				} catch (IOException e) {
+					// Another process may be holding or removing it
+					continue;
+				}
+				bytes -= file.bytes;
+			}
+		}
+		size.set(bytes);
+	}
+
+	/*
+	 * Lists the entries and temporary files of the cache directory, skipping those removed while
+	 * listing and anything else that may share the directory.
+	 */
+	private Scan scan() throws IOException {
+		var files = new ArrayList<CacheFile>();
+		long bytes = 0;
+		try (var list = Files.newDirectoryStream(
+				directory, path -> OWN_FILE.matcher(path.getFileName().toString()).matches())) {
+			for (var path : list) {
+				try {
+					var attributes = Files.readAttributes(path, BasicFileAttributes.class,
+					                                      LinkOption.NOFOLLOW_LINKS);
+					if (!attributes.isRegularFile()) {
+						continue;
+					}
+					long fileBytes = attributes.size();
+					files.add(new CacheFile(path, fileBytes, attributes.lastModifiedTime()));
+					bytes += fileBytes;
+				} catch (NoSuchFileException e) {
+					// Evicted or renamed by another process
+				}
+			}
+		}
+		return new Scan(files, bytes);
+	}
+
+	/*
+	 * Reads the verdict of an entry and marks it as used, or returns null if it is missing or
+	 * unreadable.
+	 */
+	private Verdict read(Path entry) {
+		String content;
+		try {
+			content = Files.readString(entry, StandardCharsets.UTF_8);
+		} catch (IOException e) {
+			return null;
+		}
+		try {
+			Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+		} catch (IOException e) {
+			// A read-only cache still serves hits, it only loses the access time for eviction
+		}
+
+		int newline = content.indexOf('\n');
+		var code = newline < 0 ? content : content.substring(0, newline);
+		return switch (code) {
+			case "0" -> Verdict.legal();
+			case "1" -> newline < 0 ? null : Verdict.illegal(content.substring(newline + 1));
+			default -> null;
+		};
+	}
+
+	/*
+	 * Writes an entry through a temporary file renamed into place, then evicts if the cache
+	 * has grown past its bound. Failures only cost the entry.
+	 */
+	private void write(Path entry, Verdict verdict) {
+		var content = verdict.getMessage() == null ? String.valueOf(verdict.getCode()) :
+		              verdict.getCode() + "\n" + verdict.getMessage();
+		Path temp = null;
+		try {
+			temp = Files.createTempFile(directory, TEMP_PREFIX, TEMP_SUFFIX);
+			Files.writeString(temp, content, StandardCharsets.UTF_8);
+			try {
+				Files.move(temp, entry, StandardCopyOption.ATOMIC_MOVE,
+				           StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING);
+			}
+			if (size.addAndGet(Files.size(entry)) > maxBytes) {
+				evict();
+			}
+		} catch (IOException e) {
+			if (temp != null) {
+				try {
+					Files.deleteIfExists(temp);
+				} catch (IOException ignored) {
+					// Left for eviction to remove
+				}
+			}
+		}
+	}
+
+	/*
+	 * Returns a 128 bit hash of the bytes in hex, from two independent 64 bit lanes that
+	 * read the bytes 8 at a time.
+	 */
+	private static String hash(ByteBuffer bytes) {
+		var in = bytes.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		long length = in.remaining();
+		long h1 = SEED ^ length;
+		long h2 = MULTIPLIER ^ length;
+		while (in.remaining() >= Long.BYTES) {
+			long k = in.getLong();
+			h1 = Long.rotateLeft(h1 ^ mix(k), 27) * SEED + MULTIPLIER;
+			h2 = Long.rotateLeft(h2 + k * MULTIPLIER, 31) * SEED;
+		}
+		long tail = 0;
+		for (int shift = 0; in.hasRemaining(); shift += 8) {
+			tail |= (in.get() & 0xFFL) << shift;
+		}
+		h1 = mix(h1 ^ mix(tail));
+		h2 = mix(h2 + tail * MULTIPLIER);
+		return String.format("%016x%016x", h1 + h2, h2 ^ h1 * SEED);
+	}
+
+	/*
+	 * Scrambles the bits of a 64 bit value, as the final step of MurmurHash3 does.
+	 */
+	private static long mix(long k) {
+		k = (k ^ (k >>> 33)) * 0xFF51AFD7ED558CCDL;
+		k = (k ^ (k >>> 33)) * 0xC4CEB9FE1A85EC53L;
+		return k ^ (k >>> 33);
+	}
+
+	/*
+	 * Hashes the decoding charset and the class files of the rules, read from the directory or
+	 * jar this class was loaded from, so that entries made by other versions of them or under
+	 * another charset never match.
+	 */
+	private static String fingerprint() throws IOException {
+		var out = new ByteArrayOutputStream();
+		out.writeBytes((FORMAT + "\n" + Charset.defaultCharset().name() + "\n")
+				               .getBytes(StandardCharsets.UTF_8));
+		var codeSource = VerdictCache.class.getProtectionDomain().getCodeSource();
+		if (codeSource == null) {
+			throw new IOException("Cannot locate the class files of the rules");
+		}
+		Path location;
+		try {
+			location = Path.of(codeSource.getLocation().toURI());
+		} catch (URISyntaxException | IllegalArgumentException e) {
+			throw new IOException("Cannot locate the class files of the rules", e);
+		}
+
+		if (Files.isDirectory(location)) {
+			hashRules(location, out);
+		}
+		else {
+			try (var jar = FileSystems.newFileSystem(location)) {
+				hashRules(jar.getPath("/"), out);
+			}
+		}
+		return hash(ByteBuffer.wrap(out.toByteArray())).substring(0, 16) + "-";
+	}
+
+	/*
+	 * Appends the name and content of every class file of the rules under the given root, in
+	 * name order so that the fingerprint does not depend on the order of a directory listing.
+	 */
+	private static void hashRules(Path root, ByteArrayOutputStream out) throws IOException {
+		for (var rule : RULES) {
+			var directory = root.resolve(rule);
+			if (!Files.isDirectory(directory)) {
+				throw new IOException("Missing class files: " + rule);
+			}
+			List<Path> classes;
+			try (var walk = Files.walk(directory)) {
+				classes = walk.filter(path -> path.toString().endsWith(".class"))
+				              .sorted(Comparator.comparing(Path::toString))
+				              .toList();
+			}
+			for (var path : classes) {
+				out.writeBytes((root.relativize(path) + "\n").getBytes(StandardCharsets.UTF_8));
+				out.writeBytes(Files.readAllBytes(path));
+			}
+		}
+	}
+}
@@ -0,0 +1,167 @@
+package ex5.parser;
+
+import ex5.ast.statements.Statement;
+import ex5.lexer.NameTable;
+import ex5.lexer.Token;
+import ex5.lexer.TokenBuffer;
+import ex5.lexer.TokenSource;
+import ex5.lexer.TokenType;
+import ex5.lexer.UnknownTokenException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Parses a whole token buffer on a fork-join pool.
+ * A pre-scan of the token types tracks the brace depth and splits the program before every
+ * "void" that starts a line at depth 0, the start of a top-level method declaration. Runs of
+ * consecutive regions are then parsed concurrently, each by its own Parser over its own slice
+ * of the buffer, and the statements are concatenated in order.
+ * The result is always the one Parser.parseProgram gives: the first region that fails decides
+ * the error, and if it failed only because its slice ended, which means the pre-scan was misled
+ * by malformed braces, the rest of the program is parsed again in order from its start.
+ *
+ * @author galart27
+ * @author noam_wein
+ */
+public final class ParallelParser {
+
+	/*
+	 * Regions per thread, so that larger methods still balance out.
+	 */
+	private static final int CHUNKS_PER_THREAD = 4;
+
+	/*
+	 * The outcome of parsing one slice: its statements, or the error that stopped it and
+	 * whether the parser had read past the end of the slice by then.
+	 */
+	private static final class Slice {
+
+		private final List<Statement> statements;
+		private final RuntimeException error;
+		private final boolean exhausted;
+
+		/*
+		 * Constructs a Slice outcome.
+		 */
+		private Slice(List<Statement> statements, RuntimeException error, boolean exhausted) {
+			this.statements = statements;
+			this.error = error;
+			this.exhausted = exhausted;
+		}
+	}
+
+	/*
+	 * Utility class, not meant to be instantiated.
+	 */
+	private ParallelParser() {}
+
+	/**
+	 * Parses every token of the buffer, like Parser.parseProgram does, on the given pool.
+	 *
+	 * @param tokens the program's tokens
+	 * @param pool   the pool to parse the regions on
+	 * @return the program's top-level statements
+	 * @throws UnexpectedTokenException for the first syntax error in the program
+	 * @throws UnknownTokenException    if the buffer failed lexing and the program parses up to
+	 *                                  its end
+	 */
+	public static List<Statement> parseProgram(TokenBuffer tokens, ForkJoinPool pool) {
+		var starts = methodStarts(tokens);
+		int regions = starts.size();
+		int chunks = Math.min(regions, pool.getParallelism() * CHUNKS_PER_THREAD);
+		if (chunks <= 1) {
+			return new Parser(tokens.source()).parseProgram();
+		}
+
+		var bounds = new int[chunks + 1];
+		for (int c = 0; c < chunks; c++) {
+			bounds[c] = starts.get((int) ((long) regions * c / chunks));
+		}
+		bounds[chunks] = tokens.size();
+
+		var tasks = new ArrayList<ForkJoinTask<Slice>>(chunks);
+		for (int c = 0; c < chunks; c++) {
+			int from = bounds[c];
+			int to = bounds[c + 1];
+			tasks.add(pool.submit(() -> parseSlice(tokens, from, to)));
+		}
+
+		var statements = new ArrayList<Statement>();
+		for (int c = 0; c < chunks; c++) {
+			var slice = tasks.get(c).join();
+			if (slice.error == null) {
+				statements.addAll(slice.statements);
+				continue;
+			}
+
+			for (int rest = c + 1; rest < chunks; rest++) {
+				tasks.get(rest).cancel(false);
+			}
+			// The last slice runs to the end of the buffer, so its error is always the real one
+			if (slice.exhausted && c < chunks - 1) {
+				statements.addAll(new Parser(tokens.source(bounds[c], tokens.size())).parseProgram());
+				return statements;
+			}
+			throw slice.error;
+		}
+		return statements;
+	}
+
+	/*
+	 * Returns the index of the first token of every region, starting with 0. A region starts at
+	 * every "void" that is the first token of a line outside of any braces.
+	 */
+	private static List<Integer> methodStarts(TokenBuffer tokens) {
+		var starts = new ArrayList<Integer>();
+		starts.add(0);
+		int depth = 0;
+		boolean lineStart = true;
+		for (int i = 0; i < tokens.size(); i++) {
+			var type = tokens.getType(i);
+			switch (type) {
+				case LBRACE -> depth++;
+				case RBRACE -> depth--;
+				case VOID -> {
+					if (lineStart && depth == 0 && i > 0) {
+						starts.add(i);
+					}
+				}
+				default -> {}
+			}
+			lineStart = type == TokenType.NEWLINE;
+		}
+		return starts;
+	}
+
+	/*
+	 * Parses tokens[from, to) as a sequence of top-level statements.
+	 */
+	private static Slice parseSlice(TokenBuffer tokens, int from, int to) {
+		var source = tokens.source(from, to);
+		var exhausted = new boolean[1];
+		var slice = new TokenSource() {
+			@Override
+			public Token next() {
+				var token = source.next();
+				if (token == null) {
+					exhausted[0] = true;
+				}
+				return token;
+			}
+
+			@Override
+			public NameTable getNames() {
+				return source.getNames();
+			}
+		};
+
+		try {
+			return new Slice(new Parser(slice).parseProgram(), null, false);
+		} catch (UnexpectedTokenException | UnknownTokenException e) {
+			return new Slice(null, e, exhausted[0]);
+		}
+	}
+}
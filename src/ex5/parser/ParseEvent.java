@@ -0,0 +1,31 @@
+package ex5.parser;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * A Flight Recorder event for parsing a whole program, which includes lexing it when its tokens
+ * are lexed lazily.
+ *
+ * @author galart27
+ * @author noam_wein
+ */
+@Name("ex5.Parse")
+@Label("Parse")
+@Category("Sjavac")
+@Description("Parsing a whole program")
+@Threshold("10 ms")
+final class ParseEvent extends Event {
+
+	@Label("Statements")
+	@Description("The number of statements parsed, nested ones included")
+	int statements;
+
+	@Label("Legal")
+	@Description("Whether the program parsed without a syntax error")
+	boolean legal;
+}
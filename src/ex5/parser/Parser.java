@@ -5,16 +5,49 @@ import ex5.ast.statements.*;
 import ex5.lexer.*;
 
 import java.util.*;
+import java.util.function.Function;
 
 /**
  * Parser for the Sjavac language.
+ * Nested blocks are parsed with an explicit stack of the open blocks instead of recursion, so
+ * the nesting depth is only limited by the heap.
  *
  * @author galart27
  * @author noam_wein
  */
 public class Parser {
 
+	/*
+	 * A block whose closing brace was not reached yet: the statements parsed in it so far, how
+	 * to build the statement it is the body of once it is closed, and where that statement
+	 * starts. A block opened by a line with a syntax error has an owner that ignores its body, so
+	 * its statements are parsed and then dropped.
+	 */
+	private static final class OpenBlock {
+
+		private final List<Statement> statements = new ArrayList<>();
+		private final Function<Block, Statement> owner;
+		private final int position;
+
+		/*
+		 * Constructs an empty OpenBlock.
+		 */
+		private OpenBlock(Function<Block, Statement> owner, int position) {
+			this.owner = owner;
+			this.position = position;
+		}
+	}
+
 	private final TokenStream ts;
+	private final ArrayDeque<OpenBlock> openBlocks = new ArrayDeque<>();
+	private int statementCount = 0;
+
+	/*
+	 * Where syntax errors are reported while recovering from them, or null to throw them, and
+	 * where the statement being parsed starts.
+	 */
+	private ErrorListener listener;
+	private int statementPosition = -1;
 
 	/**
 	 * Constructs a Parser with the given list of tokens.
@@ -25,37 +58,228 @@ public class Parser {
 		ts = new TokenStream(tokens);
 	}
 
+	/**
+	 * Constructs a Parser over the given token buffer.
+	 *
+	 * @param tokens Buffer of tokens to parse.
+	 */
+	public Parser(TokenBuffer tokens) {
+		ts = new TokenStream(tokens);
+	}
+
+	/**
+	 * Constructs a Parser that pulls its tokens from the given source while parsing.
+	 *
+	 * @param tokens Source of tokens to parse.
+	 */
+	public Parser(TokenSource tokens) {
+		ts = new TokenStream(tokens);
+	}
+
 	/**
 	 * Parses the entire program and returns a list of statements.
+	 * The parse is recorded as a ParseEvent when Flight Recorder is on.
 	 *
 	 * @return List of parsed statements.
 	 * @throws UnexpectedTokenException if an unexpected token is encountered.
 	 */
 	public List<Statement> parseProgram() {
-		var statements = new ArrayList<Statement>();
-		while (!ts.isAtEnd()) {
-			statements.addAll(parseStatement());
+		var event = new ParseEvent();
+		event.begin();
+		int statementsBefore = statementCount;
+		boolean legal = false;
+		try {
+			var statements = new ArrayList<Statement>();
+			while (!ts.isAtEnd()) {
+				statements.addAll(parseStatement());
+			}
+			legal = true;
+			return statements;
+		} finally {
+			if (event.shouldCommit()) {
+				event.statements = statementCount - statementsBefore;
+				event.legal = legal;
+				event.commit();
+			}
 		}
-		return statements;
+	}
+
+	/**
+	 * Parses the entire program, reporting every syntax error to the given listener instead of
+	 * stopping at the first one. The line an error is found on is skipped, and parsing goes on
+	 * with the next line; if the skipped line opened a block, the statements of the block are
+	 * parsed and dropped. Statements with errors are left out of the returned list.
+	 *
+	 * @param listener Where to report the syntax errors, with the position of their statement.
+	 * @return List of the statements parsed without errors.
+	 * @throws UnexpectedTokenException if the listener asks to stop, or parsing cannot go on.
+	 */
+	public List<Statement> parseProgram(ErrorListener listener) {
+		this.listener = listener;
+		try {
+			return parseProgram();
+		} finally {
+			this.listener = null;
+		}
+	}
+
+	/**
+	 * Returns the table the identifier ids in the parsed AST refer to.
+	 *
+	 * @return The name table of the tokens.
+	 */
+	public NameTable getNames() {
+		return ts.getNames();
+	}
+
+	/**
+	 * Returns the number of statements parsed so far, nested ones included.
+	 * A declaration of several variables counts as one statement.
+	 *
+	 * @return The number of statements.
+	 */
+	public int getStatementCount() {
+		return statementCount;
+	}
+
+	/**
+	 * Checks if every token has been parsed.
+	 *
+	 * @return true if there are no tokens left, false otherwise.
+	 */
+	public boolean isAtEnd() {
+		return ts.isAtEnd();
+	}
+
+	/**
+	 * Parses the next top-level statement, letting the caller walk the program one statement at
+	 * a time. A declaration of several variables yields several statements.
+	 *
+	 * @return The statements parsed from the next top-level statement.
+	 * @throws UnexpectedTokenException if an unexpected token is encountered.
+	 */
+	public List<? extends Statement> parseNextStatement() {
+		return parseStatement();
 	}
 
 	/*
-	 * Parses a single statement based on the next token type.
+	 * Parses a single statement, and the whole block of it if it has one, which reads the tokens
+	 * in the same order as parsing each nested block with a recursive call would.
 	 */
 	private List<? extends Statement> parseStatement() {
-		var type = ts.peek().getType();
+		openBlocks.clear();
+		var statements = parseLine();
+		if (statements != null) {
+			return statements;
+		}
+
+		while (true) {
+			var block = openBlocks.peek();
+			int start = ts.getConsumedCount();
+			int position = ts.getOffset();
+			if (!ts.match(TokenType.RBRACE)) {
+				statements = parseLine();
+				if (statements != null) {
+					block.statements.addAll(statements);
+				}
+				continue;
+			}
+
+			openBlocks.pop();
+			var statement = block.owner.apply(new Block(block.statements));
+			if (statement != null) {
+				statement.setPosition(block.position);
+			}
+			try {
+				ts.expectType(TokenType.NEWLINE);
+			} catch (UnexpectedTokenException e) {
+				if (recover(e, start, position)) {
+					// A line like "} else {": the closed statement is kept once the block ends
+					openBlocks.push(new OpenBlock(body -> statement, block.position));
+					continue;
+				}
+			}
+			if (openBlocks.isEmpty()) {
+				return statement != null ? List.of(statement) : List.of();
+			}
+			if (statement != null) {
+				openBlocks.peek().statements.add(statement);
+			}
+		}
+	}
+
+	/*
+	 * Parses the statement on the next line as parseStatementStart does, and sets where the
+	 * statements start. With a listener, a syntax error is reported and the line is skipped,
+	 * giving no statements.
+	 */
+	private List<? extends Statement> parseLine() {
+		int start = ts.getConsumedCount();
+		statementPosition = ts.getOffset();
+		int position = statementPosition;
+		try {
+			var statements = parseStatementStart();
+			if (statements != null) {
+				for (var statement : statements) {
+					statement.setPosition(position);
+				}
+			}
+			return statements;
+		} catch (UnexpectedTokenException e) {
+			if (recover(e, start, position)) {
+				openBlocks.push(new OpenBlock(body -> null, position));
+				return null;
+			}
+			return List.of();
+		}
+	}
+
+	/*
+	 * Reports a syntax error found on the line that started after the given number of consumed
+	 * tokens, and skips the rest of the line. Returns true if the line opened a block, whose
+	 * statements the caller then drops. The error is thrown if there is no listener, the
+	 * listener asks to stop, or nothing is left to skip.
+	 */
+	private boolean recover(UnexpectedTokenException e, int start, int position) {
+		if (listener == null || !listener.report(position, e)) {
+			throw e;
+		}
+		boolean opened = ts.skipLine(start);
+		if (ts.getConsumedCount() == start) {
+			throw e;
+		}
+		return opened;
+	}
+
+	/*
+	 * Parses a single statement based on the next token type. A statement with a block is only
+	 * parsed up to the start of the block, which is pushed on the open blocks; null is then
+	 * returned.
+	 */
+	private List<? extends Statement> parseStatementStart() {
+		var type = ts.peekType();
+		statementCount++;
 
 		return switch (type) {
-			case IF -> List.of(parseIf());
-			case WHILE -> List.of(parseWhile());
+			case IF -> {
+				parseIf();
+				yield null;
+			}
+			case WHILE -> {
+				parseWhile();
+				yield null;
+			}
 			case RETURN -> List.of(parseReturn());
 			case FINAL, INT, DOUBLE, STRING, BOOLEAN, CHAR -> parseVariableDeclarations();
-			case VOID -> List.of(parseMethodDeclaration());
-			case IDENTIFIER -> (ts.peek(1).getType() == TokenType.LPAREN) // method call
+			case VOID -> {
+				parseMethodDeclaration();
+				yield null;
+			}
+			case IDENTIFIER -> (ts.peekType(1) == TokenType.LPAREN) // method call
 					? List.of(parseMethodCall())
 					: parseVariableAssignments();
 			default ->
-					throw new UnexpectedTokenException("Unexpected token: " + ts.peek().getType());
+					throw new UnexpectedTokenException("Unexpected token: " + type);
 		};
 	}
 
@@ -65,67 +289,63 @@ public class Parser {
 	private MethodCall parseMethodCall() {
 		var name = ts.expect(TokenType.IDENTIFIER);
 
-		ts.expect(TokenType.LPAREN);
+		ts.expectType(TokenType.LPAREN);
 
 		var args = new ArrayList<Expression>();
-		if (ts.peek().getType() != TokenType.RPAREN) {
+		if (ts.peekType() != TokenType.RPAREN) {
 			do {
 				args.add(parseExpression());
 			} while (ts.match(TokenType.COMMA));
 		}
 
-		ts.expect(TokenType.RPAREN);
-		ts.expect(TokenType.SEMICOLON);
-		ts.expect(TokenType.NEWLINE);
+		ts.expectType(TokenType.RPAREN);
+		ts.expectType(TokenType.SEMICOLON);
+		ts.expectType(TokenType.NEWLINE);
 
-		return new MethodCall(name.getValue(), args);
+		return new MethodCall(name.getValue(), name.getId(), args);
 	}
 
 	/*
-	 * Parses an if statement.
+	 * Parses an if statement up to the start of its body.
 	 */
-	private IfStatement parseIf() {
-		ts.expect(TokenType.IF);
+	private void parseIf() {
+		ts.expectType(TokenType.IF);
 
-		ts.expect(TokenType.LPAREN);
+		ts.expectType(TokenType.LPAREN);
 		var condition = parseCondition();
-		ts.expect(TokenType.RPAREN);
-
-		var body = parseBlock();
+		ts.expectType(TokenType.RPAREN);
 
-		return new IfStatement(condition, body);
+		openBlock(body -> new IfStatement(condition, body));
 	}
 
 	/*
-	 * Parses a while statement.
+	 * Parses a while statement up to the start of its body.
 	 */
-	private WhileStatement parseWhile() {
-		ts.expect(TokenType.WHILE);
+	private void parseWhile() {
+		ts.expectType(TokenType.WHILE);
 
-		ts.expect(TokenType.LPAREN);
+		ts.expectType(TokenType.LPAREN);
 		var condition = parseCondition();
-		ts.expect(TokenType.RPAREN);
+		ts.expectType(TokenType.RPAREN);
 
-		var body = parseBlock();
-
-		return new WhileStatement(condition, body);
+		openBlock(body -> new WhileStatement(condition, body));
 	}
 
 	/*
 	 * Parses a return statement.
 	 */
 	private ReturnStatement parseReturn() {
-		ts.expect(TokenType.RETURN);
-		ts.expect(TokenType.SEMICOLON);
-		ts.expect(TokenType.NEWLINE);
+		ts.expectType(TokenType.RETURN);
+		ts.expectType(TokenType.SEMICOLON);
+		ts.expectType(TokenType.NEWLINE);
 		return new ReturnStatement();
 	}
 
 	/*
-	 * Parses a method declaration.
+	 * Parses a method declaration up to the start of its body.
 	 */
-	private MethodDeclaration parseMethodDeclaration() {
-		ts.expect(TokenType.VOID);
+	private void parseMethodDeclaration() {
+		ts.expectType(TokenType.VOID);
 		var identifier = ts.expect(TokenType.IDENTIFIER);
 
 		if (identifier.getValue().startsWith("_")) {
@@ -134,13 +354,12 @@ public class Parser {
 			);
 		}
 
-		ts.expect(TokenType.LPAREN);
+		ts.expectType(TokenType.LPAREN);
 		var arguments = parseMethodArguments();
-		ts.expect(TokenType.RPAREN);
-
-		var body = parseBlock();
+		ts.expectType(TokenType.RPAREN);
 
-		return new MethodDeclaration(identifier.getValue(), arguments, body);
+		openBlock(body -> new MethodDeclaration(identifier.getValue(), identifier.getId(),
+		                                        arguments, body));
 	}
 
 	/*
@@ -151,32 +370,26 @@ public class Parser {
 
 		do {
 			var identifier = ts.expect(TokenType.IDENTIFIER);
-			ts.expect(TokenType.ASSIGN);
+			ts.expectType(TokenType.ASSIGN);
 			var value = parseExpression();
 
-			assignments.add(new VariableAssignment(identifier.getValue(), value));
+			assignments.add(new VariableAssignment(identifier.getValue(), identifier.getId(), value));
 		} while (ts.match(TokenType.COMMA));
 
-		ts.expect(TokenType.SEMICOLON);
-		ts.expect(TokenType.NEWLINE);
+		ts.expectType(TokenType.SEMICOLON);
+		ts.expectType(TokenType.NEWLINE);
 
 		return assignments;
 	}
 
 	/*
-	 * Parses a block of statements enclosed in braces.
+	 * Parses the opening brace of a block, and pushes the block on the open blocks. Its
+	 * statements and closing brace are parsed by parseStatement.
 	 */
-	private Block parseBlock() {
-		ts.expect(TokenType.LBRACE);
-		ts.expect(TokenType.NEWLINE);
-
-		var statements = new ArrayList<Statement>();
-		while (!ts.match(TokenType.RBRACE)) {
-			statements.addAll(parseStatement());
-		}
-
-		ts.expect(TokenType.NEWLINE);
-		return new Block(statements);
+	private void openBlock(Function<Block, Statement> owner) {
+		ts.expectType(TokenType.LBRACE);
+		ts.expectType(TokenType.NEWLINE);
+		openBlocks.push(new OpenBlock(owner, statementPosition));
 	}
 
 	/*
@@ -185,7 +398,7 @@ public class Parser {
 	private List<VariableDeclaration> parseVariableDeclarations() {
 		boolean isFinal = ts.match(TokenType.FINAL);
 
-		var type = ts.consume().getType();
+		var type = ts.consumeType();
 		switch (type) {
 			case INT, DOUBLE, STRING, BOOLEAN, CHAR -> {
 			}
@@ -199,13 +412,14 @@ public class Parser {
 			var initializer = ts.match(TokenType.ASSIGN) ? parseExpression() : null;
 
 			declarations.add(
-					new VariableDeclaration(type, identifier.getValue(), initializer, isFinal)
+					new VariableDeclaration(type, identifier.getValue(), identifier.getId(),
+					                        initializer, isFinal)
 			);
 
 		} while (ts.match(TokenType.COMMA));
 
-		ts.expect(TokenType.SEMICOLON);
-		ts.expect(TokenType.NEWLINE);
+		ts.expectType(TokenType.SEMICOLON);
+		ts.expectType(TokenType.NEWLINE);
 		return declarations;
 	}
 
@@ -214,15 +428,13 @@ public class Parser {
 	 * Parses an expression.
 	 */
 	private Expression parseExpression() {
-		var t = ts.peek();
-
-		return switch (t.getType()) {
+		return switch (ts.peekType()) {
 			case INT_LITERAL, DOUBLE_LITERAL, STRING_LITERAL, BOOLEAN_LITERAL, CHAR_LITERAL ->
 					new LiteralExpression(ts.consume());
 
-			case IDENTIFIER -> new VariableExpression(ts.consume().getValue());
+			case IDENTIFIER -> variable(ts.consume());
 
-			default -> throw new UnexpectedTokenException("Invalid expression: " + t);
+			default -> throw new UnexpectedTokenException("Invalid expression: " + ts.peek());
 		};
 	}
 
@@ -252,37 +464,44 @@ public class Parser {
 	 * Parses a condition atom (literal or variable).
 	 */
 	private Expression parseConditionAtom() {
-		var t = ts.peek();
+		var type = ts.peekType();
 
-		return switch (t.getType()) {
+		return switch (type) {
 			case BOOLEAN_LITERAL, INT_LITERAL, DOUBLE_LITERAL ->
 					new LiteralExpression(ts.consume());
 
-			case IDENTIFIER -> new VariableExpression(ts.consume().getValue());
+			case IDENTIFIER -> variable(ts.consume());
 
-			default -> throw new UnexpectedTokenException("Invalid condition atom: " + t.getType());
+			default -> throw new UnexpectedTokenException("Invalid condition atom: " + type);
 		};
 	}
 
+	/*
+	 * Creates the expression reading the variable named by an identifier token.
+	 */
+	private static VariableExpression variable(Token identifier) {
+		return new VariableExpression(identifier.getValue(), identifier.getId());
+	}
+
 	/*
 	 * Parses method arguments within parentheses.
 	 */
 	private List<MethodArgument> parseMethodArguments() {
 		var arguments = new ArrayList<MethodArgument>();
 
-		if (ts.peek().getType() == TokenType.RPAREN) {
+		if (ts.peekType() == TokenType.RPAREN) {
 			return arguments;
 		}
 
 		do {
-			var type = ts.consume().getType();
+			var type = ts.consumeType();
 			switch (type) {
 				case INT, DOUBLE, STRING, BOOLEAN, CHAR -> {
 				}
 				default -> throw new UnexpectedTokenException("Invalid argument type: " + type);
 			}
 			var name = ts.expect(TokenType.IDENTIFIER);
-			arguments.add(new MethodArgument(type, name.getValue()));
+			arguments.add(new MethodArgument(type, name.getValue(), name.getId()));
 
 		} while (ts.match(TokenType.COMMA));
 
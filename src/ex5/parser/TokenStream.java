@@ -1,20 +1,43 @@
 package ex5.parser;
 
+import ex5.lexer.NameTable;
 import ex5.lexer.Token;
+import ex5.lexer.TokenBuffer;
+import ex5.lexer.TokenSource;
 import ex5.lexer.TokenType;
 
 import java.util.List;
 
 /**
  * A stream of tokens for parsing.
+ * Tokens are pulled from a token source on demand, and only a small lookahead window of them is
+ * held at any time, so the whole token list never has to be in memory.
  *
  * @author galart27
  * @author noam_wein
  */
 public class TokenStream {
 
-	private final List<Token> tokens;
-	private int pos = 0;
+	/*
+	 * The current token plus the one token of lookahead the parser needs.
+	 */
+	private static final int WINDOW = 2;
+
+	private final TokenSource source;
+	private final Token[] window = new Token[WINDOW];
+	private final int[] offsets = new int[WINDOW];
+	private int head = 0;
+	private int count = 0;
+	private Token last;
+	private int lastOffset = -1;
+
+	/*
+	 * The number of tokens consumed so far, and the types of the last two of them, which is
+	 * what skipLine needs to know about the line an error was found on.
+	 */
+	private int consumed = 0;
+	private TokenType lastType;
+	private TokenType previousType;
 
 	/**
 	 * Constructs a TokenStream with the given list of tokens.
@@ -22,27 +45,73 @@ public class TokenStream {
 	 * @param tokens the list of tokens
 	 */
 	public TokenStream(List<Token> tokens) {
-		this.tokens = tokens;
+		this(TokenBuffer.of(tokens));
+	}
+
+	/**
+	 * Constructs a TokenStream over the given token buffer.
+	 *
+	 * @param tokens the token buffer
+	 */
+	public TokenStream(TokenBuffer tokens) {
+		this(tokens.source());
+	}
+
+	/**
+	 * Constructs a TokenStream pulling its tokens from the given source.
+	 *
+	 * @param source the token source
+	 */
+	public TokenStream(TokenSource source) {
+		this.source = source;
 	}
 
 	/**
 	 * Peeks at the current token without consuming it.
 	 *
 	 * @return the current token
+	 * @throws UnexpectedTokenException if the end of the stream has been reached
 	 */
 	public Token peek() {
-		return tokens.get(pos);
+		checkNotAtEnd();
+		return window[head];
 	}
 
 	/**
 	 * Peeks at the k-th token ahead without consuming it.
+	 * Looking past the end of the stream returns its last token.
 	 *
-	 * @param k the number of tokens to look ahead
+	 * @param k the number of tokens to look ahead, smaller than the lookahead window
 	 * @return the k-th token ahead
 	 */
 	public Token peek(int k) {
-		int idx = Math.min(pos + k, tokens.size() - 1);
-		return tokens.get(idx);
+		if (fill(k)) {
+			return window[(head + k) % WINDOW];
+		}
+		if (last == null) {
+			throw new UnexpectedTokenException("Unexpected end of input");
+		}
+		return last;
+	}
+
+	/**
+	 * Peeks at the type of the current token without consuming it.
+	 *
+	 * @return the current token type
+	 * @throws UnexpectedTokenException if the end of the stream has been reached
+	 */
+	public TokenType peekType() {
+		return peek().getType();
+	}
+
+	/**
+	 * Peeks at the type of the k-th token ahead without consuming it.
+	 *
+	 * @param k the number of tokens to look ahead
+	 * @return the k-th token type ahead
+	 */
+	public TokenType peekType(int k) {
+		return peek(k).getType();
 	}
 
 	/**
@@ -51,16 +120,34 @@ public class TokenStream {
 	 * @return true if at the end, false otherwise
 	 */
 	public boolean isAtEnd() {
-		return pos >= tokens.size();
+		return !fill(0);
 	}
 
 	/**
 	 * Consumes and returns the current token.
 	 *
 	 * @return the consumed token
+	 * @throws UnexpectedTokenException if the end of the stream has been reached
 	 */
 	public Token consume() {
-		return tokens.get(pos++);
+		var token = peek();
+		window[head] = null;
+		head = (head + 1) % WINDOW;
+		count--;
+		consumed++;
+		previousType = lastType;
+		lastType = token.getType();
+		return token;
+	}
+
+	/**
+	 * Consumes the current token and returns its type.
+	 *
+	 * @return the consumed token type
+	 * @throws UnexpectedTokenException if the end of the stream has been reached
+	 */
+	public TokenType consumeType() {
+		return consume().getType();
 	}
 
 	/**
@@ -72,7 +159,7 @@ public class TokenStream {
 	 * @return true if matched and consumed, false otherwise
 	 */
 	public boolean match(TokenType type) {
-		if (!isAtEnd() && peek().getType() == type) {
+		if (!isAtEnd() && window[head].getType() == type) {
 			consume();
 			return true;
 		}
@@ -99,4 +186,87 @@ public class TokenStream {
 		}
 		return t;
 	}
+
+	/**
+	 * Expects the current token to be of the given type and consumes it.
+	 *
+	 * @param type the expected token type
+	 * @throws UnexpectedTokenException if the token does not match
+	 */
+	public void expectType(TokenType type) {
+		expect(type);
+	}
+
+	/**
+	 * Returns the number of tokens consumed so far.
+	 *
+	 * @return the number of consumed tokens
+	 */
+	public int getConsumedCount() {
+		return consumed;
+	}
+
+	/**
+	 * Returns where the current token starts in the source text, or where the last token does
+	 * if there are none left.
+	 *
+	 * @return the offset of the token, or -1 if the source does not know it
+	 */
+	public int getOffset() {
+		return isAtEnd() ? lastOffset : offsets[head];
+	}
+
+	/**
+	 * Skips the rest of a line after a syntax error in it: consumes the tokens up to and
+	 * including the line's NEWLINE, unless it was already consumed.
+	 *
+	 * @param lineStart the number of tokens consumed when the line started
+	 * @return true if the line ended with an LBRACE, so that it opened a block
+	 */
+	public boolean skipLine(int lineStart) {
+		if (consumed == lineStart || lastType != TokenType.NEWLINE) {
+			while (!isAtEnd() && consumeType() != TokenType.NEWLINE) {
+				// Skipped
+			}
+		}
+		return consumed - lineStart >= 2 && lastType == TokenType.NEWLINE &&
+		       previousType == TokenType.LBRACE;
+	}
+
+	/**
+	 * Returns the table the ids of the identifier tokens refer to.
+	 *
+	 * @return the name table of the token source
+	 */
+	public NameTable getNames() {
+		return source.getNames();
+	}
+
+	/*
+	 * Pulls tokens from the source until the k-th token ahead is in the window.
+	 * Returns false if the source runs out first.
+	 */
+	private boolean fill(int k) {
+		while (count <= k) {
+			var token = source.next();
+			if (token == null) {
+				return false;
+			}
+			window[(head + count) % WINDOW] = token;
+			offsets[(head + count) % WINDOW] = source.getOffset();
+			count++;
+			last = token;
+			lastOffset = source.getOffset();
+		}
+		return true;
+	}
+
+	/*
+	 * Throws if there are no tokens left to read.
+	 */
+	private void checkNotAtEnd() {
+		if (isAtEnd()) {
+			throw new UnexpectedTokenException("Unexpected end of input");
+		}
+	}
 }
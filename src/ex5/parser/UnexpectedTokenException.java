@@ -2,12 +2,13 @@ package ex5.parser;
 
 /**
  * Exception thrown when an unexpected token is encountered during parsing.
+ * Like the other errors of the input, it is thrown without a stack trace.
  *
  * @author galart27
  * @author noam_wein
  */
 public class UnexpectedTokenException extends RuntimeException {
 	public UnexpectedTokenException(String message) {
-		super(message);
+		super(message, null, false, false);
 	}
 }
@@ -0,0 +1,185 @@
+package ex5.semantic;
+
+import ex5.ast.ASTVisitor;
+import ex5.ast.expressions.Expression;
+import ex5.ast.expressions.LiteralExpression;
+import ex5.ast.expressions.LogicalExpression;
+import ex5.ast.expressions.VariableExpression;
+import ex5.ast.statements.*;
+
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Collects the names a method body refers to: every variable it reads or assigns and every
+ * method it calls, keyed like SemanticAnalyzer.signatures. Local variables are collected too,
+ * which can only make the dependencies larger than needed, never smaller.
+ * Blocks only queue their statements, so nested blocks are collected without recursion.
+ *
+ * @author galart27
+ * @author noam_wein
+ */
+final class DependencyCollector implements ASTVisitor<Void> {
+
+	private final Set<String> names = new HashSet<>();
+	private final ArrayDeque<Statement> pending = new ArrayDeque<>();
+
+	/*
+	 * Constructs an empty DependencyCollector.
+	 */
+	private DependencyCollector() {}
+
+	/**
+	 * Collects the names the given method depends on.
+	 *
+	 * @param md The method declaration.
+	 * @return The names of the variables and methods it refers to.
+	 */
+	static Set<String> collect(MethodDeclaration md) {
+		var collector = new DependencyCollector();
+		md.getBody().accept(collector);
+		while (!collector.pending.isEmpty()) {
+			collector.pending.pop().accept(collector);
+		}
+		return collector.names;
+	}
+
+	/**
+	 * Queues every statement of a block, to be visited by collect.
+	 *
+	 * @param bl The block to visit.
+	 */
+	@Override
+	public void visitBlock(Block bl) {
+		pending.addAll(bl.getStatements());
+	}
+
+	/**
+	 * Visits the condition and body of an if statement.
+	 *
+	 * @param is The if statement to visit.
+	 */
+	@Override
+	public void visitIfStatement(IfStatement is) {
+		is.getCondition().accept(this);
+		is.getBody().accept(this);
+	}
+
+	/**
+	 * Method arguments refer to nothing.
+	 *
+	 * @param ma The method argument to visit.
+	 */
+	@Override
+	public void visitMethodArgument(MethodArgument ma) {}
+
+	/**
+	 * Collects the called method and visits the arguments.
+	 *
+	 * @param mc The method call to visit.
+	 */
+	@Override
+	public void visitMethodCall(MethodCall mc) {
+		names.add(mc.getIdentifier() + "()");
+		for (var argument : mc.getArguments()) {
+			argument.accept(this);
+		}
+	}
+
+	/**
+	 * Visits the body of a nested method declaration.
+	 *
+	 * @param md The method declaration to visit.
+	 */
+	@Override
+	public void visitMethodDeclaration(MethodDeclaration md) {
+		md.getBody().accept(this);
+	}
+
+	/**
+	 * Return statements refer to nothing.
+	 *
+	 * @param rs The return statement to visit.
+	 */
+	@Override
+	public void visitReturnStatement(ReturnStatement rs) {}
+
+	/**
+	 * Collects the assigned variable and visits the assigned expression.
+	 *
+	 * @param va The variable assignment to visit.
+	 */
+	@Override
+	public void visitVariableAssignment(VariableAssignment va) {
+		names.add(va.getIdentifier());
+		va.getExpression().accept(this);
+	}
+
+	/**
+	 * Visits the initializer of a variable declaration.
+	 *
+	 * @param vd The variable declaration to visit.
+	 */
+	@Override
+	public void visitVariableDeclaration(VariableDeclaration vd) {
+		if (vd.getInitializer() != null) {
+			vd.getInitializer().accept(this);
+		}
+	}
+
+	/**
+	 * Visits the condition and body of a while statement.
+	 *
+	 * @param ws The while statement to visit.
+	 */
+	@Override
+	public void visitWhileStatement(WhileStatement ws) {
+		ws.getCondition().accept(this);
+		ws.getBody().accept(this);
+	}
+
+	/**
+	 * Literals refer to nothing.
+	 *
+	 * @param le The literal expression to visit.
+	 *
+	 * @return null
+	 */
+	@Override
+	public Void visitLiteralExpression(LiteralExpression le) {
+		return null;
+	}
+
+	/**
+	 * Collects the read variable.
+	 *
+	 * @param ve The variable expression to visit.
+	 *
+	 * @return null
+	 */
+	@Override
+	public Void visitVariableExpression(VariableExpression ve) {
+		names.add(ve.getIdentifier());
+		return null;
+	}
+
+	/**
+	 * Visits both operands of a logical expression.
+	 *
+	 * @param le The logical expression to visit.
+	 *
+	 * @return null
+	 */
+	@Override
+	public Void visitLogicalExpression(LogicalExpression le) {
+		// A long condition nests to the left, so the left operands are walked with a loop
+		Expression operand = le;
+		while (operand instanceof LogicalExpression logical) {
+			logical.getRight().accept(this);
+			operand = logical.getLeft();
+		}
+		operand.accept(this);
+		return null;
+	}
+}
@@ -0,0 +1,139 @@
+package ex5.semantic;
+
+import ex5.ast.statements.MethodDeclaration;
+import ex5.ast.statements.Statement;
+import ex5.lexer.NameTable;
+
+import java.util.*;
+
+/**
+ * Analyzes successive versions of the same program, re-checking only what an edit can affect.
+ * The global statements are always analyzed again, since they are cheap and every method
+ * depends on them. A method body is only analyzed again if it is a new AST node, or if the
+ * signature of a global variable or method it refers to has changed. Method declarations that
+ * are reused between versions must therefore be the very same objects.
+ * A method body is analyzed against a copy of the globals, independently of other methods, so
+ * the first error in declaration order is the one a full SemanticAnalyzer would report.
+ *
+ * @author galart27
+ * @author noam_wein
+ */
+public final class IncrementalAnalyzer {
+
+	/*
+	 * The signatures the cached results were computed against.
+	 */
+	private Map<String, String> signatures = Map.of();
+
+	/*
+	 * The error message of every analyzed method, or null for a legal one.
+	 */
+	private Map<MethodDeclaration, String> results = new IdentityHashMap<>();
+
+	private final Map<String, Set<MethodDeclaration>> dependents = new HashMap<>();
+	private final NameTable names;
+
+	/**
+	 * Constructs an IncrementalAnalyzer with nothing analyzed yet.
+	 *
+	 * @param names The name table the identifier ids of every version refer to.
+	 */
+	public IncrementalAnalyzer(NameTable names) {
+		this.names = names;
+	}
+
+	/**
+	 * Analyzes the next version of the program.
+	 *
+	 * @param statements The top-level statements of the program.
+	 * @throws SemanticException If the program is not semantically correct.
+	 */
+	public void analyze(List<Statement> statements) {
+		var analyzer = new SemanticAnalyzer(names);
+		// On failure the cached results stay valid against the old signatures
+		analyzer.analyzeGlobals(statements);
+
+		var current = analyzer.signatures();
+		var stale = Collections.newSetFromMap(new IdentityHashMap<MethodDeclaration, Boolean>());
+		for (var name : changedNames(signatures, current)) {
+			stale.addAll(dependents.getOrDefault(name, Set.of()));
+		}
+
+		var next = new IdentityHashMap<MethodDeclaration, String>();
+		String error = null;
+		for (var s : statements) {
+			if (!(s instanceof MethodDeclaration md)) {
+				continue;
+			}
+
+			String result;
+			if (results.containsKey(md) && !stale.contains(md)) {
+				result = results.get(md);
+			}
+			else {
+				if (!results.containsKey(md)) {
+					index(md);
+				}
+				result = analyzer.check(md);
+			}
+
+			next.put(md, result);
+			if (error == null) {
+				error = result;
+			}
+		}
+
+		for (var md : results.keySet()) {
+			if (!next.containsKey(md)) {
+				unindex(md);
+			}
+		}
+		results = next;
+		signatures = current;
+
+		if (error != null) {
+			throw new SemanticException(error);
+		}
+	}
+
+	/*
+	 * Returns the names whose signature differs between the two versions, or exists in only one.
+	 */
+	private static Set<String> changedNames(Map<String, String> before, Map<String, String> after) {
+		var changed = new HashSet<String>();
+		for (var entry : before.entrySet()) {
+			if (!entry.getValue().equals(after.get(entry.getKey()))) {
+				changed.add(entry.getKey());
+			}
+		}
+		for (var name : after.keySet()) {
+			if (!before.containsKey(name)) {
+				changed.add(name);
+			}
+		}
+		return changed;
+	}
+
+	/*
+	 * Records the method as a dependent of every name its body refers to.
+	 */
+	private void index(MethodDeclaration md) {
+		for (var name : DependencyCollector.collect(md)) {
+			dependents.computeIfAbsent(name, k -> Collections.newSetFromMap(new IdentityHashMap<>()))
+			          .add(md);
+		}
+	}
+
+	/*
+	 * Forgets a method that is no longer part of the program.
+	 */
+	private void unindex(MethodDeclaration md) {
+		for (var name : DependencyCollector.collect(md)) {
+			var methods = dependents.get(name);
+			methods.remove(md);
+			if (methods.isEmpty()) {
+				dependents.remove(name);
+			}
+		}
+	}
+}
@@ -0,0 +1,34 @@
+package ex5.semantic;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * A Flight Recorder event for the semantic analysis of one method body.
+ *
+ * @author galart27
+ * @author noam_wein
+ */
+@Name("ex5.MethodAnalysis")
+@Label("Method Analysis")
+@Category("Sjavac")
+@Description("Checking one method body against the semantic rules")
+@Threshold("1 ms")
+final class MethodAnalysisEvent extends Event {
+
+	@Label("Method")
+	@Description("The name of the method")
+	String method;
+
+	@Label("Statements")
+	@Description("The number of top-level statements in the method body")
+	int statements;
+
+	@Label("Legal")
+	@Description("Whether the method body passed the semantic rules")
+	boolean legal;
+}
@@ -1,6 +1,6 @@
 package ex5.semantic;
 
-import ex5.ast.statements.MethodArgument;
+import ex5.lexer.TokenType;
 
 import java.util.List;
 
@@ -13,17 +13,20 @@ import java.util.List;
 public class MethodSymbol {
 
 	private final String identifier;
-	private final List<MethodArgument> parameters;
+	private final int id;
+	private final List<TokenType> parameterTypes;
 
 	/**
-	 * Constructs a MethodSymbol with the given identifier and parameters.
+	 * Constructs a MethodSymbol with the given identifier and parameter types.
 	 *
-	 * @param identifier The name of the method.
-	 * @param parameters The list of method arguments.
+	 * @param identifier     The name of the method.
+	 * @param id             The id of the name in the lexer's name table.
+	 * @param parameterTypes The types of the method's parameters, in order.
 	 */
-	public MethodSymbol(String identifier, List<MethodArgument> parameters) {
+	public MethodSymbol(String identifier, int id, List<TokenType> parameterTypes) {
 		this.identifier = identifier;
-		this.parameters = parameters;
+		this.id = id;
+		this.parameterTypes = parameterTypes;
 	}
 
 	/**
@@ -36,11 +39,20 @@ public class MethodSymbol {
 	}
 
 	/**
-	 * Returns the list of method parameters.
+	 * Returns the id of the method's name in the lexer's name table.
 	 *
-	 * @return The method's parameters.
+	 * @return The method's name id.
 	 */
-	public List<MethodArgument> getParameters() {
-		return parameters;
+	public int getId() {
+		return id;
+	}
+
+	/**
+	 * Returns the types of the method's parameters.
+	 *
+	 * @return The parameter types, in order.
+	 */
+	public List<TokenType> getParameterTypes() {
+		return parameterTypes;
 	}
 }
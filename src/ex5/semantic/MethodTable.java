@@ -1,16 +1,30 @@
 package ex5.semantic;
 
+import ex5.lexer.NameTable;
+
 import java.util.*;
 
 /**
  * Represents a table of method symbols for semantic analysis.
+ * Methods are indexed by the id of their name, so lookups never hash a String.
  *
  * @author galart27
  * @author noam_wein
  */
 public class MethodTable {
 
-	private final Map<String, MethodSymbol> methods = new HashMap<>();
+	private final NameTable names;
+	private MethodSymbol[] methods = new MethodSymbol[16];
+	private final List<MethodSymbol> defined = new ArrayList<>();
+
+	/**
+	 * Constructs an empty MethodTable for the names of the given table.
+	 *
+	 * @param names The name table the method ids refer to.
+	 */
+	public MethodTable(NameTable names) {
+		this.names = names;
+	}
 
 	/**
 	 * Defines a new method in the method table.
@@ -19,23 +33,37 @@ public class MethodTable {
 	 * @throws SemanticException If the method is already defined.
 	 */
 	public void define(MethodSymbol method) {
-		if (methods.containsKey(method.getIdentifier())) {
+		int id = method.getId();
+		if (id >= methods.length) {
+			methods = Arrays.copyOf(methods, Math.max(id + 1, methods.length * 2));
+		}
+		if (methods[id] != null) {
 			throw new SemanticException("Method already declared: " + method.getIdentifier());
 		}
-		methods.put(method.getIdentifier(), method);
+		methods[id] = method;
+		defined.add(method);
 	}
 
 	/**
-	 * Resolves a method by its name.
+	 * Resolves a method by the id of its name.
 	 *
-	 * @param name The name of the method to resolve.
+	 * @param id The name id of the method to resolve.
 	 * @return The corresponding MethodSymbol.
 	 * @throws SemanticException If the method is not defined.
 	 */
-	public MethodSymbol resolve(String name) {
-		if (!methods.containsKey(name)) {
-			throw new SemanticException("Undefined method: " + name);
+	public MethodSymbol resolve(int id) {
+		if (id >= methods.length || methods[id] == null) {
+			throw new SemanticException("Undefined method: " + names.nameOf(id));
 		}
-		return methods.get(name);
+		return methods[id];
+	}
+
+	/**
+	 * Returns every method defined in the table.
+	 *
+	 * @return The method symbols.
+	 */
+	Collection<MethodSymbol> getMethods() {
+		return defined;
 	}
 }
@@ -1,36 +1,94 @@
 package ex5.semantic;
 
 import ex5.ast.*;
+import ex5.ast.expressions.Expression;
 import ex5.ast.expressions.LiteralExpression;
 import ex5.ast.statements.MethodCall;
 import ex5.ast.expressions.VariableExpression;
 import ex5.ast.expressions.LogicalExpression;
 import ex5.ast.statements.*;
+import ex5.lexer.ErrorListener;
+import ex5.lexer.NameTable;
 import ex5.lexer.Token;
 import ex5.lexer.TokenType;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 /**
- * Performs semantic analysis on the AST.
+ * Performs semantic analysis on the AST, given either as node objects or as an ASTArena.
+ * Nested blocks are visited with an explicit stack of the open blocks instead of recursion, so
+ * the nesting depth is only limited by the heap.
  *
  * @author galart27
  * @author noam_wein
  */
-public class SemanticAnalyzer implements ASTVisitor<TokenType> {
+public class SemanticAnalyzer implements ASTVisitor<TokenType>, ArenaVisitor<TokenType> {
+
+	/*
+	 * Chunks of methods per thread in parallel analysis, so that uneven chunks still balance out.
+	 */
+	private static final int CHUNKS_PER_THREAD = 4;
 
 	private final MethodTable methodTable;
 	private final List<MethodDeclaration> deferredMethods;
-	private Scope currentScope;
+	private final SymbolTable symbols;
+
+	/*
+	 * The statements left to visit in each open block, innermost first. Every block but the
+	 * outermost one of a walk is the body of an if or while statement, with a scope of its own.
+	 */
+	private final ArrayDeque<Iterator<Statement>> openBlocks = new ArrayDeque<>();
+
+	/*
+	 * The same for the blocks of an arena, as pairs of the next statement to visit and the end
+	 * of the block, so that walking an arena allocates nothing.
+	 */
+	private int[] openArenaBlocks = new int[32];
+	private int openArenaBlockCount = 0;
+
+	/*
+	 * Where errors are reported while recovering from them, or null to throw them; where the
+	 * statement being analyzed starts; and the ids of the undefined methods already reported,
+	 * whose calls are not checked.
+	 */
+	private ErrorListener listener;
+	private int position = -1;
+	private final BitSet poisonedMethods = new BitSet();
+
+	/*
+	 * Counters for ValidationStats, including those of the analyzers of parallel chunks.
+	 */
+	private int methodCount = 0;
+	private long chunkLookups = 0;
+	private int chunkMaxDepth = 0;
 
 	/**
-	 * Constructs a SemanticAnalyzer.
+	 * Constructs a SemanticAnalyzer for an AST whose identifiers were interned in the given table.
+	 *
+	 * @param names The name table the identifier ids of the AST refer to.
+	 */
+	public SemanticAnalyzer(NameTable names) {
+		this(new MethodTable(names), new SymbolTable(names));
+	}
+
+	/*
+	 * Constructs a SemanticAnalyzer over an existing method table, which it only reads as long as
+	 * it analyzes method bodies alone, and its own copy of the globals.
 	 */
-	public SemanticAnalyzer() {
-		methodTable = new MethodTable();
+	private SemanticAnalyzer(MethodTable methodTable, SymbolTable symbols) {
+		this.methodTable = methodTable;
 		deferredMethods = new ArrayList<>();
-		currentScope = new Scope(null);
+		this.symbols = symbols;
 	}
 
 	/**
@@ -39,21 +97,236 @@ public class SemanticAnalyzer implements ASTVisitor<TokenType> {
 	 * @param statements The list of statements to analyze.
 	 */
 	public void analyze(List<Statement> statements) {
+		analyzeGlobals(statements);
+
+		// Now analyze method bodies
+		for (var md : deferredMethods) {
+			analyzeMethod(md);
+		}
+	}
+
+	/**
+	 * Analyzes a list of statements for semantic correctness, reporting every error to the given
+	 * listener instead of stopping at the first one.
+	 * After an error the analysis goes on as if the statement were legal: a variable or method
+	 * that is not defined is reported once, and is then taken to be defined with a type that
+	 * matches anything, so that its other uses do not report more errors.
+	 *
+	 * @param statements The list of statements to analyze.
+	 * @param listener   Where to report the errors, with the position of their statement.
+	 * @throws SemanticException if the listener asks to stop.
+	 */
+	public void analyze(List<Statement> statements, ErrorListener listener) {
+		this.listener = listener;
+		try {
+			analyze(statements);
+		} finally {
+			this.listener = null;
+		}
+	}
+
+	/**
+	 * Analyzes a list of statements for semantic correctness, checking the method bodies in
+	 * parallel on the given pool.
+	 * The methods are split into a few consecutive chunks, each checked by an analyzer of its own
+	 * with its own copy of the globals. The method table is no longer modified once the globals
+	 * are analyzed, so the tasks share it read-only.
+	 * If several methods are illegal, the error of the first one in source order is reported,
+	 * exactly like analyze does.
+	 *
+	 * @param statements The list of statements to analyze.
+	 * @param pool       The pool to check the method bodies on.
+	 */
+	public void analyze(List<Statement> statements, ForkJoinPool pool) {
+		analyzeGlobals(statements);
+
+		int methods = deferredMethods.size();
+		int chunks = Math.min(methods, pool.getParallelism() * CHUNKS_PER_THREAD);
+		var errors = new String[methods];
+		var tasks = new ArrayList<ForkJoinTask<?>>(chunks);
+		var analyzers = new ArrayList<SemanticAnalyzer>(chunks);
+		for (int c = 0; c < chunks; c++) {
+			int from = (int) ((long) methods * c / chunks);
+			int to = (int) ((long) methods * (c + 1) / chunks);
+			var analyzer = new SemanticAnalyzer(methodTable, symbols.copy());
+			analyzers.add(analyzer);
+			tasks.add(pool.submit(() -> {
+				for (int i = from; i < to; i++) {
+					errors[i] = analyzer.check(deferredMethods.get(i));
+				}
+			}));
+		}
+
+		int checked = 0;
+		for (int c = 0; c < chunks; c++) {
+			tasks.get(c).join();
+			var analyzer = analyzers.get(c);
+			methodCount += analyzer.methodCount;
+			chunkLookups += analyzer.symbols.getLookupCount();
+			chunkMaxDepth = Math.max(chunkMaxDepth, analyzer.symbols.getMaxDepth());
+			for (int to = (int) ((long) methods * (c + 1) / chunks); checked < to; checked++) {
+				if (errors[checked] != null) {
+					for (int rest = c + 1; rest < chunks; rest++) {
+						tasks.get(rest).cancel(false);
+					}
+					throw new SemanticException(errors[checked]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Analyzes a program held in an arena for semantic correctness, exactly like analyze does
+	 * for the same program as node objects.
+	 *
+	 * @param arena The arena holding the program.
+	 */
+	public void analyze(ASTArena arena) {
+		// Collect method declarations first
+		for (int node = 0; node < arena.size(); node = arena.getEnd(node)) {
+			if (arena.getKind(node) == ASTArena.Kind.METHOD_DECLARATION) {
+				methodTable.define(new MethodSymbol(arena.getIdentifier(node), arena.getId(node),
+				                                    parameterTypes(arena, node)));
+			}
+			else {
+				arena.accept(node, this);
+			}
+		}
+
+		// Now analyze method bodies
+		for (int node = 0; node < arena.size(); node = arena.getEnd(node)) {
+			if (arena.getKind(node) == ASTArena.Kind.METHOD_DECLARATION) {
+				analyzeMethod(arena, node);
+			}
+		}
+	}
+
+	/**
+	 * Analyzes the global statements and declares every method, without visiting method bodies.
+	 *
+	 * @param statements The top-level statements of the program.
+	 */
+	void analyzeGlobals(List<Statement> statements) {
 		// Collect method declarations first
 		for (var s : statements) {
+			position = s.getPosition();
 			if (s instanceof MethodDeclaration md) {
 				deferredMethods.add(md);
-				methodTable.define(new MethodSymbol(md.getIdentifier(), md.getArguments()));
+				try {
+					methodTable.define(new MethodSymbol(md.getIdentifier(), md.getId(),
+					                                    parameterTypes(md.getArguments())));
+				} catch (SemanticException e) {
+					report(e);
+				}
 			}
 			else {
 				s.accept(this);
 			}
 		}
+	}
 
-		// Now analyze method bodies
-		for (var md : deferredMethods) {
+	/**
+	 * Analyzes the body of a single method, after analyzeGlobals.
+	 * The global scope is restored even if the method is illegal, so that more methods can be
+	 * analyzed afterwards. The analysis is recorded as a MethodAnalysisEvent when Flight
+	 * Recorder is on.
+	 *
+	 * @param md The method declaration to analyze.
+	 */
+	void analyzeMethod(MethodDeclaration md) {
+		var event = new MethodAnalysisEvent();
+		event.begin();
+		int depth = symbols.getDepth();
+		boolean legal = false;
+		try {
 			md.accept(this);
+			legal = true;
+		} finally {
+			symbols.exitScopesTo(depth);
+			if (event.shouldCommit()) {
+				event.method = md.getIdentifier();
+				event.statements = md.getBody().getStatements().size();
+				event.legal = legal;
+				event.commit();
+			}
+		}
+	}
+
+	/**
+	 * Analyzes the body of a single method like analyzeMethod, returning its error instead of
+	 * throwing it.
+	 *
+	 * @param md The method declaration to analyze.
+	 * @return The error message, or null if the method is legal.
+	 */
+	String check(MethodDeclaration md) {
+		try {
+			analyzeMethod(md);
+			return null;
+		} catch (SemanticException e) {
+			return e.getMessage();
+		}
+	}
+
+	/**
+	 * Returns the number of method bodies analyzed so far.
+	 *
+	 * @return The number of methods.
+	 */
+	public int getMethodCount() {
+		return methodCount;
+	}
+
+	/**
+	 * Returns the number of variable lookups made so far.
+	 *
+	 * @return The number of lookups.
+	 */
+	public long getLookupCount() {
+		return symbols.getLookupCount() + chunkLookups;
+	}
+
+	/**
+	 * Returns the largest number of scopes that were open at once, not counting the global scope.
+	 *
+	 * @return The largest nesting depth.
+	 */
+	public int getMaxScopeDepth() {
+		return Math.max(symbols.getMaxDepth(), chunkMaxDepth);
+	}
+
+	/**
+	 * Returns the number of copies made of the global scope, one per chunk of parallel analysis.
+	 *
+	 * @return The number of copies.
+	 */
+	public int getScopeCopyCount() {
+		return symbols.getCopyCount();
+	}
+
+	/**
+	 * Describes everything a method body can depend on outside itself: every global variable's
+	 * type, finality and initialization, and every method's parameter types.
+	 * Methods are keyed by their name followed by "()", so they never clash with variables.
+	 *
+	 * @return The descriptions, keyed by name.
+	 */
+	Map<String, String> signatures() {
+		var signatures = new HashMap<String, String>();
+		for (var symbol : symbols.getVisibleSymbols()) {
+			signatures.put(symbol.getIdentifier(),
+			               symbol.getType() +
+			               (symbol.isFinal() ? " final" : "") +
+			               (symbols.isInitialized(symbol.getId()) ? " initialized" : ""));
+		}
+		for (var method : methodTable.getMethods()) {
+			var types = new StringJoiner(",");
+			for (var type : method.getParameterTypes()) {
+				types.add(type.toString());
+			}
+			signatures.put(method.getIdentifier() + "()", types.toString());
 		}
+		return signatures;
 	}
 
 	/**
@@ -63,8 +336,27 @@ public class SemanticAnalyzer implements ASTVisitor<TokenType> {
 	 */
 	@Override
 	public void visitBlock(Block bl) {
-		for (var s : bl.getStatements()) {
-			s.accept(this);
+		int outer = openBlocks.size();
+		openBlocks.push(bl.getStatements().iterator());
+		try {
+			while (openBlocks.size() > outer) {
+				var statements = openBlocks.peek();
+				if (statements.hasNext()) {
+					var statement = statements.next();
+					position = statement.getPosition();
+					statement.accept(this);
+				}
+				else {
+					openBlocks.pop();
+					if (openBlocks.size() > outer) {
+						symbols.exitScope();
+					}
+				}
+			}
+		} finally {
+			while (openBlocks.size() > outer) {
+				openBlocks.pop();
+			}
 		}
 	}
 
@@ -75,21 +367,9 @@ public class SemanticAnalyzer implements ASTVisitor<TokenType> {
 	 */
 	@Override
 	public void visitIfStatement(IfStatement is) {
-		if (!currentScope.hasParent()) {
-			throw new SemanticException("If statement cannot be in the global scope");
-		}
-
-		var conditionType = is.getCondition().accept(this);
-		if (isConditionNotOperandType(conditionType)) {
-			throw new SemanticException("If condition must be boolean");
-		}
-
-		var scope = currentScope;
-		currentScope = new Scope(scope);
-
-		is.getBody().accept(this);
-
-		currentScope = scope;
+		requireLocal("If statement");
+		checkCondition("If", is.getCondition().accept(this));
+		visitNestedBlock(is.getBody());
 	}
 
 	/**
@@ -99,8 +379,7 @@ public class SemanticAnalyzer implements ASTVisitor<TokenType> {
 	 */
 	@Override
 	public void visitMethodArgument(MethodArgument ma) {
-		currentScope.define(new Symbol(ma.getIdentifier(), ma.getType(), false));
-		currentScope.setInitialized(ma.getIdentifier(), true);
+		defineParameter(ma.getType(), ma.getIdentifier(), ma.getId());
 	}
 
 	/**
@@ -110,18 +389,11 @@ public class SemanticAnalyzer implements ASTVisitor<TokenType> {
 	 */
 	@Override
 	public void visitMethodDeclaration(MethodDeclaration md) {
-		if (currentScope.hasParent()) {
-			throw new SemanticException("Method " +
-			                            md.getIdentifier() +
-			                            " cannot be declared inside another method");
+		position = md.getPosition();
+		if (!enterMethod(md.getIdentifier())) {
+			return;
 		}
 
-		// Copy so that initializations of global variables are not shared between methods
-		var globalScope = currentScope.copy();
-		var scope = currentScope;
-
-		currentScope = new Scope(globalScope);
-
 		for (var param : md.getArguments()) {
 			param.accept(this);
 		}
@@ -129,14 +401,10 @@ public class SemanticAnalyzer implements ASTVisitor<TokenType> {
 		md.getBody().accept(this);
 
 		var statements = md.getBody().getStatements();
-		if (statements.isEmpty() ||
-		    !(statements.get(statements.size() - 1) instanceof ReturnStatement)) {
-			throw new SemanticException("Method " +
-			                            md.getIdentifier() +
-			                            " must end with a return statement");
-		}
-
-		currentScope = scope;
+		boolean endsWithReturn = !statements.isEmpty() &&
+		                         statements.get(statements.size() - 1) instanceof ReturnStatement;
+		position = md.getPosition();
+		exitMethod(md.getIdentifier(), endsWithReturn);
 	}
 
 	/**
@@ -146,9 +414,7 @@ public class SemanticAnalyzer implements ASTVisitor<TokenType> {
 	 */
 	@Override
 	public void visitReturnStatement(ReturnStatement rs) {
-		if (!currentScope.hasParent()) {
-			throw new SemanticException("Return statement cannot be in the global scope");
-		}
+		requireLocal("Return statement");
 	}
 
 	/**
@@ -158,21 +424,8 @@ public class SemanticAnalyzer implements ASTVisitor<TokenType> {
 	 */
 	@Override
 	public void visitVariableAssignment(VariableAssignment va) {
-		var symbol = currentScope.resolve(va.getIdentifier());
-
-		// final rule: cannot change after initialized
-		if (symbol.isFinal() && currentScope.isInitialized(va.getIdentifier())) {
-			throw new SemanticException("Cannot assign to final variable: " + va.getIdentifier());
-		}
-
-		var exprType = va.getExpression().accept(this);
-
-		if (isNotAssignable(symbol.getType(), exprType)) {
-			throw new SemanticException("Type mismatch: cannot assign " +
-			                            exprType + " to " + symbol.getType());
-		}
-
-		currentScope.setInitialized(va.getIdentifier(), true);
+		var symbol = resolveAssignable(va.getIdentifier(), va.getId());
+		assign(symbol, va.getId(), va.getExpression().accept(this));
 	}
 
 	/**
@@ -182,20 +435,9 @@ public class SemanticAnalyzer implements ASTVisitor<TokenType> {
 	 */
 	@Override
 	public void visitVariableDeclaration(VariableDeclaration vs) {
-		boolean isInitialized = vs.getInitializer() != null;
-
-		if (isInitialized) {
-			var initType = vs.getInitializer().accept(this);
-			if (isNotAssignable(vs.getType(), initType)) {
-				throw new SemanticException("Type mismatch: cannot assign " +
-				                            initType + " to " + vs.getType());
-			}
-		}
-
-		currentScope.define(
-				new Symbol(vs.getIdentifier(), vs.getType(), vs.isFinal())
-		);
-		currentScope.setInitialized(vs.getIdentifier(), isInitialized);
+		boolean initialized = vs.getInitializer() != null;
+		var initType = initialized ? vs.getInitializer().accept(this) : null;
+		declare(vs.getType(), vs.getIdentifier(), vs.getId(), vs.isFinal(), initialized, initType);
 	}
 
 	/**
@@ -204,21 +446,9 @@ public class SemanticAnalyzer implements ASTVisitor<TokenType> {
 	 * @param ws The while statement to visit.
 	 */
 	public void visitWhileStatement(WhileStatement ws) {
-		if (!currentScope.hasParent()) {
-			throw new SemanticException("While statement cannot be in the global scope");
-		}
-
-		var conditionType = ws.getCondition().accept(this);
-		if (isConditionNotOperandType(conditionType)) {
-			throw new SemanticException("While condition must be boolean");
-		}
-
-		var scope = currentScope;
-		currentScope = new Scope(scope);
-
-		ws.getBody().accept(this);
-
-		currentScope = scope;
+		requireLocal("While statement");
+		checkCondition("While", ws.getCondition().accept(this));
+		visitNestedBlock(ws.getBody());
 	}
 
 	// ───────── EXPRESSIONS ─────────
@@ -230,7 +460,7 @@ public class SemanticAnalyzer implements ASTVisitor<TokenType> {
 	 */
 	@Override
 	public TokenType visitLiteralExpression(LiteralExpression le) {
-		return literalType(le.getLiteral());
+		return literalType(le.getLiteral().getType());
 	}
 
 	/**
@@ -240,13 +470,7 @@ public class SemanticAnalyzer implements ASTVisitor<TokenType> {
 	 */
 	@Override
 	public TokenType visitVariableExpression(VariableExpression ve) {
-		var sym = currentScope.resolve(ve.getIdentifier());
-		if (!currentScope.isInitialized(ve.getIdentifier())) {
-			throw new SemanticException("Variable " +
-			                            ve.getIdentifier() +
-			                            " used before initialization");
-		}
-		return sym.getType();
+		return variableType(ve.getIdentifier(), ve.getId());
 	}
 
 	/**
@@ -257,87 +481,633 @@ public class SemanticAnalyzer implements ASTVisitor<TokenType> {
 	 */
 	@Override
 	public void visitMethodCall(MethodCall mc) {
-		if (!currentScope.hasParent()) {
-			throw new SemanticException("Method call cannot be in the global scope");
+		requireLocal("Method call");
+
+		var method = resolveCall(mc.getIdentifier(), mc.getId(), mc.getArguments().size());
+		for (int i = 0; i < mc.getArguments().size(); i++) {
+			checkArgument(method, i, mc.getArguments().get(i).accept(this));
 		}
+	}
 
-		var method = methodTable.resolve(mc.getIdentifier());
+	/**
+	 * Visits a logical expression, checking operand types and returning boolean type.
+	 *
+	 * @param le The logical expression to visit.
+	 */
+	@Override
+	public TokenType visitLogicalExpression(LogicalExpression le) {
+		// Walks down the left operands first, since a long condition nests to the left
+		var chain = new ArrayDeque<LogicalExpression>();
+		Expression operand = le;
+		while (operand instanceof LogicalExpression logical) {
+			chain.push(logical);
+			operand = logical.getLeft();
+		}
 
-		if (mc.getArguments().size() != method.getParameters().size()) {
-			throw new SemanticException("Method " +
-			                            mc.getIdentifier() +
-			                            " expects " +
-			                            method.getParameters().size() +
-			                            " arguments, got " +
-			                            mc.getArguments().size());
+		TokenType left = operand.accept(this);
+		for (var logical : chain) {
+			left = logicalType(left, logical.getRight().accept(this));
 		}
 
-		for (int i = 0; i < mc.getArguments().size(); i++) {
-			TokenType argType = mc.getArguments().get(i).accept(this);
-			TokenType paramType = method.getParameters().get(i).getType();
-			if (isNotAssignable(paramType, argType)) {
-				throw new SemanticException("Argument " + (i + 1) +
-				                            " of method " + mc.getIdentifier() +
-				                            " expects " + paramType + ", got " + argType);
+		return left;
+	}
+
+	// ───────── ARENA ─────────
+
+	/**
+	 * Visits a block of an arena, creating a new scope for its variables.
+	 *
+	 * @param arena The arena holding the block.
+	 * @param node  The block to visit.
+	 */
+	@Override
+	public void visitBlock(ASTArena arena, int node) {
+		int outer = openArenaBlockCount;
+		pushArenaBlock(node + 1, arena.getEnd(node));
+		try {
+			while (openArenaBlockCount > outer) {
+				int top = (openArenaBlockCount - 1) * 2;
+				int next = openArenaBlocks[top];
+				if (next < openArenaBlocks[top + 1]) {
+					openArenaBlocks[top] = arena.getEnd(next);
+					arena.accept(next, this);
+				}
+				else {
+					openArenaBlockCount--;
+					if (openArenaBlockCount > outer) {
+						symbols.exitScope();
+					}
+				}
 			}
+		} finally {
+			openArenaBlockCount = outer;
 		}
 	}
 
 	/**
-	 * Visits a logical expression, checking operand types and returning boolean type.
+	 * Visits an if statement of an arena, checking the condition type and visiting the body.
 	 *
-	 * @param le The logical expression to visit.
+	 * @param arena The arena holding the statement.
+	 * @param node  The if statement to visit.
 	 */
 	@Override
-	public TokenType visitLogicalExpression(LogicalExpression le) {
-		TokenType left = le.getLeft().accept(this);
-		TokenType right = le.getRight().accept(this);
+	public void visitIfStatement(ASTArena arena, int node) {
+		requireLocal("If statement");
+		checkCondition("If", arena.acceptExpression(node + 1, this));
+		visitNestedBlock(arena, arena.getEnd(node + 1));
+	}
 
-		if (isConditionNotOperandType(left) || isConditionNotOperandType(right)) {
-			throw new SemanticException("Operands of &&/|| must be boolean/int/double");
+	/**
+	 * Visits a method argument of an arena, defining it in the current scope.
+	 *
+	 * @param arena The arena holding the argument.
+	 * @param node  The method argument to visit.
+	 */
+	@Override
+	public void visitMethodArgument(ASTArena arena, int node) {
+		defineParameter(arena.getType(node), arena.getIdentifier(node), arena.getId(node));
+	}
+
+	/**
+	 * Visits a method call of an arena, checking argument types.
+	 *
+	 * @param arena The arena holding the call.
+	 * @param node  The method call to visit.
+	 */
+	@Override
+	public void visitMethodCall(ASTArena arena, int node) {
+		requireLocal("Method call");
+
+		var method = resolveCall(arena.getIdentifier(node), arena.getId(node),
+		                         arena.getChildCount(node));
+		int i = 0;
+		for (int arg = node + 1; arg < arena.getEnd(node); arg = arena.getEnd(arg)) {
+			checkArgument(method, i++, arena.acceptExpression(arg, this));
 		}
+	}
 
-		return TokenType.BOOLEAN;
+	/**
+	 * Visits a method declaration of an arena, creating a new scope for its parameters and body.
+	 *
+	 * @param arena The arena holding the declaration.
+	 * @param node  The method declaration to visit.
+	 */
+	@Override
+	public void visitMethodDeclaration(ASTArena arena, int node) {
+		var identifier = arena.getIdentifier(node);
+		if (!enterMethod(identifier)) {
+			return;
+		}
+
+		int child = node + 1;
+		while (arena.getKind(child) == ASTArena.Kind.METHOD_ARGUMENT) {
+			arena.accept(child, this);
+			child = arena.getEnd(child);
+		}
+
+		arena.accept(child, this);
+
+		int last = arena.getLastChild(child);
+		exitMethod(identifier, last >= 0 && arena.getKind(last) == ASTArena.Kind.RETURN_STATEMENT);
+	}
+
+	/**
+	 * Visits a return statement of an arena.
+	 *
+	 * @param arena The arena holding the statement.
+	 * @param node  The return statement to visit.
+	 */
+	@Override
+	public void visitReturnStatement(ASTArena arena, int node) {
+		requireLocal("Return statement");
+	}
+
+	/**
+	 * Visits a variable assignment of an arena, checking for final and initialization rules.
+	 *
+	 * @param arena The arena holding the assignment.
+	 * @param node  The variable assignment to visit.
+	 */
+	@Override
+	public void visitVariableAssignment(ASTArena arena, int node) {
+		int id = arena.getId(node);
+		var symbol = resolveAssignable(arena.getIdentifier(node), id);
+		assign(symbol, id, arena.acceptExpression(node + 1, this));
+	}
+
+	/**
+	 * Visits a variable declaration of an arena, defining it in the current scope.
+	 *
+	 * @param arena The arena holding the declaration.
+	 * @param node  The variable declaration to visit.
+	 */
+	@Override
+	public void visitVariableDeclaration(ASTArena arena, int node) {
+		int initializer = arena.getInitializer(node);
+		var initType = initializer >= 0 ? arena.acceptExpression(initializer, this) : null;
+		declare(arena.getType(node), arena.getIdentifier(node), arena.getId(node),
+		        arena.isFinal(node), initializer >= 0, initType);
+	}
+
+	/**
+	 * Visits a while statement of an arena, checking the condition type and visiting the body.
+	 *
+	 * @param arena The arena holding the statement.
+	 * @param node  The while statement to visit.
+	 */
+	@Override
+	public void visitWhileStatement(ASTArena arena, int node) {
+		requireLocal("While statement");
+		checkCondition("While", arena.acceptExpression(node + 1, this));
+		visitNestedBlock(arena, arena.getEnd(node + 1));
+	}
+
+	/**
+	 * Visits a literal expression of an arena, returning its type.
+	 *
+	 * @param arena The arena holding the expression.
+	 * @param node  The literal expression to visit.
+	 */
+	@Override
+	public TokenType visitLiteralExpression(ASTArena arena, int node) {
+		return literalType(arena.getType(node));
+	}
+
+	/**
+	 * Visits a variable expression of an arena, returning its type.
+	 *
+	 * @param arena The arena holding the expression.
+	 * @param node  The variable expression to visit.
+	 */
+	@Override
+	public TokenType visitVariableExpression(ASTArena arena, int node) {
+		return variableType(arena.getIdentifier(node), arena.getId(node));
+	}
+
+	/**
+	 * Visits a logical expression of an arena, checking operand types and returning boolean type.
+	 *
+	 * @param arena The arena holding the expression.
+	 * @param node  The logical expression to visit.
+	 */
+	@Override
+	public TokenType visitLogicalExpression(ASTArena arena, int node) {
+		// A long condition nests to the left, and every left operand directly follows its parent,
+		// so the chain is the nodes from this one to the first that is not a logical expression
+		int leaf = node;
+		while (arena.getKind(leaf) == ASTArena.Kind.LOGICAL_EXPRESSION) {
+			leaf++;
+		}
+
+		TokenType left = arena.acceptExpression(leaf, this);
+		for (int logical = leaf - 1; logical >= node; logical--) {
+			left = logicalType(left, arena.acceptExpression(arena.getEnd(logical + 1), this));
+		}
+
+		return left;
 	}
 
 	// ───────── HELPERS ─────────
 
+	/**
+	 * Visits the body of an if or while statement in a new scope. Inside a block, the body is
+	 * only pushed on the open blocks, so that visitBlock visits it without recursion and exits
+	 * its scope after its last statement.
+	 *
+	 * @param body The body to visit.
+	 */
+	private void visitNestedBlock(Block body) {
+		symbols.enterScope();
+		if (!openBlocks.isEmpty()) {
+			openBlocks.push(body.getStatements().iterator());
+			return;
+		}
+		body.accept(this);
+		symbols.exitScope();
+	}
+
+	/**
+	 * Visits the body of an if or while statement of an arena in a new scope, like
+	 * visitNestedBlock does for node objects.
+	 *
+	 * @param arena The arena holding the body.
+	 * @param body  The body to visit.
+	 */
+	private void visitNestedBlock(ASTArena arena, int body) {
+		symbols.enterScope();
+		if (openArenaBlockCount > 0) {
+			pushArenaBlock(body + 1, arena.getEnd(body));
+			return;
+		}
+		visitBlock(arena, body);
+		symbols.exitScope();
+	}
+
+	/**
+	 * Pushes a block of an arena on the open blocks.
+	 *
+	 * @param next The first statement of the block.
+	 * @param end  The end of the block.
+	 */
+	private void pushArenaBlock(int next, int end) {
+		if (openArenaBlockCount * 2 == openArenaBlocks.length) {
+			openArenaBlocks = Arrays.copyOf(openArenaBlocks, openArenaBlocks.length * 2);
+		}
+		openArenaBlocks[openArenaBlockCount * 2] = next;
+		openArenaBlocks[openArenaBlockCount * 2 + 1] = end;
+		openArenaBlockCount++;
+	}
+
+	/**
+	 * Analyzes the body of a single method of an arena, after its globals.
+	 *
+	 * @param arena The arena holding the method.
+	 * @param node  The method declaration to analyze.
+	 */
+	private void analyzeMethod(ASTArena arena, int node) {
+		var event = new MethodAnalysisEvent();
+		event.begin();
+		boolean legal = false;
+		try {
+			arena.accept(node, this);
+			legal = true;
+		} finally {
+			if (event.shouldCommit()) {
+				event.method = arena.getIdentifier(node);
+				event.statements = arena.getChildCount(arena.getBody(node));
+				event.legal = legal;
+				event.commit();
+			}
+		}
+	}
+
+	/**
+	 * Returns the types of a method's parameters.
+	 *
+	 * @param arguments The method's arguments.
+	 * @return The argument types, in order.
+	 */
+	private static List<TokenType> parameterTypes(List<MethodArgument> arguments) {
+		var types = new ArrayList<TokenType>(arguments.size());
+		for (var argument : arguments) {
+			types.add(argument.getType());
+		}
+		return types;
+	}
+
+	/**
+	 * Returns the types of the parameters of a method declaration of an arena.
+	 *
+	 * @param arena The arena holding the declaration.
+	 * @param node  The method declaration.
+	 * @return The argument types, in order.
+	 */
+	private static List<TokenType> parameterTypes(ASTArena arena, int node) {
+		var types = new ArrayList<TokenType>();
+		for (int child = node + 1; arena.getKind(child) == ASTArena.Kind.METHOD_ARGUMENT;
+		     child = arena.getEnd(child)) {
+			types.add(arena.getType(child));
+		}
+		return types;
+	}
+
+	/**
+	 * Reports an error found in the statement being analyzed.
+	 *
+	 * @param message The message of the error.
+	 * @throws SemanticException If there is no listener, or the listener asks to stop.
+	 */
+	private void error(String message) {
+		report(new SemanticException(message));
+	}
+
+	/**
+	 * Reports an error found in the statement being analyzed, or throws it if there is no
+	 * listener, or the listener asks to stop.
+	 *
+	 * @param e The error.
+	 */
+	private void report(SemanticException e) {
+		if (listener == null || !listener.report(position, e)) {
+			throw e;
+		}
+	}
+
+	/**
+	 * Reports if a statement that is only allowed in a method is in the global scope.
+	 *
+	 * @param statement The kind of statement, as named in the error.
+	 */
+	private void requireLocal(String statement) {
+		if (symbols.isGlobal()) {
+			error(statement + " cannot be in the global scope");
+		}
+	}
+
+	/**
+	 * Reports if the condition of an if or while statement has a type that is not allowed.
+	 *
+	 * @param statement     The kind of statement, as named in the error.
+	 * @param conditionType The type of the condition.
+	 */
+	private void checkCondition(String statement, TokenType conditionType) {
+		if (isConditionNotOperandType(conditionType)) {
+			error(statement + " condition must be boolean");
+		}
+	}
+
+	/**
+	 * Starts analyzing a method: checks that it is declared globally and opens its scope.
+	 *
+	 * @param identifier The name of the method.
+	 * @return True if the method is analyzed, false if it is declared inside another method and
+	 *         is skipped.
+	 */
+	private boolean enterMethod(String identifier) {
+		if (!symbols.isGlobal()) {
+			error("Method " + identifier + " cannot be declared inside another method");
+			return false;
+		}
+
+		// Isolated so that initializations of global variables are not shared between methods
+		methodCount++;
+		symbols.enterIsolatedScope();
+		return true;
+	}
+
+	/**
+	 * Ends analyzing a method: checks that it ends with a return statement and closes its scope.
+	 *
+	 * @param identifier     The name of the method.
+	 * @param endsWithReturn Whether the last statement of the body is a return statement.
+	 */
+	private void exitMethod(String identifier, boolean endsWithReturn) {
+		if (!endsWithReturn) {
+			error("Method " + identifier + " must end with a return statement");
+		}
+
+		symbols.exitScope();
+	}
+
+	/**
+	 * Defines a method parameter in the current scope, as an initialized variable.
+	 *
+	 * @param type       The type of the parameter.
+	 * @param identifier The name of the parameter.
+	 * @param id         The id of the name.
+	 */
+	private void defineParameter(TokenType type, String identifier, int id) {
+		if (define(new Symbol(identifier, id, type, false))) {
+			symbols.setInitialized(id, true);
+		}
+	}
+
+	/**
+	 * Defines a variable in the current scope, reporting it if it is already declared there.
+	 *
+	 * @param symbol The variable's symbol.
+	 * @return True if the variable was defined, false if the one already declared is kept.
+	 */
+	private boolean define(Symbol symbol) {
+		try {
+			symbols.define(symbol);
+			return true;
+		} catch (SemanticException e) {
+			report(e);
+			return false;
+		}
+	}
+
+	/**
+	 * Resolves a variable, reporting it if it is not defined. The variable is then defined in
+	 * the current scope as an initialized variable of no type, which any use accepts.
+	 *
+	 * @param identifier The name of the variable.
+	 * @param id         The id of the name.
+	 * @return The variable's symbol.
+	 */
+	private Symbol lookup(String identifier, int id) {
+		try {
+			return symbols.resolve(id);
+		} catch (SemanticException e) {
+			report(e);
+			var poisoned = new Symbol(identifier, id, null, false);
+			symbols.define(poisoned);
+			symbols.setInitialized(id, true);
+			return poisoned;
+		}
+	}
+
+	/**
+	 * Resolves the variable of an assignment, checking that it may be assigned.
+	 *
+	 * @param identifier The name of the variable.
+	 * @param id         The id of the name.
+	 * @return The variable's symbol.
+	 */
+	private Symbol resolveAssignable(String identifier, int id) {
+		var symbol = lookup(identifier, id);
+
+		// final rule: cannot change after initialized
+		if (symbol.isFinal() && symbols.isInitialized(id)) {
+			error("Cannot assign to final variable: " + identifier);
+		}
+		return symbol;
+	}
+
+	/**
+	 * Checks the type of an assigned value and marks the variable as initialized.
+	 *
+	 * @param symbol   The variable's symbol.
+	 * @param id       The id of the variable's name.
+	 * @param exprType The type of the assigned value.
+	 */
+	private void assign(Symbol symbol, int id, TokenType exprType) {
+		if (isNotAssignable(symbol.getType(), exprType)) {
+			error("Type mismatch: cannot assign " + exprType + " to " + symbol.getType());
+		}
+
+		symbols.setInitialized(id, true);
+	}
+
+	/**
+	 * Checks the type of a variable's initializer and defines the variable in the current scope.
+	 *
+	 * @param type        The declared type.
+	 * @param identifier  The name of the variable.
+	 * @param id          The id of the name.
+	 * @param isFinal     Whether the variable is final.
+	 * @param initialized Whether the variable has an initializer.
+	 * @param initType    The type of the initializer, or null if there is none or it has errors.
+	 */
+	private void declare(TokenType type, String identifier, int id, boolean isFinal,
+	                     boolean initialized, TokenType initType) {
+		if (initialized && isNotAssignable(type, initType)) {
+			error("Type mismatch: cannot assign " + initType + " to " + type);
+		}
+
+		if (define(new Symbol(identifier, id, type, isFinal))) {
+			symbols.setInitialized(id, initialized);
+		}
+	}
+
+	/**
+	 * Returns the type of a variable read by an expression, checking that it is initialized.
+	 *
+	 * @param identifier The name of the variable.
+	 * @param id         The id of the name.
+	 * @return The variable's type, or null if it has errors.
+	 */
+	private TokenType variableType(String identifier, int id) {
+		var sym = lookup(identifier, id);
+		if (!symbols.isInitialized(id)) {
+			error("Variable " + identifier + " used before initialization");
+		}
+		return sym.getType();
+	}
+
+	/**
+	 * Resolves the method of a call, checking the number of arguments. A method that is not
+	 * defined is reported at its first call only.
+	 *
+	 * @param identifier    The name of the method.
+	 * @param id            The id of the name.
+	 * @param argumentCount The number of arguments of the call.
+	 * @return The method's symbol, or null if it is not defined.
+	 */
+	private MethodSymbol resolveCall(String identifier, int id, int argumentCount) {
+		if (poisonedMethods.get(id)) {
+			return null;
+		}
+		MethodSymbol method;
+		try {
+			method = methodTable.resolve(id);
+		} catch (SemanticException e) {
+			report(e);
+			poisonedMethods.set(id);
+			return null;
+		}
+
+		if (argumentCount != method.getParameterTypes().size()) {
+			error("Method " + identifier + " expects " + method.getParameterTypes().size() +
+			      " arguments, got " + argumentCount);
+		}
+		return method;
+	}
+
+	/**
+	 * Checks the type of an argument of a call against the method's parameter.
+	 *
+	 * @param method  The called method, or null if it is not defined.
+	 * @param index   The index of the argument.
+	 * @param argType The type of the argument.
+	 */
+	private void checkArgument(MethodSymbol method, int index, TokenType argType) {
+		if (method == null || index >= method.getParameterTypes().size()) {
+			return;
+		}
+		TokenType paramType = method.getParameterTypes().get(index);
+		if (isNotAssignable(paramType, argType)) {
+			error("Argument " + (index + 1) + " of method " + method.getIdentifier() +
+			      " expects " + paramType + ", got " + argType);
+		}
+	}
+
+	/**
+	 * Checks the operand types of a logical expression.
+	 *
+	 * @param left  The type of the left operand.
+	 * @param right The type of the right operand.
+	 * @return The type of the expression, boolean.
+	 */
+	private TokenType logicalType(TokenType left, TokenType right) {
+		if (isConditionNotOperandType(left) || isConditionNotOperandType(right)) {
+			error("Operands of &&/|| must be boolean/int/double");
+		}
+		return TokenType.BOOLEAN;
+	}
+
 	/**
 	 * Determines the TokenType of a literal token.
 	 *
-	 * @param token The literal token.
-	 * @return The corresponding TokenType.
+	 * @param literal The type of the literal token.
+	 * @return The corresponding TokenType, or null if it is not a literal.
 	 */
-	private TokenType literalType(Token token) {
-		return switch (token.getType()) {
+	private TokenType literalType(TokenType literal) {
+		return switch (literal) {
 			case INT_LITERAL -> TokenType.INT;
 			case DOUBLE_LITERAL -> TokenType.DOUBLE;
 			case STRING_LITERAL -> TokenType.STRING;
 			case BOOLEAN_LITERAL -> TokenType.BOOLEAN;
 			case CHAR_LITERAL -> TokenType.CHAR;
-			default -> throw new SemanticException("Invalid literal");
+			default -> {
+				error("Invalid literal");
+				yield null;
+			}
 		};
 	}
 
 	/**
 	 * Checks if a TokenType is valid for condition operands (boolean, int, double).
+	 * The null type of an operand with errors is valid.
 	 *
 	 * @param t The TokenType to check.
 	 * @return True if valid for conditions, false otherwise.
 	 */
 	private boolean isConditionNotOperandType(TokenType t) {
-		return t != TokenType.BOOLEAN && t != TokenType.INT && t != TokenType.DOUBLE;
+		return t != null && t != TokenType.BOOLEAN && t != TokenType.INT && t != TokenType.DOUBLE;
 	}
 
 	/**
 	 * Checks if a value of source type can be assigned to a target type.
+	 * The null type of a variable or value with errors is assignable both ways.
 	 *
 	 * @param target The target TokenType.
 	 * @param source The source TokenType.
 	 * @return True if assignable, false otherwise.
 	 */
 	private boolean isNotAssignable(TokenType target, TokenType source) {
-		if (target == source) return false;
+		if (target == source || target == null || source == null) return false;
 
 		// numeric promotion
 		if (target == TokenType.DOUBLE && source == TokenType.INT) return false;
@@ -2,6 +2,7 @@ package ex5.semantic;
 
 /**
  * Represents a semantic exception that occurs during semantic analysis.
+ * It is thrown without a stack trace, since it reports an illegal program and not a bug.
  *
  * @author galart27
  * @author noam_wein
@@ -13,6 +14,6 @@ public class SemanticException extends RuntimeException {
 	 * @param message The error message.
 	 */
 	public SemanticException(String message) {
-		super(message);
+		super(message, null, false, false);
 	}
 }
@@ -11,6 +11,7 @@ import ex5.lexer.TokenType;
 public class Symbol {
 
 	private final String identifier;
+	private final int id;
 	private final TokenType type;
 	private final boolean isFinal;
 
@@ -18,11 +19,13 @@ public class Symbol {
 	 * Constructs a Symbol with the given properties.
 	 *
 	 * @param identifier  The name of the symbol.
-	 * @param type        The type of the symbol.
+	 * @param id          The id of the name in the lexer's name table.
+	 * @param type        The type of the symbol, or null if it is not known.
 	 * @param isFinal     Whether the symbol is final.
 	 */
-	public Symbol(String identifier, TokenType type, boolean isFinal) {
+	public Symbol(String identifier, int id, TokenType type, boolean isFinal) {
 		this.identifier = identifier;
+		this.id = id;
 		this.type = type;
 		this.isFinal = isFinal;
 	}
@@ -32,10 +35,11 @@ public class Symbol {
 	 * The symbol is not final and not initialized by default.
 	 *
 	 * @param identifier The name of the symbol.
+	 * @param id         The id of the name in the lexer's name table.
 	 * @param type       The type of the symbol.
 	 */
-	public Symbol(String identifier, TokenType type) {
-		this(identifier, type, false);
+	public Symbol(String identifier, int id, TokenType type) {
+		this(identifier, id, type, false);
 	}
 
 	/**
@@ -47,10 +51,20 @@ public class Symbol {
 		return identifier;
 	}
 
+	/**
+	 * Returns the id of the symbol's name in the lexer's name table.
+	 *
+	 * @return The symbol's name id.
+	 */
+	public int getId() {
+		return id;
+	}
+
 	/**
 	 * Returns the type of the symbol.
 	 *
-	 * @return The symbol's type.
+	 * @return The symbol's type, or null for a variable that was used without being declared,
+	 *         which the analyzer defines when it recovers from the error.
 	 */
 	public TokenType getType() {
 		return type;
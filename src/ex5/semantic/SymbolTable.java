@@ -0,0 +1,313 @@
+package ex5.semantic;
+
+import ex5.lexer.NameTable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A flat, scoped table of variable symbols for the semantic analysis phase.
+ * Every name id indexes straight to its innermost binding, which links to the binding it
+ * shadows, so lookups never walk a chain of scopes nor hash a String. Entering a scope only
+ * pushes a marker, and exiting one undoes the declarations made since that marker.
+ * Initialization states are bits of a dense bitset, indexed by the slot of each binding: its
+ * position in the undo log of declarations, so the variables in scope always take the lowest
+ * slots. An isolated scope saves, on entry, the words holding the slots of the variables
+ * declared outside of it and restores them on exit, so a method works on its own copy of the
+ * globals at a cost of one word per 64 variables, whatever it writes.
+ *
+ * @author galart27
+ * @author noam_wein
+ */
+public class SymbolTable {
+
+	/*
+	 * A single declaration of a name, linked to the declaration of the same name it shadows.
+	 */
+	private static final class Binding {
+
+		private final Symbol symbol;
+		private final int depth;
+		private final int slot;
+		private final Binding shadowed;
+
+		/*
+		 * Constructs a Binding.
+		 */
+		private Binding(Symbol symbol, int depth, int slot, Binding shadowed) {
+			this.symbol = symbol;
+			this.depth = depth;
+			this.slot = slot;
+			this.shadowed = shadowed;
+		}
+	}
+
+	private final NameTable names;
+	private Binding[] bindings = new Binding[64];
+
+	/*
+	 * The undo log of declarations, and the log size when each open scope was entered.
+	 */
+	private final List<Binding> declared = new ArrayList<>();
+	private int[] scopeStarts = new int[8];
+	private int depth = 0;
+
+	/*
+	 * The initialization state of every binding, by slot.
+	 */
+	private long[] initialized = new long[1];
+
+	/*
+	 * The depth of each open isolated scope, and the words of the initialization states it saved
+	 * on entry, reused between scopes.
+	 */
+	private int[] isolatedDepths = new int[4];
+	private long[][] savedWords = new long[4][];
+	private int[] savedCounts = new int[4];
+	private int isolated = 0;
+
+	/*
+	 * Counters for ValidationStats.
+	 */
+	private long lookups = 0;
+	private int maxDepth = 0;
+	private int copies = 0;
+
+	/**
+	 * Constructs an empty SymbolTable, at the global scope.
+	 *
+	 * @param names The name table the symbol ids refer to.
+	 */
+	public SymbolTable(NameTable names) {
+		this.names = names;
+	}
+
+	/**
+	 * Creates a copy of the global scope, which must be the current scope.
+	 *
+	 * @return A new SymbolTable holding copies of the global symbols and their states.
+	 * @throws IllegalStateException If a scope is still open.
+	 */
+	public SymbolTable copy() {
+		if (depth != 0) {
+			throw new IllegalStateException("Only the global scope can be copied");
+		}
+		copies++;
+		var table = new SymbolTable(names);
+		table.bindings = new Binding[bindings.length];
+		for (var binding : declared) {
+			var copy = new Binding(binding.symbol, 0, binding.slot, null);
+			table.bindings[binding.symbol.getId()] = copy;
+			table.declared.add(copy);
+		}
+		table.initialized = initialized.clone();
+		return table;
+	}
+
+	/**
+	 * Opens a new innermost scope.
+	 */
+	public void enterScope() {
+		if (depth == scopeStarts.length) {
+			scopeStarts = Arrays.copyOf(scopeStarts, depth * 2);
+		}
+		scopeStarts[depth++] = declared.size();
+		maxDepth = Math.max(maxDepth, depth);
+	}
+
+	/**
+	 * Opens a new innermost scope whose writes to outer initialization states are undone when
+	 * it is exited.
+	 */
+	public void enterIsolatedScope() {
+		if (isolated == isolatedDepths.length) {
+			isolatedDepths = Arrays.copyOf(isolatedDepths, isolated * 2);
+			savedWords = Arrays.copyOf(savedWords, isolated * 2);
+			savedCounts = Arrays.copyOf(savedCounts, isolated * 2);
+		}
+		int words = (declared.size() + 63) >>> 6;
+		if (savedWords[isolated] == null || savedWords[isolated].length < words) {
+			savedWords[isolated] = new long[Math.max(words, 1)];
+		}
+		System.arraycopy(initialized, 0, savedWords[isolated], 0, words);
+		savedCounts[isolated] = words;
+		enterScope();
+		isolatedDepths[isolated++] = depth;
+	}
+
+	/**
+	 * Closes the innermost scope, removing its declarations and unshadowing the outer ones.
+	 *
+	 * @throws IllegalStateException If the current scope is the global scope.
+	 */
+	public void exitScope() {
+		if (depth == 0) {
+			throw new IllegalStateException("The global scope cannot be exited");
+		}
+
+		int start = scopeStarts[depth - 1];
+		for (int i = declared.size() - 1; i >= start; i--) {
+			var binding = declared.remove(i);
+			bindings[binding.symbol.getId()] = binding.shadowed;
+		}
+
+		// Whole words are restored; slots declared in the scope are cleared when reused
+		if (isolated > 0 && isolatedDepths[isolated - 1] == depth) {
+			isolated--;
+			System.arraycopy(savedWords[isolated], 0, initialized, 0, savedCounts[isolated]);
+		}
+		depth--;
+	}
+
+	/**
+	 * Closes scopes until the given number of scopes is open.
+	 *
+	 * @param depth The number of scopes to leave open, 0 to return to the global scope.
+	 */
+	public void exitScopesTo(int depth) {
+		while (this.depth > depth) {
+			exitScope();
+		}
+	}
+
+	/**
+	 * Returns the number of open scopes, not counting the global scope.
+	 *
+	 * @return The current nesting depth.
+	 */
+	public int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * Checks if the current scope is the global scope.
+	 *
+	 * @return True if no scope is open, false otherwise.
+	 */
+	public boolean isGlobal() {
+		return depth == 0;
+	}
+
+	/**
+	 * Defines a new variable symbol in the current scope.
+	 * A symbol may shadow one of an outer scope, but not one of the current scope.
+	 *
+	 * @param symbol The symbol to define.
+	 * @throws SemanticException If the symbol is already defined in the current scope.
+	 */
+	public void define(Symbol symbol) {
+		int id = symbol.getId();
+		if (id >= bindings.length) {
+			bindings = Arrays.copyOf(bindings, Math.max(id + 1, bindings.length * 2));
+		}
+		var outer = bindings[id];
+		if (outer != null && outer.depth == depth) {
+			throw new SemanticException("Variable already declared: " + symbol.getIdentifier());
+		}
+
+		int slot = declared.size();
+		if (slot >>> 6 == initialized.length) {
+			initialized = Arrays.copyOf(initialized, initialized.length * 2);
+		}
+		initialized[slot >>> 6] &= ~(1L << slot);
+		var binding = new Binding(symbol, depth, slot, outer);
+		bindings[id] = binding;
+		declared.add(binding);
+	}
+
+	/**
+	 * Resolves a variable symbol by the id of its name, finding its innermost declaration.
+	 *
+	 * @param id The name id of the variable to resolve.
+	 * @return The corresponding Symbol.
+	 * @throws SemanticException If the variable is not defined in any accessible scope.
+	 */
+	public Symbol resolve(int id) {
+		return binding(id).symbol;
+	}
+
+	/**
+	 * Sets the initialization state of the innermost variable with the given name id.
+	 *
+	 * @param id            The name id of the variable.
+	 * @param isInitialized The initialization state to set.
+	 * @throws SemanticException If the variable is not defined in any accessible scope.
+	 */
+	public void setInitialized(int id, boolean isInitialized) {
+		int slot = binding(id).slot;
+		if (isInitialized) {
+			initialized[slot >>> 6] |= 1L << slot;
+		}
+		else {
+			initialized[slot >>> 6] &= ~(1L << slot);
+		}
+	}
+
+	/**
+	 * Checks if the innermost variable with the given name id is initialized.
+	 *
+	 * @param id The name id of the variable to check.
+	 * @return True if the variable is initialized, false otherwise.
+	 * @throws SemanticException If the variable is not defined in any accessible scope.
+	 */
+	public boolean isInitialized(int id) {
+		int slot = binding(id).slot;
+		return (initialized[slot >>> 6] & 1L << slot) != 0;
+	}
+
+	/**
+	 * Returns the number of times a name was looked up by resolve, setInitialized or
+	 * isInitialized.
+	 *
+	 * @return The number of lookups.
+	 */
+	public long getLookupCount() {
+		return lookups;
+	}
+
+	/**
+	 * Returns the largest number of scopes that were open at once, not counting the global scope.
+	 *
+	 * @return The largest nesting depth.
+	 */
+	public int getMaxDepth() {
+		return maxDepth;
+	}
+
+	/**
+	 * Returns the number of copies made of this table.
+	 *
+	 * @return The number of copy calls.
+	 */
+	public int getCopyCount() {
+		return copies;
+	}
+
+	/**
+	 * Returns the innermost symbol of every name currently in scope.
+	 *
+	 * @return The visible symbols.
+	 */
+	List<Symbol> getVisibleSymbols() {
+		var symbols = new ArrayList<Symbol>();
+		for (var binding : declared) {
+			if (bindings[binding.symbol.getId()] == binding) {
+				symbols.add(binding.symbol);
+			}
+		}
+		return symbols;
+	}
+
+	/*
+	 * Finds the innermost binding of a name.
+	 */
+	private Binding binding(int id) {
+		lookups++;
+		var binding = id < bindings.length ? bindings[id] : null;
+		if (binding == null) {
+			throw new SemanticException("Undefined variable: " + names.nameOf(id));
+		}
+		return binding;
+	}
+}